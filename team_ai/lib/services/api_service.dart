@@ -220,6 +220,48 @@ class ApiService {
     });
   }
 
+  // Streaming AI chat (SSE): фрагменты ответа приходят по мере генерации.
+  // Отмена подписки на стрим закрывает соединение и останавливает генерацию на сервере.
+  Stream<String> aiChatStream(String message, String context) async* {
+    final headers = await _getHeaders();
+    headers['Accept'] = 'text/event-stream';
+    final request = http.Request('POST', Uri.parse('$baseUrl/ai/chat/stream'))
+      ..headers.addAll(headers)
+      ..body = jsonEncode({
+        'message': message,
+        'context': context,
+      });
+
+    final client = http.Client();
+    try {
+      final response = await client.send(request);
+      if (response.statusCode != 200) {
+        throw ApiException('Ошибка сервера', statusCode: response.statusCode);
+      }
+
+      String event = 'message';
+      final lines = response.stream
+          .transform(utf8.decoder)
+          .transform(const LineSplitter());
+      await for (final line in lines) {
+        if (line.isEmpty) {
+          event = 'message';
+        } else if (line.startsWith('event:')) {
+          event = line.substring(6).trim();
+        } else if (line.startsWith('data:')) {
+          final data = jsonDecode(line.substring(5).trim());
+          if (event == 'message') {
+            yield data['delta'] as String;
+          } else if (event == 'error') {
+            throw ApiException(data['message'] ?? 'Ответ AI прерван');
+          }
+        }
+      }
+    } finally {
+      client.close();
+    }
+  }
+
   Future<Map<String, dynamic>> aiDistributeTasks(String projectId) async {
     return post('/ai/distribute-tasks', {
       'projectId': projectId,
@@ -0,0 +1,39 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+@Configuration
+@ConfigurationProperties(prefix = "agenda")
+@Data
+public class AgendaConfig {
+    private boolean enabled = true;
+    /**
+     * Хранить повестки в Redis (общие для всех инстансов); иначе - локальный кэш одного инстанса
+     */
+    private boolean redisEnabled = true;
+    private String redisKeyPrefix = "agenda:";
+    private Long maxLocalEntries = 100_000L;
+    /**
+     * Время жизни повестки дня; с запасом на сутки, чтобы ночной пересчет не терялся к утру
+     */
+    private Duration ttl = Duration.ofHours(26);
+    /**
+     * Часовой пояс, в котором считается "сегодня" и запускается пересчет; пусто - пояс сервера
+     */
+    private String zone = "";
+    private boolean precomputeEnabled = true;
+    private String precomputeCron = "0 5 0 * * *";
+    /**
+     * Пользователей в одном запросе ночного пересчета
+     */
+    private Integer batchSize = 500;
+    
+    public ZoneId zoneId() {
+        return zone == null || zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+}
@@ -0,0 +1,43 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.distribution")
+@Data
+public class AiDistributionConfig {
+    /**
+     * Postgres advisory lock на проект: одно распределение на проект во всем кластере
+     */
+    private boolean clusterLock = true;
+    /**
+     * Отдельный пул соединений для advisory lock: соединение с блокировкой занято весь вызов OpenAI
+     * и не должно отнимать основной пул у записи задач. Не меньше распределений, идущих на узле
+     * одновременно (bulk-concurrency + воркеры ai.jobs + синхронные вызовы)
+     */
+    private Integer lockPoolSize = 10;
+    private Duration lockConnectionTimeout = Duration.ofSeconds(2);
+    /**
+     * Сколько проектов массового распределения обрабатывается одновременно.
+     * Не больше max-concurrent-calls bulkhead "openai", иначе лишние ждут в очереди
+     */
+    private Integer bulkConcurrency = 4;
+    /**
+     * Задачи из потока ответа модели пишутся пачками: по stream-flush-size штук
+     * или по прошествии stream-flush-interval с прошлой записи
+     */
+    private Integer streamFlushSize = 5;
+    private Duration streamFlushInterval = Duration.ofMillis(500);
+    private Integer bulkMaxProjects = 50;
+    /**
+     * Сколько план из режима preview ждет записи
+     */
+    private Duration planTtl = Duration.ofMinutes(30);
+    private Long maxPlans = 10_000L;
+    private boolean planRedisEnabled = false;
+    private String planRedisKeyPrefix = "ai:plan:";
+}
@@ -0,0 +1,30 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.jobs")
+@Data
+public class AiJobConfig {
+    private Integer workers = 2;
+    private Integer queueCapacity = 50;
+    private Duration eventsTimeout = Duration.ofMinutes(10);
+    /**
+     * Имя инстанса для владения задачами; по умолчанию имя хоста.
+     * Должно сохраняться между перезапусками, чтобы инстанс сразу завершал свои прерванные задачи
+     */
+    private String instanceId;
+    /**
+     * Как часто инстанс продлевает аренду своих задач
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    /**
+     * Задачи без продления дольше lease-timeout считаются брошенными:
+     * RUNNING завершаются с ошибкой, QUEUED забирает другой инстанс
+     */
+    private Duration leaseTimeout = Duration.ofMinutes(2);
+}
@@ -0,0 +1,45 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.rate-limit")
+@Data
+public class AiRateLimitConfig {
+    private boolean enabled = true;
+    private Budget chat = new Budget(20, 20, Duration.ofMinutes(1));
+    private Budget distribution = new Budget(3, 10, Duration.ofHours(1));
+    private Budget bulkDistribution = new Budget(2, 5, Duration.ofHours(1));
+    /**
+     * Лимиты и учет токенов в Redis - общие для всех инстансов
+     */
+    private boolean redisEnabled = false;
+    private String redisKeyPrefix = "ai:limit:";
+    /**
+     * Сколько пользователей держать в локальных бакетах и счетчиках токенов
+     */
+    private long maxTrackedUsers = 100_000L;
+    /**
+     * Цена 1000 токенов для оценки стоимости в /ai/usage, 0 - не считать
+     */
+    private double promptPricePer1k = 0.0;
+    private double completionPricePer1k = 0.0;
+
+    /**
+     * Token bucket: capacity запросов подряд, затем refillTokens за refillPeriod
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+        private long capacity;
+        private long refillTokens;
+        private Duration refillPeriod;
+    }
+}
@@ -0,0 +1,57 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.retrieval")
+@Data
+public class AiRetrievalConfig {
+    /**
+     * Добавлять в промпт чата похожие задачи и проекты пользователя
+     */
+    private boolean enabled = true;
+    /**
+     * hashing - локальный детерминированный embedder; другое значение - свой бин Embedder
+     */
+    private String embedder = "hashing";
+    private Integer dimension = 256;
+    private Integer topK = 5;
+    private Double minScore = 0.2;
+    /**
+     * Параметры HNSW графа: связей на узел, ширина поиска при вставке и при запросе
+     */
+    private Integer m = 16;
+    private Integer efConstruction = 100;
+    private Integer efSearch = 64;
+    /**
+     * Предел узлов, просматриваемых одним запросом с фильтром по проектам
+     */
+    private Integer maxVisits = 50_000;
+    /**
+     * Если у пользователя в проектах не больше стольких записей - точный перебор вместо графа
+     */
+    private Integer exactSearchThreshold = 4096;
+    private Integer snippetLength = 200;
+    private Integer rebuildBatchSize = 1000;
+    /**
+     * Снимок индекса на диске, пусто - без снимков (индекс строится из БД при каждом старте)
+     */
+    private String snapshotPath = "data/ai-index.bin";
+    private Duration snapshotInterval = Duration.ofMinutes(10);
+    private Duration membershipCacheTtl = Duration.ofMinutes(1);
+    /**
+     * Сверка с БД: изменения с прошлой сверки (в том числе с других инстансов)
+     * и удаление записей, задач и проектов которых больше нет
+     */
+    private Duration reconcileInterval = Duration.ofMinutes(10);
+    /**
+     * Граф пересобирается без удаленных узлов, когда их доля не меньше compact-deleted-ratio
+     * и их не меньше compact-min-deleted
+     */
+    private Double compactDeletedRatio = 0.25;
+    private Integer compactMinDeleted = 1000;
+}
@@ -0,0 +1,38 @@
+package com.teamai.teamai_backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+    
+    /**
+     * Пул для обработки ответов AI (парсинг, запись задач) вне потоков Tomcat
+     */
+    @Bean(name = "aiExecutor")
+    public ThreadPoolTaskExecutor aiExecutor(OpenAiConfig openAiConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(openAiConfig.getWorkerThreads());
+        executor.setMaxPoolSize(openAiConfig.getWorkerThreads());
+        executor.setQueueCapacity(openAiConfig.getWorkerQueueCapacity());
+        executor.setThreadNamePrefix("ai-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+    
+    /**
+     * Пул фоновых задач распределения (POST /ai/distribute-tasks?async=true).
+     * Ограниченная очередь: при переполнении задача сразу помечается FAILED.
+     */
+    @Bean(name = "aiJobExecutor")
+    public ThreadPoolTaskExecutor aiJobExecutor(AiJobConfig aiJobConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(aiJobConfig.getWorkers());
+        executor.setMaxPoolSize(aiJobConfig.getWorkers());
+        executor.setQueueCapacity(aiJobConfig.getQueueCapacity());
+        executor.setThreadNamePrefix("ai-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,18 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.chat-cache")
+@Data
+public class ChatCacheConfig {
+    private boolean enabled = true;
+    private Long maxEntries = 10_000L;
+    private Duration ttl = Duration.ofHours(6);
+    private boolean redisEnabled = true;
+    private String redisKeyPrefix = "ai:chat:";
+}
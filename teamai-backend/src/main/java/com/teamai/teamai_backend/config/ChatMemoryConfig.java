@@ -0,0 +1,35 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.chat-memory")
+@Data
+public class ChatMemoryConfig {
+    private boolean enabled = true;
+    /**
+     * Размер кольцевого буфера реплик в одном разговоре
+     */
+    private Integer maxTurns = 12;
+    private Integer maxSessionsPerUser = 5;
+    private Long maxUsers = 50_000L;
+    /**
+     * Разговор без сообщений дольше этого времени удаляется
+     */
+    private Duration sessionTtl = Duration.ofHours(2);
+    /**
+     * Бюджет токенов истории в промпте: сводка + последние реплики
+     */
+    private Integer promptTokenBudget = 1500;
+    private Integer summaryMaxTokens = 300;
+    /**
+     * Длинная реплика сохраняется обрезанной до этого размера
+     */
+    private Integer maxTurnTokens = 400;
+    private boolean redisEnabled = false;
+    private String redisKeyPrefix = "ai:memory:";
+}
@@ -0,0 +1,86 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "openai")
+@Data
+public class OpenAiConfig {
+    private Api api = new Api();
+    private String model = "gpt-4";
+    private Integer maxTokens = 2000;
+    private Double temperature = 0.7;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(60);
+    private Integer workerThreads = 8;
+    private Integer workerQueueCapacity = 200;
+    private LatencyBudget latencyBudget = new LatencyBudget();
+    private Routing routing = new Routing();
+
+    @Data
+    public static class Api {
+        private String key;
+        private String url = "https://api.openai.com/v1/chat/completions";
+    }
+
+    /**
+     * Бюджет времени на вызов OpenAI по сценариям, после него отдается fallback
+     */
+    @Data
+    public static class LatencyBudget {
+        private Duration chat = Duration.ofSeconds(10);
+        private Duration chatStream = Duration.ofSeconds(30);
+        private Duration distribution = Duration.ofSeconds(60);
+    }
+
+    /**
+     * Маршрутизация между OpenAI-совместимыми провайдерами. Пустой список -
+     * один провайдер из openai.api и openai.model.
+     */
+    @Data
+    public static class Routing {
+        private List<Provider> providers = new ArrayList<>();
+        private boolean hedgingEnabled = true;
+        private double hedgePercentile = 0.95;
+        private Duration minHedgeDelay = Duration.ofMillis(300);
+        private Duration initialHedgeDelay = Duration.ofSeconds(3);
+        private Integer latencyWindow = 256;
+        private Integer maxConsecutiveFailures = 3;
+        private Duration unhealthyCooldown = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Провайдер: не заданные key и model берутся из openai.api.key и openai.model
+     */
+    @Data
+    public static class Provider {
+        private String name;
+        private String url;
+        private String key;
+        private String model;
+        private Double weight = 1.0;
+    }
+
+    /**
+     * Ключ задан и не является плейсхолдером из примера конфигурации
+     */
+    public boolean isConfigured() {
+        if (routing.getProviders().isEmpty()) {
+            return isRealKey(api.getKey());
+        }
+        return routing.getProviders().stream()
+                .anyMatch(p -> isRealKey(p.getKey() != null ? p.getKey() : api.getKey()));
+    }
+
+    private static boolean isRealKey(String key) {
+        return key != null && !key.isEmpty()
+                && !key.equals("your-api-key-here")
+                && !key.equals("your-openai-api-key-here");
+    }
+}
@@ -0,0 +1,23 @@
+package com.teamai.teamai_backend.config;
+
+import com.teamai.teamai_backend.exception.BadRequestException;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pagination")
+@Data
+public class PaginationConfig {
+    /**
+     * Больший limit в запросе урезается до этого значения
+     */
+    private Integer maxPageSize = 200;
+    
+    public int pageSize(int requested) {
+        if (requested < 1) {
+            throw new BadRequestException("limit должен быть больше 0");
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
@@ -0,0 +1,23 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "project-counters")
+@Data
+public class ProjectCountersConfig {
+    private boolean reconcileEnabled = true;
+    /**
+     * Пауза между сверками счетчиков задач всех проектов с таблицей tasks
+     */
+    private Duration reconcileInterval = Duration.ofHours(1);
+    private Duration initialDelay = Duration.ofMinutes(2);
+    /**
+     * Проектов в одном UPDATE сверки
+     */
+    private Integer batchSize = 500;
+}
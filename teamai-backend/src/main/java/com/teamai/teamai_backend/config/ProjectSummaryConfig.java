@@ -0,0 +1,36 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.project-summary")
+@Data
+public class ProjectSummaryConfig {
+    private boolean enabled = true;
+    /**
+     * Пауза между проверками отпечатков всех проектов
+     */
+    private Duration scanInterval = Duration.ofMinutes(15);
+    private Duration initialDelay = Duration.ofMinutes(1);
+    private Integer scanPageSize = 500;
+    /**
+     * Проектов в одном запросе к модели
+     */
+    private Integer batchSize = 5;
+    /**
+     * Минимальная пауза между запросами к модели
+     */
+    private Duration minCallInterval = Duration.ofSeconds(2);
+    private Duration callTimeout = Duration.ofSeconds(60);
+    private Integer maxTasksInPrompt = 40;
+    private Integer maxQueued = 10_000;
+    /**
+     * Пауза перед повтором после неудачной генерации, удваивается с каждой неудачей до max-failure-backoff
+     */
+    private Duration failureBackoff = Duration.ofMinutes(5);
+    private Duration maxFailureBackoff = Duration.ofHours(6);
+}
@@ -0,0 +1,25 @@
+package com.teamai.teamai_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "user-search")
+@Data
+public class UserSearchConfig {
+    private Integer defaultLimit = 10;
+    private Integer maxLimit = 50;
+    /**
+     * С этой длины запроса ищется и подстрока (триграммы), короче - только префикс
+     */
+    private Integer minContainsLength = 3;
+    private boolean cacheEnabled = true;
+    private Long cacheMaxEntries = 10_000L;
+    /**
+     * Новые и переименованные пользователи попадают в выдачу не позже чем через cacheTtl
+     */
+    private Duration cacheTtl = Duration.ofSeconds(30);
+}
@@ -1,42 +1,265 @@
 package com.teamai.teamai_backend.controller;
 
+import com.teamai.teamai_backend.config.AiDistributionConfig;
+import com.teamai.teamai_backend.config.OpenAiConfig;
+import com.teamai.teamai_backend.exception.BadRequestException;
+import com.teamai.teamai_backend.model.dto.request.CommitDistributionPlanRequest;
+import com.teamai.teamai_backend.model.dto.response.AiJobResponse;
+import com.teamai.teamai_backend.model.dto.response.AiUsageResponse;
 import com.teamai.teamai_backend.model.dto.response.ApiResponse;
+import com.teamai.teamai_backend.model.dto.response.DistributionPlanResponse;
 import com.teamai.teamai_backend.service.AIService;
+import com.teamai.teamai_backend.service.AiJobService;
+import com.teamai.teamai_backend.service.ai.AiRateLimiter;
+import com.teamai.teamai_backend.service.ai.AiUsageTracker;
+import com.teamai.teamai_backend.service.ai.ConversationMemory;
+import com.teamai.teamai_backend.service.ai.LlmStream;
+import com.teamai.teamai_backend.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/ai")
 @RequiredArgsConstructor
+@Slf4j
 @Tag(name = "AI", description = "AI Assistant endpoints")
 public class AIController {
     
     private final AIService aiService;
+    private final AiJobService aiJobService;
+    private final OpenAiConfig openAiConfig;
+    private final AiDistributionConfig aiDistributionConfig;
+    private final SecurityUtils securityUtils;
+    private final AiRateLimiter aiRateLimiter;
+    private final AiUsageTracker aiUsageTracker;
+    private final ConversationMemory conversationMemory;
     
+    /**
+     * Необязательный conversationId выбирает разговор, история которого хранится на сервере;
+     * без него используется разговор по умолчанию. Он же возвращается в ответе.
+     */
     @PostMapping("/chat")
     @Operation(summary = "Chat with AI assistant")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> chat(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<Map<String, Object>>>> chat(@RequestBody Map<String, String> request) {
         String message = request.get("message");
         String context = request.getOrDefault("context", "");
+        String conversationId = ConversationMemory.conversationId(request.get("conversationId"));
+        UUID userId = securityUtils.getCurrentUserId();
+        aiRateLimiter.acquire(userId, AiRateLimiter.Operation.CHAT);
         
-        Map<String, Object> response = aiService.chat(message, context);
+        return aiService.chat(userId, conversationId, message, context)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success("AI response", response)));
+    }
+    
+    /**
+     * События: "message" с фрагментом ответа {"delta": "..."}, в конце "done"
+     * или "error", если OpenAI оборвал ответ на середине.
+     * Закрытие соединения клиентом прерывает запрос к OpenAI.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Chat with AI assistant (Server-Sent Events)")
+    public SseEmitter chatStream(@RequestBody Map<String, String> request) {
+        String message = request.get("message");
+        String context = request.getOrDefault("context", "");
+        String conversationId = ConversationMemory.conversationId(request.get("conversationId"));
+        UUID userId = securityUtils.getCurrentUserId();
+        aiRateLimiter.acquire(userId, AiRateLimiter.Operation.CHAT);
+        
+        SseEmitter emitter = new SseEmitter(openAiConfig.getReadTimeout().toMillis());
+        LlmStream stream = aiService.chatStream(userId, conversationId, message, context, delta -> {
+            try {
+                emitter.send(SseEmitter.event().name("message").data(Map.of("delta", delta)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
         
-        return ResponseEntity.ok(ApiResponse.success("AI response", response));
+        emitter.onCompletion(stream::cancel);
+        emitter.onTimeout(stream::cancel);
+        emitter.onError(e -> stream.cancel());
+        
+        stream.completion().whenComplete((response, error) -> {
+            if (stream.isCancelled()) {
+                return;
+            }
+            try {
+                if (error == null) {
+                    emitter.send(SseEmitter.event().name("done").data(Map.of("timestamp", new Date())));
+                } else {
+                    log.error("AI chat stream interrupted: {}", error.getMessage());
+                    emitter.send(SseEmitter.event().name("error").data(Map.of("message", "Ответ AI прерван")));
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        
+        return emitter;
+    }
+    
+    @DeleteMapping("/chat/conversations/{conversationId}")
+    @Operation(summary = "Forget the server-side history of a chat conversation")
+    public ResponseEntity<ApiResponse<Void>> clearConversation(@PathVariable String conversationId) {
+        conversationMemory.clear(securityUtils.getCurrentUserId(), ConversationMemory.conversationId(conversationId));
+        return ResponseEntity.ok(ApiResponse.success("Conversation cleared", null));
     }
     
     @PostMapping("/distribute-tasks")
     @Operation(summary = "AI-powered task distribution")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> distributeTasks(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<Map<String, Object>>>> distributeTasks(@RequestBody Map<String, String> request) {
         UUID projectId = UUID.fromString(request.get("projectId"));
+        UUID userId = securityUtils.getCurrentUserId();
+        aiRateLimiter.acquire(userId, AiRateLimiter.Operation.DISTRIBUTION);
         
-        Map<String, Object> result = aiService.distributeTasks(projectId);
+        return aiService.distributeTasks(projectId, userId)
+                .thenApply(result -> ResponseEntity.ok(ApiResponse.success("Tasks distributed", result)));
+    }
+    
+    /**
+     * Массовое распределение: тело {"projectIds": [...]}.
+     * События: "result" по каждому проекту по мере готовности
+     * ({"projectId", "status": "completed", "result"} или {"projectId", "status": "failed", "message"}),
+     * в конце "done" с итогами. Ошибка по одному проекту не прерывает остальные;
+     * закрытие соединения клиентом не отменяет уже запущенные распределения.
+     */
+    @PostMapping(value = "/distribute-tasks/bulk", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "AI task distribution for several projects (Server-Sent Events)")
+    public SseEmitter distributeTasksBulk(@RequestBody Map<String, List<UUID>> request) {
+        List<UUID> projectIds = request.get("projectIds");
+        int maxProjects = aiDistributionConfig.getBulkMaxProjects();
+        if (projectIds == null || projectIds.isEmpty() || projectIds.size() > maxProjects) {
+            throw new BadRequestException("projectIds: от 1 до " + maxProjects + " проектов");
+        }
+        UUID userId = securityUtils.getCurrentUserId();
+        aiRateLimiter.acquire(userId, AiRateLimiter.Operation.BULK_DISTRIBUTION);
+        
+        long waves = projectIds.size() / aiDistributionConfig.getBulkConcurrency() + 1;
+        SseEmitter emitter = new SseEmitter(openAiConfig.getLatencyBudget().getDistribution().toMillis() * waves);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        
+        aiService.distributeTasksBulk(projectIds, userId, (projectId, result, error) -> {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("projectId", projectId);
+            if (error == null) {
+                succeeded.incrementAndGet();
+                event.put("status", "completed");
+                event.put("result", result);
+            } else {
+                failed.incrementAndGet();
+                log.warn("Bulk distribution failed for project {}: {}", projectId, error.getMessage());
+                event.put("status", "failed");
+                event.put("message", error.getMessage() != null ? error.getMessage() : "Ошибка распределения задач");
+            }
+            sendQuietly(emitter, SseEmitter.event().name("result").data(event));
+        }).whenComplete((ignored, error) -> {
+            sendQuietly(emitter, SseEmitter.event().name("done").data(Map.of(
+                    "total", succeeded.get() + failed.get(),
+                    "succeeded", succeeded.get(),
+                    "failed", failed.get())));
+            emitter.complete();
+        });
+        
+        return emitter;
+    }
+    
+    /**
+     * План распределения без записи задач: тело {"projectId"}.
+     * План хранится на сервере под planId и записывается через /distribution-plans/{planId}/commit.
+     */
+    @PostMapping("/distribute-tasks/preview")
+    @Operation(summary = "Preview AI task distribution without creating tasks")
+    public CompletableFuture<ResponseEntity<ApiResponse<DistributionPlanResponse>>> previewDistribution(
+            @RequestBody Map<String, String> request) {
+        UUID projectId = UUID.fromString(request.get("projectId"));
+        UUID userId = securityUtils.getCurrentUserId();
+        aiRateLimiter.acquire(userId, AiRateLimiter.Operation.DISTRIBUTION);
         
+        return aiService.previewDistribution(projectId, userId)
+                .thenApply(plan -> ResponseEntity.ok(ApiResponse.success("Distribution plan prepared", plan)));
+    }
+    
+    @GetMapping("/distribution-plans/{planId}")
+    @Operation(summary = "Get a previewed distribution plan")
+    public ResponseEntity<ApiResponse<DistributionPlanResponse>> getDistributionPlan(@PathVariable UUID planId) {
+        return ResponseEntity.ok(ApiResponse.success(
+                aiService.getDistributionPlan(planId, securityUtils.getCurrentUserId())));
+    }
+    
+    /**
+     * Записывает план как есть или с замененными исполнителями: {"assignees": {"0": "userId"}}
+     */
+    @PostMapping("/distribution-plans/{planId}/commit")
+    @Operation(summary = "Create the tasks of a previewed distribution plan")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> commitDistributionPlan(
+            @PathVariable UUID planId,
+            @RequestBody(required = false) CommitDistributionPlanRequest request) {
+        Map<String, Object> result = aiService.commitDistributionPlan(planId, securityUtils.getCurrentUserId(),
+                request != null ? request.getAssignees() : null);
         return ResponseEntity.ok(ApiResponse.success("Tasks distributed", result));
     }
+    
+    /**
+     * Фоновый режим: сразу возвращает задачу в статусе QUEUED.
+     * Повтор с тем же Idempotency-Key возвращает ту же задачу.
+     */
+    @PostMapping(value = "/distribute-tasks", params = "async=true")
+    @Operation(summary = "Start AI task distribution as a background job")
+    public ResponseEntity<ApiResponse<AiJobResponse>> distributeTasksAsync(
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        UUID projectId = UUID.fromString(request.get("projectId"));
+        UUID userId = securityUtils.getCurrentUserId();
+        aiRateLimiter.acquire(userId, AiRateLimiter.Operation.DISTRIBUTION);
+        
+        AiJobResponse job = aiJobService.submitDistribution(projectId, userId, idempotencyKey);
+        
+        return ResponseEntity.accepted().body(ApiResponse.success("Distribution job accepted", job));
+    }
+    
+    /**
+     * Клиент мог закрыть соединение - распределение при этом продолжается
+     */
+    private static void sendQuietly(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE client is gone: {}", e.getMessage());
+        }
+    }
+    
+    @GetMapping("/usage")
+    @Operation(summary = "OpenAI token usage of the current user")
+    public ResponseEntity<ApiResponse<AiUsageResponse>> getUsage() {
+        return ResponseEntity.ok(ApiResponse.success(aiUsageTracker.getUsage(securityUtils.getCurrentUserId())));
+    }
+    
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Get AI job status")
+    public ResponseEntity<ApiResponse<AiJobResponse>> getJob(@PathVariable UUID id) {
+        return ResponseEntity.ok(ApiResponse.success(aiJobService.getJob(id, securityUtils.getCurrentUserId())));
+    }
+    
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream AI job status changes (Server-Sent Events)")
+    public SseEmitter jobEvents(@PathVariable UUID id) {
+        return aiJobService.subscribe(id, securityUtils.getCurrentUserId());
+    }
 }
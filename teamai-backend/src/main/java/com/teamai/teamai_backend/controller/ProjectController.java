@@ -2,6 +2,7 @@ package com.teamai.teamai_backend.controller;
 
 import com.teamai.teamai_backend.model.dto.request.CreateProjectRequest;
 import com.teamai.teamai_backend.model.dto.response.ApiResponse;
+import com.teamai.teamai_backend.model.dto.response.CursorPageResponse;
 import com.teamai.teamai_backend.model.dto.response.ProjectResponse;
 import com.teamai.teamai_backend.service.ProjectService;
 import com.teamai.teamai_backend.util.SecurityUtils;
@@ -34,6 +35,18 @@ public class ProjectController {
         return ResponseEntity.ok(ApiResponse.success(projects));
     }
     
+    /**
+     * Постраничный вариант: включается параметром limit, следующая страница - cursor из ответа
+     */
+    @GetMapping(params = "limit")
+    @Operation(summary = "Получить проекты пользователя постранично")
+    public ResponseEntity<ApiResponse<CursorPageResponse<ProjectResponse>>> getProjectsPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor) {
+        UUID userId = securityUtils.getCurrentUserId();
+        return ResponseEntity.ok(ApiResponse.success(projectService.getProjectsPage(userId, cursor, limit)));
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Получить проект по ID")
     public ResponseEntity<ApiResponse<ProjectResponse>> getProjectById(@PathVariable UUID id) {
@@ -1,10 +1,14 @@
 package com.teamai.teamai_backend.controller;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.teamai.teamai_backend.model.dto.request.BatchUpdateTaskStatusRequest;
 import com.teamai.teamai_backend.model.dto.request.CreateTaskRequest;
 import com.teamai.teamai_backend.model.dto.request.UpdateTaskStatusRequest;
 import com.teamai.teamai_backend.model.dto.response.ApiResponse;
+import com.teamai.teamai_backend.model.dto.response.CursorPageResponse;
 import com.teamai.teamai_backend.model.dto.response.TaskResponse;
 import com.teamai.teamai_backend.service.TaskService;
+import com.teamai.teamai_backend.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,21 +28,37 @@ import java.util.UUID;
 public class TaskController {
     
     private final TaskService taskService;
+    private final SecurityUtils securityUtils;
     
     @GetMapping
     @Operation(summary = "Получить все задачи пользователя")
     public ResponseEntity<ApiResponse<List<TaskResponse>>> getAllTasks() {
-        UUID userId = UUID.randomUUID(); // TODO: get from JWT
+        UUID userId = securityUtils.getCurrentUserId();
         List<TaskResponse> tasks = taskService.getAllTasks(userId);
         return ResponseEntity.ok(ApiResponse.success(tasks));
     }
     
+    /**
+     * Постраничный вариант: включается параметром limit, следующая страница - cursor из ответа
+     */
+    @GetMapping(params = "limit")
+    @Operation(summary = "Получить задачи пользователя постранично")
+    public ResponseEntity<ApiResponse<CursorPageResponse<TaskResponse>>> getTasksPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor) {
+        UUID userId = securityUtils.getCurrentUserId();
+        return ResponseEntity.ok(ApiResponse.success(taskService.getTasksPage(userId, cursor, limit)));
+    }
+    
+    /**
+     * data - массив TaskResponse, уже сериализованный в материализованной повестке дня
+     */
     @GetMapping("/today")
     @Operation(summary = "Получить задачи на сегодня")
-    public ResponseEntity<ApiResponse<List<TaskResponse>>> getTodayTasks() {
-        UUID userId = UUID.randomUUID(); // TODO: get from JWT
-        List<TaskResponse> tasks = taskService.getTodayTasks(userId);
-        return ResponseEntity.ok(ApiResponse.success(tasks));
+    public ResponseEntity<ApiResponse<RawValue>> getTodayTasks() {
+        UUID userId = securityUtils.getCurrentUserId();
+        String tasks = taskService.getTodayAgenda(userId);
+        return ResponseEntity.ok(ApiResponse.success(new RawValue(tasks)));
     }
     
     @PostMapping
@@ -48,6 +68,17 @@ public class TaskController {
         return ResponseEntity.ok(ApiResponse.success("Задача создана", task));
     }
     
+    /**
+     * Пакетная смена статусов: {"updates": [{"taskId", "status"}]}, все или ничего
+     */
+    @PutMapping("/status:batch")
+    @Operation(summary = "Обновить статусы нескольких задач")
+    public ResponseEntity<ApiResponse<List<TaskResponse>>> updateTaskStatuses(
+            @Valid @RequestBody BatchUpdateTaskStatusRequest request) {
+        List<TaskResponse> tasks = taskService.updateTaskStatuses(request.getUpdates());
+        return ResponseEntity.ok(ApiResponse.success("Статусы обновлены", tasks));
+    }
+    
     @PutMapping("/{id}/status")
     @Operation(summary = "Обновить статус задачи")
     public ResponseEntity<ApiResponse<TaskResponse>> updateTaskStatus(
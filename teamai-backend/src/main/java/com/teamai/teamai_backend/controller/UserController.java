@@ -2,6 +2,7 @@ package com.teamai.teamai_backend.controller;
 
 import com.teamai.teamai_backend.model.dto.response.ApiResponse;
 import com.teamai.teamai_backend.model.dto.response.UserResponse;
+import com.teamai.teamai_backend.service.UserSearchService;
 import com.teamai.teamai_backend.service.UserService;
 import com.teamai.teamai_backend.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,6 +27,7 @@ import java.util.UUID;
 public class UserController {
     
     private final UserService userService;
+    private final UserSearchService userSearchService;
     private final SecurityUtils securityUtils;
     
     @GetMapping("/me")
@@ -53,9 +55,13 @@ public class UserController {
     }
     
     @GetMapping("/search")
-    @Operation(summary = "Поиск пользователей по email")
-    public ResponseEntity<ApiResponse<List<UserResponse>>> searchByEmail(@RequestParam String email) {
-        List<UserResponse> users = userService.searchUsersByEmail(email);
+    @Operation(summary = "Поиск пользователей по email и имени",
+            description = "Сначала совпадения с начала email или имени; параметр email оставлен для старых клиентов")
+    public ResponseEntity<ApiResponse<List<UserResponse>>> searchUsers(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) Integer limit) {
+        List<UserResponse> users = userSearchService.search(q != null ? q : email, limit);
         return ResponseEntity.ok(ApiResponse.success(users));
     }
 }
@@ -0,0 +1,7 @@
+package com.teamai.teamai_backend.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package com.teamai.teamai_backend.exception;
+
+public class LlmException extends RuntimeException {
+    private final int statusCode;
+
+    public LlmException(String message) {
+        this(message, 0, null);
+    }
+
+    public LlmException(String message, int statusCode) {
+        this(message, statusCode, null);
+    }
+
+    public LlmException(String message, Throwable cause) {
+        this(message, 0, cause);
+    }
+
+    public LlmException(String message, int statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * HTTP статус ответа провайдера, 0 если ответа не было
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,17 @@
+package com.teamai.teamai_backend.exception;
+
+import java.time.Duration;
+
+public class RateLimitException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public RateLimitException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,28 @@
+package com.teamai.teamai_backend.model.dto.request;
+
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchUpdateTaskStatusRequest {
+    @NotEmpty
+    @Size(max = 500)
+    @Valid
+    private List<Item> updates;
+    
+    @Data
+    public static class Item {
+        @NotNull
+        private UUID taskId;
+        
+        @NotNull
+        private TaskStatus status;
+    }
+}
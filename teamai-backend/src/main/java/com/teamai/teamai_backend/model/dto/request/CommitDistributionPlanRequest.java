@@ -0,0 +1,14 @@
+package com.teamai.teamai_backend.model.dto.request;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+public class CommitDistributionPlanRequest {
+    /**
+     * Замена исполнителей перед записью: индекс задачи в плане -> id участника проекта
+     */
+    private Map<Integer, UUID> assignees;
+}
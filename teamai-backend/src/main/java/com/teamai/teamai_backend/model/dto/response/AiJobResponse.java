@@ -0,0 +1,26 @@
+package com.teamai.teamai_backend.model.dto.response;
+
+import com.teamai.teamai_backend.model.enums.AiJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiJobResponse {
+    private UUID id;
+    private UUID projectId;
+    private AiJobStatus status;
+    private String message;
+    private List<UUID> createdTaskIds;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
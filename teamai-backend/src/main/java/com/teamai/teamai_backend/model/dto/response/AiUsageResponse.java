@@ -0,0 +1,20 @@
+package com.teamai.teamai_backend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiUsageResponse {
+    private long requests;
+    private long promptTokens;
+    private long completionTokens;
+    /**
+     * Оценка по ценам из ai.rate-limit, 0 если цены не заданы
+     */
+    private double estimatedCost;
+}
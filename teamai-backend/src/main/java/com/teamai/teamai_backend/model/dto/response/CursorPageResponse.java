@@ -0,0 +1,21 @@
+package com.teamai.teamai_backend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> items;
+    /**
+     * Передать в cursor для следующей страницы; null на последней странице
+     */
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,26 @@
+package com.teamai.teamai_backend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistributionPlanResponse {
+    private UUID planId;
+    private UUID projectId;
+    private String message;
+    /**
+     * Задачи плана с исполнителями; id задач появятся только после commit
+     */
+    private List<TaskResponse> tasks;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
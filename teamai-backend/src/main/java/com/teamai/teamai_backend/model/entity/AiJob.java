@@ -0,0 +1,71 @@
+package com.teamai.teamai_backend.model.entity;
+
+import com.teamai.teamai_backend.model.enums.AiJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Entity
+@Table(name = "ai_jobs", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_ai_jobs_requested_by_idempotency_key", columnNames = {"requested_by", "idempotency_key"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+    
+    @Column(name = "project_id", nullable = false)
+    private UUID projectId;
+    
+    @Column(name = "requested_by")
+    private UUID requestedBy;
+    
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private AiJobStatus status = AiJobStatus.QUEUED;
+    
+    @Column(columnDefinition = "TEXT")
+    private String message;
+    
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "ai_job_tasks", joinColumns = @JoinColumn(name = "job_id"))
+    @Column(name = "task_id", nullable = false)
+    @Builder.Default
+    private List<UUID> createdTaskIds = new ArrayList<>();
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    /**
+     * Инстанс, который держит задачу в очереди или выполняет ее
+     */
+    @Column(name = "owner_instance")
+    private String ownerInstance;
+    
+    /**
+     * Последнее продление аренды владельцем
+     */
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+}
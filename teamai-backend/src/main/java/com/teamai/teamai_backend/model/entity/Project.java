@@ -3,6 +3,7 @@ package com.teamai.teamai_backend.model.entity;
 import com.teamai.teamai_backend.model.enums.ProjectStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -50,9 +51,32 @@ public class Project {
     @Builder.Default
     private Double progress = 0.0;
     
+    /**
+     * Счетчики задач для progress и списков проектов. Меняются только атомарным UPDATE
+     * (ProjectRepository.adjustTaskCounters), расхождения исправляет ProjectCountersReconciler
+     */
+    @Column(name = "total_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer totalTasks = 0;
+    
+    @Column(name = "completed_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer completedTasks = 0;
+    
     @Column(name = "ai_summary", columnDefinition = "TEXT")
     private String aiSummary;
     
+    /**
+     * md5 задач, статусов и участников, по которым построен aiSummary
+     */
+    @Column(name = "ai_summary_fingerprint", length = 32)
+    private String aiSummaryFingerprint;
+    
+    @Column(name = "ai_summary_updated_at")
+    private LocalDateTime aiSummaryUpdatedAt;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,8 @@
+package com.teamai.teamai_backend.model.enums;
+
+public enum AiJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
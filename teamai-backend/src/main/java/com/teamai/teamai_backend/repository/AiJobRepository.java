@@ -0,0 +1,81 @@
+package com.teamai.teamai_backend.repository;
+
+import com.teamai.teamai_backend.model.entity.AiJob;
+import com.teamai.teamai_backend.model.enums.AiJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AiJobRepository extends JpaRepository<AiJob, UUID> {
+    // Ключ уникален в пределах пользователя (V8)
+    Optional<AiJob> findByRequestedByAndIdempotencyKey(UUID requestedBy, String idempotencyKey);
+    
+    // Незавершенная задача проекта - повторный запрос присоединяется к ней
+    Optional<AiJob> findFirstByProjectIdAndStatusInOrderByCreatedAtDesc(UUID projectId, Collection<AiJobStatus> statuses);
+    
+    List<AiJob> findByStatusAndOwnerInstance(AiJobStatus status, String ownerInstance);
+    
+    @Query("SELECT j.id FROM AiJob j WHERE j.status = :status AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    List<UUID> findExpiredIds(@Param("status") AiJobStatus status, @Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Атомарный переход QUEUED -> RUNNING: 0 - задачу уже забрал другой исполнитель
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AiJob j SET j.status = :running, j.startedAt = :now, j.ownerInstance = :owner, j.heartbeatAt = :now " +
+           "WHERE j.id = :id AND j.status = :queued")
+    int claim(
+            @Param("id") UUID id,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now,
+            @Param("queued") AiJobStatus queued,
+            @Param("running") AiJobStatus running
+    );
+    
+    /**
+     * Передает QUEUED задачу с истекшей арендой новому владельцу; 0 - аренду продлили или задачу забрали
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AiJob j SET j.ownerInstance = :owner, j.heartbeatAt = :now " +
+           "WHERE j.id = :id AND j.status = :queued AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    int adoptExpired(
+            @Param("id") UUID id,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("queued") AiJobStatus queued
+    );
+    
+    /**
+     * Завершает RUNNING задачу с истекшей арендой; 0 - владелец жив или задача уже завершена
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AiJob j SET j.status = :failed, j.message = :message, j.finishedAt = :now " +
+           "WHERE j.id = :id AND j.status = :running AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    int failExpired(
+            @Param("id") UUID id,
+            @Param("message") String message,
+            @Param("now") LocalDateTime now,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("running") AiJobStatus running,
+            @Param("failed") AiJobStatus failed
+    );
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE AiJob j SET j.heartbeatAt = :now WHERE j.id IN :ids AND j.ownerInstance = :owner")
+    int renewLeases(@Param("ids") Collection<UUID> ids, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
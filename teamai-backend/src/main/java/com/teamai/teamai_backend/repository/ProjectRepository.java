@@ -1,18 +1,129 @@
 package com.teamai.teamai_backend.repository;
 
 import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.repository.projection.IndexedText;
+import com.teamai.teamai_backend.repository.projection.SummaryFingerprint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, UUID> {
+    
+    /**
+     * Отпечаток проекта для aiSummary: md5 полей проекта, задач (название, статус,
+     * исполнитель, дедлайн) и участников. Считается в Postgres без загрузки задач в приложение.
+     */
+    String SUMMARY_FINGERPRINT_SELECT =
+            "SELECT p.id AS projectId, p.ai_summary_fingerprint AS storedFingerprint, " +
+            "md5(concat_ws('|', p.title, p.description, p.status, p.deadline, " +
+            "(SELECT string_agg(concat_ws(':', t.id, t.title, t.status, t.assigned_to_id, t.deadline), ',' ORDER BY t.id) " +
+            "FROM tasks t WHERE t.project_id = p.id), " +
+            "(SELECT string_agg(CAST(m.user_id AS text), ',' ORDER BY m.user_id) " +
+            "FROM project_members m WHERE m.project_id = p.id))) AS fingerprint " +
+            "FROM projects p ";
+    
+    String VISIBLE_PROJECTS_SELECT = "SELECT p FROM Project p WHERE (p.owner.id = :userId OR EXISTS " +
+            "(SELECT m.id FROM ProjectMember m WHERE m.project = p AND m.user.id = :userId)) ";
+    
     List<Project> findByOwnerId(UUID ownerId);
     
+    // Страницы проектов пользователя, новые первыми: ключ (createdAt, id), без OFFSET
+    @Query(VISIBLE_PROJECTS_SELECT + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Project> findVisiblePage(@Param("userId") UUID userId, Pageable pageable);
+    
+    @Query(VISIBLE_PROJECTS_SELECT + "AND (p.createdAt, p.id) < (:createdAt, :id) ORDER BY p.createdAt DESC, p.id DESC")
+    List<Project> findVisiblePageAfter(
+            @Param("userId") UUID userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable
+    );
+    
     @Query("SELECT p FROM Project p JOIN p.members m WHERE m.user.id = :userId")
     List<Project> findProjectsByMemberId(@Param("userId") UUID userId);
+    
+    // Проекты с участниками одним запросом - для массового распределения
+    @Query("SELECT DISTINCT p FROM Project p LEFT JOIN FETCH p.members m LEFT JOIN FETCH m.user WHERE p.id IN :ids")
+    List<Project> findWithMembersByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    // Проекты, которые пользователь видит: свои и те, где он участник
+    @Query("SELECT DISTINCT p.id FROM Project p LEFT JOIN p.members m " +
+           "WHERE p.owner.id = :userId OR m.user.id = :userId")
+    List<UUID> findProjectIdsByUserId(@Param("userId") UUID userId);
+    
+    @Query("SELECT u.name FROM ProjectMember m JOIN m.user u WHERE m.project.id = :projectId ORDER BY u.name")
+    List<String> findMemberNames(@Param("projectId") UUID projectId);
+    
+    @Query("SELECT COUNT(p) > 0 FROM Project p WHERE p.id = :projectId AND (p.owner.id = :userId OR EXISTS " +
+           "(SELECT m.id FROM ProjectMember m WHERE m.project = p AND m.user.id = :userId))")
+    boolean isVisibleTo(@Param("projectId") UUID projectId, @Param("userId") UUID userId);
+    
+    // Тексты проектов для векторного индекса: keyset по id, изменившиеся с since
+    @Query("SELECT p.id AS id, p.id AS projectId, p.title AS title, p.description AS description " +
+           "FROM Project p WHERE p.id > :after AND (p.updatedAt IS NULL OR p.updatedAt >= :since) ORDER BY p.id")
+    List<IndexedText> findIndexTextAfter(
+            @Param("after") UUID after,
+            @Param("since") LocalDateTime since,
+            Pageable pageable
+    );
+    
+    // Отпечатки страницы проектов (keyset по id) для фоновой генерации aiSummary
+    @Query(value = SUMMARY_FINGERPRINT_SELECT + "WHERE p.id > :after ORDER BY p.id LIMIT :limit", nativeQuery = true)
+    List<SummaryFingerprint> findSummaryFingerprintsAfter(@Param("after") UUID after, @Param("limit") int limit);
+    
+    @Query(value = SUMMARY_FINGERPRINT_SELECT + "WHERE p.id IN (:ids)", nativeQuery = true)
+    List<SummaryFingerprint> findSummaryFingerprints(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Атомарное изменение счетчиков задач и progress одним UPDATE, без загрузки задач.
+     * Без @UpdateTimestamp: смена статуса задачи не считается изменением проекта
+     */
+    @Modifying
+    @Query("UPDATE Project p SET p.totalTasks = p.totalTasks + :total, " +
+           "p.completedTasks = p.completedTasks + :completed, " +
+           "p.progress = CASE WHEN p.totalTasks + :total > 0 " +
+           "THEN (p.completedTasks + :completed) * 100.0 / (p.totalTasks + :total) ELSE 0.0 END " +
+           "WHERE p.id = :id")
+    int adjustTaskCounters(
+            @Param("id") UUID id,
+            @Param("total") int total,
+            @Param("completed") int completed
+    );
+    
+    @Query("SELECT p.id FROM Project p WHERE p.id > :after ORDER BY p.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Pageable pageable);
+    
+    /**
+     * Пересчитывает счетчики задач проектов по таблице tasks; меняет только разошедшиеся строки
+     */
+    @Modifying
+    @Query(value = "UPDATE projects p SET total_tasks = c.total, completed_tasks = c.completed, " +
+            "progress = CASE WHEN c.total > 0 THEN c.completed * 100.0 / c.total ELSE 0 END " +
+            "FROM (SELECT pr.id, COUNT(t.id) AS total, " +
+            "COUNT(t.id) FILTER (WHERE t.status = 'COMPLETED') AS completed " +
+            "FROM projects pr LEFT JOIN tasks t ON t.project_id = pr.id " +
+            "WHERE pr.id IN :ids GROUP BY pr.id) c " +
+            "WHERE p.id = c.id AND (p.total_tasks <> c.total OR p.completed_tasks <> c.completed)",
+            nativeQuery = true)
+    int reconcileTaskCounters(@Param("ids") Collection<UUID> ids);
+    
+    // Запись сводки без @UpdateTimestamp: фоновая генерация не считается изменением проекта
+    @Modifying
+    @Query("UPDATE Project p SET p.aiSummary = :summary, p.aiSummaryFingerprint = :fingerprint, " +
+           "p.aiSummaryUpdatedAt = :updatedAt WHERE p.id = :id")
+    int updateAiSummary(
+            @Param("id") UUID id,
+            @Param("summary") String summary,
+            @Param("fingerprint") String fingerprint,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
 }
@@ -2,12 +2,20 @@ package com.teamai.teamai_backend.repository;
 
 import com.teamai.teamai_backend.model.entity.Task;
 import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.projection.IndexedTaskText;
+import com.teamai.teamai_backend.repository.projection.TaskRow;
+import com.teamai.teamai_backend.repository.projection.TaskSkillName;
+import com.teamai.teamai_backend.repository.projection.TaskStatusRow;
+import com.teamai.teamai_backend.repository.projection.UserWorkload;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,9 +25,14 @@ public interface TaskRepository extends JpaRepository<Task, UUID> {
     List<Task> findByProjectId(UUID projectId);
     List<Task> findByAssignedToIdAndStatus(UUID userId, TaskStatus status);
     
+    // Полуинтервал [start, end) вместо CAST(deadline AS date): условие по самой колонке идет по idx_tasks_assignee_deadline
     @Query("SELECT t FROM Task t WHERE t.assignedTo.id = :userId " +
-           "AND CAST(t.deadline AS date) = CURRENT_DATE")
-    List<Task> findTodayTasksByUserId(@Param("userId") UUID userId);
+           "AND t.deadline >= :start AND t.deadline < :end")
+    List<Task> findTodayTasksByUserId(
+            @Param("userId") UUID userId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
     
     @Query("SELECT t FROM Task t WHERE t.assignedTo.id = :userId " +
            "AND t.deadline BETWEEN :start AND :end")
@@ -29,6 +42,114 @@ public interface TaskRepository extends JpaRepository<Task, UUID> {
             @Param("end") LocalDateTime end
     );
     
+    String TASK_ROW_SELECT = "SELECT t.id AS id, p.id AS projectId, p.title AS projectTitle, t.title AS title, " +
+            "t.description AS description, t.assignedTo.id AS assignedToId, t.assignedToName AS assignedToName, " +
+            "t.deadline AS deadline, t.status AS status, t.priority AS priority, t.aiReasoning AS aiReasoning, " +
+            "t.estimatedHours AS estimatedHours, t.createdAt AS createdAt, t.completedAt AS completedAt " +
+            "FROM Task t JOIN t.project p ";
+    
+    // Списки задач для TaskResponse: один запрос на строки, навыки - findSkillNames
+    @Query(TASK_ROW_SELECT + "WHERE t.assignedTo.id = :userId")
+    List<TaskRow> findRowsByAssignedToId(@Param("userId") UUID userId);
+    
+    @Query(TASK_ROW_SELECT + "WHERE t.assignedTo.id = :userId AND t.deadline >= :start AND t.deadline < :end")
+    List<TaskRow> findTodayRowsByUserId(
+            @Param("userId") UUID userId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+    
+    // Ночной пересчет повесток: исполнители задач на день и их задачи пачкой пользователей
+    @Query("SELECT DISTINCT t.assignedTo.id FROM Task t WHERE t.deadline >= :start AND t.deadline < :end " +
+           "AND t.assignedTo IS NOT NULL")
+    List<UUID> findAssigneeIdsByDeadlineBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    @Query(TASK_ROW_SELECT + "WHERE t.assignedTo.id IN :userIds AND t.deadline >= :start AND t.deadline < :end")
+    List<TaskRow> findTodayRowsByUserIds(
+            @Param("userIds") Collection<UUID> userIds,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+    
+    @Query("SELECT DISTINCT t.assignedTo.id FROM Task t WHERE t.project.id = :projectId " +
+           "AND t.deadline >= :start AND t.deadline < :end AND t.assignedTo IS NOT NULL")
+    List<UUID> findAssigneeIdsByProjectIdAndDeadlineBetween(
+            @Param("projectId") UUID projectId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+    
+    // Страницы задач по ключу (deadline, id): следующая страница ищется по индексу, без OFFSET
+    @Query(TASK_ROW_SELECT + "WHERE t.assignedTo.id = :userId ORDER BY t.deadline, t.id")
+    List<TaskRow> findRowPageByAssignedToId(@Param("userId") UUID userId, Pageable pageable);
+    
+    @Query(TASK_ROW_SELECT + "WHERE t.assignedTo.id = :userId AND (t.deadline, t.id) > (:deadline, :id) " +
+           "ORDER BY t.deadline, t.id")
+    List<TaskRow> findRowPageByAssignedToIdAfter(
+            @Param("userId") UUID userId,
+            @Param("deadline") LocalDateTime deadline,
+            @Param("id") UUID id,
+            Pageable pageable
+    );
+    
+    @Query(TASK_ROW_SELECT + "WHERE t.id IN :ids")
+    List<TaskRow> findRowsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    // Задачи для сводки проекта: открытые первыми, по дедлайну; размер - в pageable
+    @Query(TASK_ROW_SELECT + "WHERE p.id = :projectId " +
+           "ORDER BY CASE WHEN t.status = :completed THEN 1 ELSE 0 END, t.deadline NULLS LAST, t.id")
+    List<TaskRow> findSummaryRowsByProjectId(
+            @Param("projectId") UUID projectId,
+            @Param("completed") TaskStatus completed,
+            Pageable pageable
+    );
+    
+    // Статусы до пакетного изменения; FOR UPDATE - параллельный батч по тем же задачам ждет
+    @Query(value = "SELECT id, project_id AS projectId, status FROM tasks WHERE id IN :ids FOR UPDATE",
+           nativeQuery = true)
+    List<TaskStatusRow> lockStatuses(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Один UPDATE на целевой статус. completedAt = null оставляет прежнее значение;
+     * updatedAt ставится явно - массовый UPDATE не вызывает @UpdateTimestamp
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.status = :status, t.completedAt = COALESCE(:completedAt, t.completedAt), " +
+           "t.updatedAt = :now WHERE t.id IN :ids")
+    int updateStatuses(
+            @Param("ids") Collection<UUID> ids,
+            @Param("status") TaskStatus status,
+            @Param("completedAt") LocalDateTime completedAt,
+            @Param("now") LocalDateTime now
+    );
+    
+    @Query("SELECT s.task.id AS taskId, s.skillName AS skillName FROM TaskSkill s WHERE s.task.id IN :taskIds")
+    List<TaskSkillName> findSkillNames(@Param("taskIds") Collection<UUID> taskIds);
+    
     // Найти нераспределенные задачи проекта
     List<Task> findByProjectIdAndAssignedToIdIsNull(UUID projectId);
+    
+    // Загрузка участников по открытым задачам (задачи без оценки считаются как defaultHours)
+    @Query("SELECT t.assignedTo.id AS userId, SUM(COALESCE(t.estimatedHours, :defaultHours)) AS openHours " +
+           "FROM Task t WHERE t.assignedTo.id IN :userIds AND t.status IN :statuses " +
+           "GROUP BY t.assignedTo.id")
+    List<UserWorkload> sumOpenHoursByAssignee(
+            @Param("userIds") Collection<UUID> userIds,
+            @Param("statuses") Collection<TaskStatus> statuses,
+            @Param("defaultHours") Integer defaultHours
+    );
+    
+    // Тексты задач для векторного индекса: keyset по id, изменившиеся с since
+    @Query("SELECT t.id AS id, t.project.id AS projectId, t.title AS title, " +
+           "t.description AS description, t.status AS status " +
+           "FROM Task t WHERE t.id > :after AND (t.updatedAt IS NULL OR t.updatedAt >= :since) ORDER BY t.id")
+    List<IndexedTaskText> findIndexTextAfter(
+            @Param("after") UUID after,
+            @Param("since") LocalDateTime since,
+            Pageable pageable
+    );
+    
+    // Все id задач страницами по id - сверка векторного индекса с БД
+    @Query("SELECT t.id FROM Task t WHERE t.id > :after ORDER BY t.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Pageable pageable);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,7 +16,17 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     Boolean existsByEmail(String email);
     
-    // Поиск пользователей по части email (case-insensitive)
-    @Query("SELECT u FROM User u WHERE LOWER(u.email) LIKE LOWER(CONCAT('%', :email, '%'))")
-    List<User> searchByEmailContaining(@Param("email") String email);
+    // Поиск пользователей по email и имени (UserSearchService). pattern 'ivan%' идет по idx_users_*_prefix,
+    // '%ivan%' - по триграммным idx_users_*_trgm. Первые limit - по тому же рангу, что UserSearchService.ranking:
+    // начало email или имени, начало слова в имени, подстрока; затем имя и email. term уже экранирован для LIKE
+    @Query(value = "SELECT id FROM users WHERE lower(email) LIKE :pattern OR lower(name) LIKE :pattern " +
+                   "ORDER BY CASE WHEN lower(email) LIKE :term || '%' OR lower(name) LIKE :term || '%' THEN 0 " +
+                   "WHEN lower(name) LIKE '% ' || :term || '%' THEN 1 ELSE 2 END, " +
+                   "lower(name), lower(email), id LIMIT :limit",
+           nativeQuery = true)
+    List<UUID> searchIds(@Param("pattern") String pattern, @Param("term") String term, @Param("limit") int limit);
+    
+    // Пользователи с навыками одним запросом
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.skills WHERE u.id IN :ids")
+    List<User> findWithSkillsByIdIn(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,7 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+
+public interface IndexedTaskText extends IndexedText {
+    TaskStatus getStatus();
+}
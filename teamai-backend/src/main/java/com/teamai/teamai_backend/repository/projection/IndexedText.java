@@ -0,0 +1,13 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Текст проекта или задачи для векторного индекса (без загрузки сущностей)
+ */
+public interface IndexedText {
+    UUID getId();
+    UUID getProjectId();
+    String getTitle();
+    String getDescription();
+}
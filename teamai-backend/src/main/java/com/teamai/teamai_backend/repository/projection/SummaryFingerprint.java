@@ -0,0 +1,16 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Текущий отпечаток проекта и тот, по которому построен aiSummary
+ */
+public interface SummaryFingerprint {
+    UUID getProjectId();
+    String getFingerprint();
+    String getStoredFingerprint();
+
+    default boolean isStale() {
+        return !getFingerprint().equals(getStoredFingerprint());
+    }
+}
@@ -0,0 +1,27 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import com.teamai.teamai_backend.model.enums.TaskPriority;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Колонки задачи для списков TaskResponse - без загрузки сущностей Task, Project и User
+ */
+public interface TaskRow {
+    UUID getId();
+    UUID getProjectId();
+    String getProjectTitle();
+    String getTitle();
+    String getDescription();
+    UUID getAssignedToId();
+    String getAssignedToName();
+    LocalDateTime getDeadline();
+    TaskStatus getStatus();
+    TaskPriority getPriority();
+    String getAiReasoning();
+    Integer getEstimatedHours();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getCompletedAt();
+}
@@ -0,0 +1,11 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Требуемый навык задачи - для загрузки навыков списка задач одним запросом
+ */
+public interface TaskSkillName {
+    UUID getTaskId();
+    String getSkillName();
+}
@@ -0,0 +1,12 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Текущий статус задачи, прочитанный с блокировкой строки перед пакетной сменой статусов
+ */
+public interface TaskStatusRow {
+    UUID getId();
+    UUID getProjectId();
+    String getStatus();
+}
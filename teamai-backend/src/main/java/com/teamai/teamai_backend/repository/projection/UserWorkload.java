@@ -0,0 +1,11 @@
+package com.teamai.teamai_backend.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Суммарная оценка часов по открытым задачам участника
+ */
+public interface UserWorkload {
+    UUID getUserId();
+    Long getOpenHours();
+}
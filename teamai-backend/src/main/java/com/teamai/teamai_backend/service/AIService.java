@@ -2,22 +2,56 @@ package com.teamai.teamai_backend.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.config.AiDistributionConfig;
+import com.teamai.teamai_backend.config.OpenAiConfig;
+import com.teamai.teamai_backend.exception.BadRequestException;
+import com.teamai.teamai_backend.exception.ConflictException;
+import com.teamai.teamai_backend.exception.ResourceNotFoundException;
+import com.teamai.teamai_backend.model.dto.response.DistributionPlanResponse;
+import com.teamai.teamai_backend.model.dto.response.TaskResponse;
 import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.TaskSkill;
 import com.teamai.teamai_backend.model.entity.User;
 import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
 import com.teamai.teamai_backend.repository.TaskRepository;
 import com.teamai.teamai_backend.repository.UserRepository;
 import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.projection.UserWorkload;
+import com.teamai.teamai_backend.service.ai.AiMetrics;
+import com.teamai.teamai_backend.service.ai.AiUsageTracker;
+import com.teamai.teamai_backend.service.ai.AssignmentEngine;
+import com.teamai.teamai_backend.service.ai.ChatResponseCache;
+import com.teamai.teamai_backend.service.ai.ChatSession;
+import com.teamai.teamai_backend.service.ai.ConversationMemory;
+import com.teamai.teamai_backend.service.ai.DistributionPlanStore;
+import com.teamai.teamai_backend.service.ai.IntentResponder;
+import com.teamai.teamai_backend.service.ai.KnowledgeIndex;
+import com.teamai.teamai_backend.service.ai.LlmClient;
+import com.teamai.teamai_backend.service.ai.LlmMessage;
+import com.teamai.teamai_backend.service.ai.LlmRequest;
+import com.teamai.teamai_backend.service.ai.LlmStream;
+import com.teamai.teamai_backend.service.ai.ProjectDistributionLock;
+import com.teamai.teamai_backend.service.ai.TaskStreamParser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.*;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,353 +59,869 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AIService {
     
+    private static final String CHAT_SYSTEM_PROMPT =
+            "Ты - AI ассистент TeamAI, помогающий с управлением проектами и задачами. " +
+            "Отвечай кратко и по делу на русском языке.";
+    
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final LlmClient llmClient;
+    private final AssignmentEngine assignmentEngine;
+    private final ChatResponseCache chatResponseCache;
+    private final IntentResponder intentResponder;
+    private final OpenAiConfig openAiConfig;
+    private final AiDistributionConfig aiDistributionConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProjectDistributionLock projectDistributionLock;
+    private final DistributionPlanStore distributionPlanStore;
+    private final AiUsageTracker aiUsageTracker;
+    private final AiMetrics aiMetrics;
+    private final KnowledgeIndex knowledgeIndex;
+    private final ConversationMemory conversationMemory;
+    private final TodayAgendaStore todayAgendaStore;
     
-    @Value("${openai.api.key:}")
-    private String openaiApiKey;
+    /**
+     * Распределения, которые сейчас выполняются на этом узле, по id проекта
+     */
+    private final Map<UUID, CompletableFuture<Map<String, Object>>> inFlightDistributions = new ConcurrentHashMap<>();
+    @Qualifier("aiExecutor")
+    private final Executor aiExecutor;
     
-    @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}")
-    private String openaiApiUrl;
+    /**
+     * AI Chat - общение с AI ассистентом.
+     * Предыдущие реплики разговора conversationId хранятся на сервере ({@link ConversationMemory})
+     * и попадают в промпт в пределах бюджета токенов.
+     *
+     * @param userId пользователь, на которого записываются токены OpenAI
+     */
+    public CompletableFuture<Map<String, Object>> chat(UUID userId, String conversationId, String message, String context) {
+        // Попытка использовать OpenAI
+        if (!llmClient.isConfigured()) {
+            log.warn("OpenAI key not configured, using fallback responses");
+            aiMetrics.recordFallback("chat", "not_configured");
+            // Fallback: умные ответы без OpenAI
+            return CompletableFuture.completedFuture(chatResult(conversationId, generateSmartResponse(message, context)));
+        }
+        
+        String related = describeRelated(knowledgeIndex.search(userId, message));
+        String answerContext = answerContext(context, related);
+        LlmRequest request = buildChatRequest(userId, conversationId, message, context, related,
+                openAiConfig.getLatencyBudget().getChat());
+        Optional<String> cached = chatResponseCache.get(request, message, answerContext);
+        if (cached.isPresent()) {
+            log.debug("Chat response served from cache");
+            conversationMemory.append(userId, conversationId, message, cached.get());
+            return CompletableFuture.completedFuture(chatResult(conversationId, cached.get()));
+        }
+        
+        log.info("Using OpenAI for chat with model: {}", openAiConfig.getModel());
+        
+        return llmClient.chat(request)
+                .thenApply(llmResponse -> {
+                    log.info("OpenAI responded successfully");
+                    aiUsageTracker.record(userId, llmResponse);
+                    String aiResponse = llmResponse.getContent();
+                    chatResponseCache.put(request, message, answerContext, aiResponse);
+                    conversationMemory.append(userId, conversationId, message, aiResponse);
+                    return chatResult(conversationId, aiResponse);
+                })
+                .exceptionally(e -> {
+                    log.error("Error calling OpenAI, using fallback: {}", rootMessage(e));
+                    aiMetrics.recordFallback("chat", AiMetrics.fallbackReason(e));
+                    // Fallback на случай ошибки OpenAI
+                    return chatResult(conversationId, generateSmartResponse(message, context));
+                });
+    }
     
-    @Value("${openai.model:gpt-4}")
-    private String openaiModel;
+    /**
+     * AI Chat в режиме стрима - дельты ответа передаются в onDelta по мере генерации.
+     * Fallback-ответ (нет ключа или OpenAI недоступен до первой дельты) отдается одним куском.
+     * В память разговора попадает только полный ответ модели.
+     */
+    public LlmStream chatStream(UUID userId, String conversationId, String message, String context,
+                                Consumer<String> onDelta) {
+        if (!llmClient.isConfigured()) {
+            log.warn("OpenAI key not configured, using fallback responses");
+            aiMetrics.recordFallback("chat_stream", "not_configured");
+            String response = generateSmartResponse(message, context);
+            onDelta.accept(response);
+            return LlmStream.completed(response);
+        }
+        
+        String related = describeRelated(knowledgeIndex.search(userId, message));
+        String answerContext = answerContext(context, related);
+        LlmRequest request = buildChatRequest(userId, conversationId, message, context, related,
+                openAiConfig.getLatencyBudget().getChatStream());
+        Optional<String> cached = chatResponseCache.get(request, message, answerContext);
+        if (cached.isPresent()) {
+            onDelta.accept(cached.get());
+            conversationMemory.append(userId, conversationId, message, cached.get());
+            return LlmStream.completed(cached.get());
+        }
+        
+        log.info("Using OpenAI for streaming chat with model: {}", openAiConfig.getModel());
+        
+        LlmStream stream = llmClient.stream(request, onDelta, () -> generateSmartResponse(message, context));
+        stream.completion().thenAccept(llmResponse -> {
+            aiUsageTracker.record(userId, llmResponse);
+            if (llmResponse.isFallback()) {
+                aiMetrics.recordFallback("chat_stream", llmResponse.getFallbackReason());
+            } else {
+                chatResponseCache.put(request, message, answerContext, llmResponse.getContent());
+                conversationMemory.append(userId, conversationId, message, llmResponse.getContent());
+            }
+        });
+        return stream;
+    }
     
-    @Value("${openai.max-tokens:2000}")
-    private int maxTokens;
+    private Map<String, Object> chatResult(String conversationId, String response) {
+        return Map.of(
+            "response", response,
+            "conversationId", conversationId,
+            "timestamp", new Date()
+        );
+    }
     
-    @Value("${openai.temperature:0.7}")
-    private double temperature;
+    private LlmRequest buildChatRequest(UUID userId, String conversationId, String message, String context,
+                                        String related, Duration budget) {
+        StringBuilder prompt = new StringBuilder();
+        if (context != null && !context.isEmpty()) {
+            prompt.append("Контекст: ").append(context).append("\n\n");
+        }
+        if (!related.isEmpty()) {
+            prompt.append("Связанные задачи и проекты пользователя:\n").append(related).append("\n");
+        }
+        String userPrompt = prompt.length() > 0
+            ? prompt.append("Вопрос: ").append(message).toString()
+            : message;
+        
+        return llmClient.defaultRequest()
+                .message(LlmMessage.system(CHAT_SYSTEM_PROMPT))
+                .messages(conversationMemory.load(userId, conversationId).toMessages())
+                .message(LlmMessage.user(userPrompt))
+                .timeout(budget)
+                .build();
+    }
     
     /**
-     * AI Chat - общение с AI ассистентом
+     * Всё, кроме вопроса, от чего зависит ответ без истории разговора - часть ключа кэша ответов
      */
-    public Map<String, Object> chat(String message, String context) {
-        try {
-            // Попытка использовать OpenAI
-            if (openaiApiKey != null && !openaiApiKey.isEmpty() && !openaiApiKey.equals("your-api-key-here")) {
-                log.info("Using OpenAI for chat with model: {}", openaiModel);
-                
-                String systemPrompt = "Ты - AI ассистент TeamAI, помогающий с управлением проектами и задачами. " +
-                        "Отвечай кратко и по делу на русском языке.";
-                
-                String userPrompt = context != null && !context.isEmpty() 
-                    ? String.format("Контекст: %s\n\nВопрос: %s", context, message)
-                    : message;
-                
-                String aiResponse = callOpenAI(systemPrompt, userPrompt);
-                log.info("OpenAI responded successfully");
-                
-                return Map.of(
-                    "response", aiResponse,
-                    "timestamp", new Date()
-                );
+    private String answerContext(String context, String related) {
+        return (context != null ? context : "") + '\u0000' + related;
+    }
+    
+    /**
+     * Найденные в KnowledgeIndex задачи и проекты - по строке на каждый
+     */
+    private String describeRelated(List<KnowledgeIndex.Hit> hits) {
+        StringBuilder related = new StringBuilder();
+        for (KnowledgeIndex.Hit hit : hits) {
+            if (hit.getKind() == KnowledgeIndex.Kind.TASK) {
+                related.append("- Задача \"").append(hit.getTitle()).append("\" (").append(hit.getStatus()).append(")");
             } else {
-                log.warn("OpenAI key not configured, using fallback responses");
-                // Fallback: умные ответы без OpenAI
-                return Map.of(
-                    "response", generateSmartResponse(message, context),
-                    "timestamp", new Date()
-                );
+                related.append("- Проект \"").append(hit.getTitle()).append("\"");
             }
-        } catch (Exception e) {
-            log.error("Error calling OpenAI, using fallback: {}", e.getMessage());
-            // Fallback на случай ошибки OpenAI
-            return Map.of(
-                "response", generateSmartResponse(message, context),
-                "timestamp", new Date()
-            );
+            if (!hit.getSnippet().isEmpty()) {
+                related.append(": ").append(hit.getSnippet());
+            }
+            related.append('\n');
         }
+        return related.toString();
     }
     
     /**
-     * Генерация умного ответа без OpenAI (fallback)
+     * Ответ без OpenAI (fallback): интенты из resources/ai/intents.json
      */
     private String generateSmartResponse(String message, String context) {
-        String lowerMessage = message.toLowerCase();
-        
-        // Анализ контекста задачи
-        if (context != null && !context.isEmpty()) {
-            if (lowerMessage.contains("как") && lowerMessage.contains("начать")) {
-                return "Рекомендую начать с анализа требований и планирования архитектуры. " +
-                       "Изучите описание задачи и определите основные этапы работы.";
-            }
-            if (lowerMessage.contains("дедлайн") || lowerMessage.contains("срок")) {
-                return "Проверьте дедлайн в деталях задачи. Распределите время так, чтобы " +
-                       "оставить 20% на тестирование и исправление ошибок.";
-            }
-            if (lowerMessage.contains("помощь") || lowerMessage.contains("помоги")) {
-                return "Я готов помочь! Вы можете:\n" +
-                       "- Уточнить требования к задаче\n" +
-                       "- Спланировать этапы выполнения\n" +
-                       "- Обсудить технические решения\n" +
-                       "Что именно вас интересует?";
+        return intentResponder.respond(message, context);
+    }
+    
+    /**
+     * AI Distribution - создание и распределение задач по команде.
+     *
+     * Параллельные вызовы по одному проекту (двойное нажатие, повтор клиента)
+     * присоединяются к уже идущему распределению и получают тот же результат.
+     * Между узлами распределение защищено advisory lock: если проект уже
+     * распределяется на другом узле, вызов завершается ConflictException.
+     *
+     * @param userId инициатор: на него записываются токены OpenAI, в том числе
+     *               когда к распределению присоединились другие вызовы
+     */
+    public CompletableFuture<Map<String, Object>> distributeTasks(UUID projectId, UUID userId) {
+        return coalesce(projectId, () -> doDistributeTasks(projectId, userId));
+    }
+    
+    /**
+     * Массовое распределение по нескольким проектам.
+     *
+     * Проекты с участниками и навыки загружаются двумя запросами на весь набор, текущая
+     * загрузка участников - одним. Одновременно идет не больше ai.distribution.bulk-concurrency
+     * распределений: завершение одного запускает следующее. Каждый проект проходит
+     * те же объединение параллельных вызовов и advisory lock, что и одиночный вызов;
+     * ошибка по проекту передается в listener и не влияет на остальные.
+     *
+     * @param listener вызывается по мере завершения проектов, из разных потоков
+     * @return завершается после результата по последнему проекту
+     */
+    public CompletableFuture<Void> distributeTasksBulk(List<UUID> projectIds, UUID userId,
+                                                       DistributionListener listener) {
+        long startedAt = System.nanoTime();
+        List<UUID> ids = List.copyOf(new LinkedHashSet<>(projectIds));
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<UUID, Project> projects = transactionTemplate.execute(status -> {
+            List<Project> loaded = projectRepository.findWithMembersByIdIn(ids);
+            List<UUID> userIds = loaded.stream()
+                    .flatMap(project -> project.getMembers().stream())
+                    .map(member -> member.getUser().getId())
+                    .distinct()
+                    .collect(Collectors.toList());
+            if (!userIds.isEmpty()) {
+                // Навыки попадают в те же экземпляры User в контексте персистентности
+                userRepository.findWithSkillsByIdIn(userIds);
             }
-            if (lowerMessage.contains("приоритет")) {
-                return "Сосредоточьтесь на задачах с высоким приоритетом. " +
-                       "Они критически важны для успеха проекта.";
+            return loaded.stream().collect(Collectors.toMap(Project::getId, project -> project));
+        });
+        // Без distinct: equals/hashCode сущностей User обходят коллекции
+        Map<UUID, User> membersById = new HashMap<>();
+        projects.values().forEach(project -> project.getMembers()
+                .forEach(member -> membersById.putIfAbsent(member.getUser().getId(), member.getUser())));
+        List<User> allMembers = new ArrayList<>(membersById.values());
+        Map<UUID, Long> openHours = allMembers.isEmpty() ? Map.of() : loadOpenHours(allMembers);
+        aiMetrics.recordStage(AiMetrics.Stage.LOAD, System.nanoTime() - startedAt);
+        log.info("Bulk task distribution for {} projects ({} found) requested by {}", ids.size(), projects.size(), userId);
+        
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(ids.size());
+        Runnable launchNext = new Runnable() {
+            @Override
+            public void run() {
+                int index = next.getAndIncrement();
+                if (index >= ids.size()) {
+                    return;
+                }
+                UUID projectId = ids.get(index);
+                CompletableFuture<Map<String, Object>> result;
+                try {
+                    Project project = projects.get(projectId);
+                    if (project == null) {
+                        throw new ResourceNotFoundException("Проект не найден");
+                    }
+                    List<User> members = project.getMembers().stream()
+                            .map(pm -> pm.getUser())
+                            .collect(Collectors.toList());
+                    result = coalesce(projectId, () -> distributeLoaded(project, members, openHours, userId,
+                            System.nanoTime()));
+                } catch (RuntimeException e) {
+                    result = CompletableFuture.failedFuture(e);
+                }
+                result.whenComplete((value, error) -> {
+                    try {
+                        listener.onResult(projectId, value, error != null ? unwrap(error) : null);
+                    } catch (RuntimeException e) {
+                        log.warn("Bulk distribution listener failed for project {}: {}", projectId, e.getMessage());
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        done.complete(null);
+                    } else {
+                        run();
+                    }
+                });
             }
+        };
+        int parallelism = Math.min(aiDistributionConfig.getBulkConcurrency(), ids.size());
+        for (int i = 0; i < parallelism; i++) {
+            launchNext.run();
         }
-        
-        // Общие вопросы о проектах
-        if (lowerMessage.contains("проект")) {
-            return "Для эффективного управления проектом:\n" +
-                   "1. Четко определите цели\n" +
-                   "2. Распределите задачи по навыкам\n" +
-                   "3. Отслеживайте прогресс регулярно\n" +
-                   "4. Общайтесь с командой";
+        return done;
+    }
+    
+    /**
+     * Результат распределения по одному проекту в массовом режиме: либо result, либо error
+     */
+    @FunctionalInterface
+    public interface DistributionListener {
+        void onResult(UUID projectId, Map<String, Object> result, Throwable error);
+    }
+    
+    /**
+     * Режим preview: план задач с исполнителями без записи в БД.
+     *
+     * План хранится ai.distribution.plan-ttl, {@link #commitDistributionPlan} записывает
+     * его без повторного вызова модели. Если модель недоступна или не вернула задач,
+     * план строится из шаблонных задач, как и при обычном распределении.
+     */
+    public CompletableFuture<DistributionPlanResponse> previewDistribution(UUID projectId, UUID userId) {
+        long startedAt = System.nanoTime();
+        Project project = loadProject(projectId);
+        List<User> teamMembers = project.getMembers().stream()
+                .map(pm -> pm.getUser())
+                .collect(Collectors.toList());
+        if (teamMembers.isEmpty()) {
+            throw new BadRequestException("В проекте нет участников");
         }
+        Map<UUID, Long> openHours = loadOpenHours(teamMembers);
+        aiMetrics.recordStage(AiMetrics.Stage.LOAD, System.nanoTime() - startedAt);
         
-        if (lowerMessage.contains("задач")) {
-            return "Создавайте конкретные, измеримые задачи. " +
-                   "Используйте AI распределение для оптимального назначения участников.";
+        if (!llmClient.isConfigured()) {
+            aiMetrics.recordFallback("distribution", "not_configured");
+            return CompletableFuture.supplyAsync(() -> templatePlan(project, teamMembers, openHours, userId,
+                    "План из автоматических задач"), aiExecutor);
         }
         
-        // Приветствия
-        if (lowerMessage.contains("привет") || lowerMessage.contains("здравствуй")) {
-            return "Привет! Я ваш AI помощник в управлении проектами. " +
-                   "Задайте мне любой вопрос о задачах, дедлайнах или планировании.";
-        }
+        long promptStartedAt = System.nanoTime();
+        LlmRequest request = buildDistributionRequest(project, teamMembers);
+        aiMetrics.recordStage(AiMetrics.Stage.PROMPT_BUILD, System.nanoTime() - promptStartedAt);
         
-        // Благодарности
-        if (lowerMessage.contains("спасибо") || lowerMessage.contains("благодар")) {
-            return "Рад помочь! Обращайтесь, если возникнут другие вопросы.";
+        return llmClient.chat(request).handleAsync((response, error) -> {
+            List<Task> tasks = new ArrayList<>();
+            List<String> preferred = new ArrayList<>();
+            if (error == null && !response.isFallback() && response.getContent() != null) {
+                aiUsageTracker.record(userId, response);
+                long parseStartedAt = System.nanoTime();
+                TaskStreamParser parser = new TaskStreamParser(objectMapper, taskNode -> {
+                    Task task = buildTask(project, taskNode);
+                    if (task == null) {
+                        aiMetrics.recordParseFailure("invalid_task");
+                        return;
+                    }
+                    tasks.add(task);
+                    preferred.add(taskNode.path("assignTo").asText(null));
+                });
+                parser.feed(response.getContent());
+                parser.finish();
+                aiMetrics.recordStage(AiMetrics.Stage.PARSE, System.nanoTime() - parseStartedAt);
+                if (parser.isFailed()) {
+                    aiMetrics.recordParseFailure("malformed_json");
+                }
+            }
+            
+            if (tasks.isEmpty()) {
+                if (error != null) {
+                    log.error("Error calling OpenAI for distribution preview: {}", rootMessage(error));
+                }
+                aiMetrics.recordFallback("distribution", error != null ? AiMetrics.fallbackReason(error) : "no_tasks");
+                return templatePlan(project, teamMembers, openHours, userId, error != null
+                        ? "План из автоматических задач (ошибка OpenAI)"
+                        : "План из автоматических задач (AI не вернул задач)");
+            }
+            
+            long assignStartedAt = System.nanoTime();
+            assignTasks(tasks, teamMembers, openHours, preferred);
+            aiMetrics.recordStage(AiMetrics.Stage.ASSIGNMENT, System.nanoTime() - assignStartedAt);
+            return storePlan(project, tasks, userId, "AI подготовил план распределения задач");
+        }, aiExecutor);
+    }
+    
+    public DistributionPlanResponse getDistributionPlan(UUID planId, UUID userId) {
+        return distributionPlanStore.find(planId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("План распределения не найден или истек"));
+    }
+    
+    /**
+     * Записывает план из preview: все задачи одним saveAll в одной транзакции, без вызова модели.
+     * При ошибке записи план возвращается в хранилище и его можно исправить и записать снова.
+     *
+     * @param assignees замена исполнителей: индекс задачи в плане -> участник проекта, может быть null
+     */
+    public Map<String, Object> commitDistributionPlan(UUID planId, UUID userId, Map<Integer, UUID> assignees) {
+        DistributionPlanResponse plan = getDistributionPlan(planId, userId);
+        Map<Integer, UUID> overrides = assignees != null ? assignees : Map.of();
+        overrides.forEach((index, assigneeId) -> {
+            if (index == null || index < 0 || index >= plan.getTasks().size() || assigneeId == null) {
+                throw new BadRequestException("Нет задачи с индексом " + index + " в плане");
+            }
+        });
+        // План забирается до записи: параллельный commit того же плана не создаст задачи дважды
+        distributionPlanStore.take(planId, userId)
+                .orElseThrow(() -> new ConflictException("План распределения уже записан"));
+        
+        List<UUID> taskIds;
+        try {
+            taskIds = transactionTemplate.execute(status -> {
+                Project project = projectRepository.findWithMembersByIdIn(List.of(plan.getProjectId())).stream()
+                        .findFirst()
+                        .orElseThrow(() -> new ResourceNotFoundException("Проект не найден"));
+                Map<UUID, User> members = new HashMap<>();
+                project.getMembers().forEach(pm -> members.put(pm.getUser().getId(), pm.getUser()));
+                
+                List<Task> tasks = new ArrayList<>(plan.getTasks().size());
+                for (int i = 0; i < plan.getTasks().size(); i++) {
+                    TaskResponse planned = plan.getTasks().get(i);
+                    User assignee = members.get(overrides.getOrDefault(i, planned.getAssignedToId()));
+                    if (assignee == null) {
+                        throw new BadRequestException("Исполнитель задачи \"" + planned.getTitle() + "\" не участник проекта");
+                    }
+                    tasks.add(fromPlannedTask(planned, project, assignee));
+                }
+                return saveTasks(tasks);
+            });
+        } catch (RuntimeException e) {
+            distributionPlanStore.save(userId, plan);
+            throw e;
         }
         
-        // Дефолтный ответ
-        return "Понял ваш вопрос. Могу предложить:\n" +
-               "- Проанализировать текущее состояние задачи\n" +
-               "- Дать рекомендации по планированию\n" +
-               "- Помочь с приоритизацией\n\n" +
-               "Уточните, что именно вас интересует?";
+        log.info("Committed distribution plan {} with {} tasks for project {}", planId, taskIds.size(), plan.getProjectId());
+        return Map.of(
+            "message", "План распределения записан",
+            "createdTasks", taskIds.size(),
+            "taskIds", taskIds
+        );
+    }
+    
+    private DistributionPlanResponse templatePlan(Project project, List<User> teamMembers, Map<UUID, Long> openHours,
+                                                  UUID userId, String message) {
+        List<Task> tasks = buildTemplateTasks(project);
+        assignTasks(tasks, teamMembers, openHours, null);
+        return storePlan(project, tasks, userId, message);
+    }
+    
+    private DistributionPlanResponse storePlan(Project project, List<Task> tasks, UUID userId, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        DistributionPlanResponse plan = DistributionPlanResponse.builder()
+                .planId(UUID.randomUUID())
+                .projectId(project.getId())
+                .message(message)
+                .tasks(tasks.stream().map(task -> toPlannedTask(project, task)).collect(Collectors.toList()))
+                .createdAt(now)
+                .expiresAt(now.plus(aiDistributionConfig.getPlanTtl()))
+                .build();
+        distributionPlanStore.save(userId, plan);
+        log.info("Prepared distribution plan {} with {} tasks for project {}", plan.getPlanId(), tasks.size(), project.getTitle());
+        return plan;
+    }
+    
+    private static TaskResponse toPlannedTask(Project project, Task task) {
+        return TaskResponse.builder()
+                .projectId(project.getId())
+                .projectTitle(project.getTitle())
+                .title(task.getTitle())
+                .description(task.getDescription())
+                .assignedToId(task.getAssignedTo().getId())
+                .assignedToName(task.getAssignedToName())
+                .deadline(task.getDeadline())
+                .status(task.getStatus())
+                .priority(task.getPriority())
+                .aiReasoning(task.getAiReasoning())
+                .requiredSkills(task.getRequiredSkills().stream().map(TaskSkill::getSkillName).collect(Collectors.toList()))
+                .estimatedHours(task.getEstimatedHours())
+                .build();
+    }
+    
+    private static Task fromPlannedTask(TaskResponse planned, Project project, User assignee) {
+        Task task = new Task();
+        task.setTitle(planned.getTitle());
+        task.setDescription(planned.getDescription());
+        task.setProject(project);
+        task.setStatus(TaskStatus.TODO);
+        task.setPriority(planned.getPriority());
+        task.setDeadline(planned.getDeadline());
+        task.setEstimatedHours(planned.getEstimatedHours());
+        task.setAiReasoning(planned.getAiReasoning());
+        task.setAssignedTo(assignee);
+        task.setAssignedToName(assignee.getName());
+        List<TaskSkill> requiredSkills = new ArrayList<>();
+        for (String skillName : planned.getRequiredSkills()) {
+            requiredSkills.add(TaskSkill.builder().task(task).skillName(skillName).build());
+        }
+        task.setRequiredSkills(requiredSkills);
+        return task;
     }
     
     /**
-     * AI Distribution - создание и распределение задач по команде
+     * Параллельные вызовы по одному проекту присоединяются к уже идущему распределению
      */
-    public Map<String, Object> distributeTasks(UUID projectId) {
-        Project project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new RuntimeException("Проект не найден"));
+    private CompletableFuture<Map<String, Object>> coalesce(UUID projectId,
+                                                            Supplier<CompletableFuture<Map<String, Object>>> distribution) {
+        CompletableFuture<Map<String, Object>> flight = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlightDistributions.putIfAbsent(projectId, flight);
+        if (existing != null) {
+            log.info("Joining in-flight task distribution for project {}", projectId);
+            // copy: отмена у одного вызывающего не должна отменять общее распределение
+            return existing.copy();
+        }
+        
+        try {
+            runExclusive(projectId, distribution).whenComplete((result, error) -> {
+                // Сначала убираем из карты: вызов после завершения запускает новое распределение
+                inFlightDistributions.remove(projectId, flight);
+                if (error != null) {
+                    flight.completeExceptionally(error);
+                } else {
+                    flight.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightDistributions.remove(projectId, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        return flight.copy();
+    }
+    
+    private CompletableFuture<Map<String, Object>> runExclusive(UUID projectId,
+                                                                Supplier<CompletableFuture<Map<String, Object>>> distribution) {
+        ProjectDistributionLock.Lease lease = projectDistributionLock.tryAcquire(projectId)
+                .orElseThrow(() -> new ConflictException("Распределение задач по проекту уже выполняется"));
+        try {
+            return distribution.get().whenComplete((result, error) -> lease.close());
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+    
+    private CompletableFuture<Map<String, Object>> doDistributeTasks(UUID projectId, UUID userId) {
+        long startedAt = System.nanoTime();
+        Project project = loadProject(projectId);
         
         // Получить всех участников проекта
-        Set<User> teamMembers = project.getMembers().stream()
+        List<User> teamMembers = project.getMembers().stream()
                 .map(pm -> pm.getUser())
-                .collect(Collectors.toSet());
+                .collect(Collectors.toList());
+        
+        // Текущая загрузка участников - для балансировки при назначении
+        Map<UUID, Long> openHours = teamMembers.isEmpty() ? Map.of() : loadOpenHours(teamMembers);
+        aiMetrics.recordStage(AiMetrics.Stage.LOAD, System.nanoTime() - startedAt);
         
+        return distributeLoaded(project, teamMembers, openHours, userId, startedAt);
+    }
+    
+    /**
+     * Проект, участники и их навыки загружаются в отдельной транзакции:
+     * метод вызывается и из HTTP запросов, и из фоновых задач без открытой сессии
+     */
+    private Project loadProject(UUID projectId) {
+        return transactionTemplate.execute(status -> {
+            Project loaded = projectRepository.findById(projectId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Проект не найден"));
+            loaded.getMembers().forEach(pm -> pm.getUser().getSkills().size());
+            return loaded;
+        });
+    }
+    
+    /**
+     * Распределение по уже загруженному проекту (участники с навыками, их текущая загрузка)
+     */
+    private CompletableFuture<Map<String, Object>> distributeLoaded(Project project, List<User> teamMembers,
+                                                                    Map<UUID, Long> openHours, UUID userId,
+                                                                    long startedAt) {
         if (teamMembers.isEmpty()) {
-            return Map.of(
+            return CompletableFuture.completedFuture(Map.of(
                 "message", "В проекте нет участников",
-                "createdTasks", 0
-            );
+                "createdTasks", 0,
+                "taskIds", List.of()
+            ));
         }
         
-        try {
-            // Проверка наличия OpenAI ключа
-            if (openaiApiKey != null && !openaiApiKey.isEmpty() && !openaiApiKey.equals("your-api-key-here")) {
-                log.info("Using OpenAI ({}) to create and distribute tasks for project: {}", openaiModel, project.getTitle());
-                
-                // Создать промпт для AI для генерации задач
-                String systemPrompt = "Ты - AI система для создания и распределения задач в проектах. " +
-                        "Анализируй описание проекта, навыки участников и создавай конкретные задачи с дедлайнами.";
-                
-                String teamInfo = teamMembers.stream()
-                        .map(u -> String.format("- %s (%s, Опыт: %d лет, Навыки: %s)",
-                                u.getName(),
-                                u.getRole(),
-                                u.getExperienceYears() != null ? u.getExperienceYears() : 0,
-                                u.getSkills().stream().map(s -> s.getSkillName()).collect(Collectors.joining(", "))))
-                        .collect(Collectors.joining("\n"));
-                
-                String userPrompt = String.format(
-                        "Проект: %s\nОписание: %s\nКатегория: %s\nСрок: с %s до %s\n\nКоманда:\n%s\n\n" +
-                        "Создай 5-7 конкретных задач для этого проекта на основе его описания. " +
-                        "Распредели их между участниками команды учитывая их навыки. " +
-                        "Важно: Ответь ТОЛЬКО JSON массивом, без дополнительного текста:\n" +
-                        "[{\"title\": \"название задачи\", \"description\": \"подробное описание задачи\", \"assignTo\": \"имя участника\", " +
-                        "\"priority\": \"HIGH\", \"daysFromStart\": 7}]\n\n" +
-                        "Где priority может быть HIGH, MEDIUM или LOW.\n" +
-                        "daysFromStart - количество дней от начала проекта до дедлайна задачи (распредели равномерно).",
-                        project.getTitle(),
-                        project.getDescription(),
-                        project.getCategory(),
-                        project.getStartDate(),
-                        project.getDeadline(),
-                        teamInfo
-                );
-                
-                String aiResponse = callOpenAI(systemPrompt, userPrompt);
-                log.info("OpenAI responded with task distribution");
-                
-                // Создать и распределить задачи на основе AI ответа
-                int createdCount = createAndAssignTasks(project, teamMembers, aiResponse);
-                
-                return Map.of(
-                    "message", "AI создал и распределил задачи",
-                    "createdTasks", createdCount,
-                    "aiReasoning", aiResponse
-                );
-            } else {
-                log.warn("OpenAI key not configured, using automatic task creation");
-                // Fallback: создать шаблонные задачи
-                List<User> membersList = new ArrayList<>(teamMembers);
-                int createdCount = createTemplateTasks(project, membersList);
-                return Map.of(
+        // Проверка наличия OpenAI ключа
+        if (!llmClient.isConfigured()) {
+            log.warn("OpenAI key not configured, using automatic task creation");
+            aiMetrics.recordFallback("distribution", "not_configured");
+            // Fallback: создать шаблонные задачи
+            return CompletableFuture.supplyAsync(() -> {
+                List<UUID> taskIds = createTemplateTasks(project, teamMembers, openHours);
+                aiMetrics.recordDistribution("template", System.nanoTime() - startedAt);
+                return Map.<String, Object>of(
                     "message", "Созданы автоматические задачи",
-                    "createdTasks", createdCount
+                    "createdTasks", taskIds.size(),
+                    "taskIds", taskIds
                 );
-            }
-            
-        } catch (Exception e) {
-            log.error("Error calling OpenAI for task distribution: {}", e.getMessage());
-            // Fallback: создать шаблонные задачи
-            List<User> membersList = new ArrayList<>(teamMembers);
-            int createdCount = createTemplateTasks(project, membersList);
-            return Map.of(
-                "message", "Созданы автоматические задачи (ошибка OpenAI)",
-                "createdTasks", createdCount
-            );
+            }, aiExecutor);
         }
+        
+        log.info("Using OpenAI ({}) to create and distribute tasks for project: {}", openAiConfig.getModel(), project.getTitle());
+        long promptStartedAt = System.nanoTime();
+        LlmRequest request = buildDistributionRequest(project, teamMembers);
+        
+        // Задачи разбираются из потока ответа и записываются пачками, пока модель еще генерирует
+        StreamedTaskWriter writer = new StreamedTaskWriter(project, teamMembers, openHours);
+        TaskStreamParser parser = new TaskStreamParser(objectMapper, writer::accept);
+        aiMetrics.recordStage(AiMetrics.Stage.PROMPT_BUILD, System.nanoTime() - promptStartedAt);
+        
+        // Дельты приходят по одной, но из разных потоков HTTP клиента
+        LongAdder parseNanos = new LongAdder();
+        Consumer<String> onDelta = delta -> {
+            long parseStartedAt = System.nanoTime();
+            parser.feed(delta);
+            parseNanos.add(System.nanoTime() - parseStartedAt);
+        };
+        
+        return llmClient.streamDeltas(request, onDelta).completion()
+                .handle((response, error) -> {
+                    long finishStartedAt = System.nanoTime();
+                    parser.finish();
+                    aiMetrics.recordStage(AiMetrics.Stage.PARSE, parseNanos.sum() + System.nanoTime() - finishStartedAt);
+                    if (parser.isFailed()) {
+                        aiMetrics.recordParseFailure("malformed_json");
+                    }
+                    aiUsageTracker.record(userId, response);
+                    return Optional.ofNullable(error);
+                })
+                .thenCompose(error -> writer.finish().handleAsync((ignored, writeError) -> {
+                    List<UUID> taskIds = writer.getTaskIds();
+                    Throwable failure = error.orElse(writeError);
+                    writer.recordStages();
+                    
+                    if (taskIds.isEmpty()) {
+                        if (failure != null) {
+                            log.error("Error calling OpenAI for task distribution: {}", rootMessage(failure));
+                        } else {
+                            log.warn("OpenAI response contained no tasks, falling back to template tasks");
+                        }
+                        aiMetrics.recordFallback("distribution",
+                                failure != null ? AiMetrics.fallbackReason(failure) : "no_tasks");
+                        // Fallback: создать шаблонные задачи
+                        List<UUID> templateIds = createTemplateTasks(project, teamMembers, openHours);
+                        aiMetrics.recordDistribution("template", System.nanoTime() - startedAt);
+                        return Map.<String, Object>of(
+                            "message", failure != null
+                                    ? "Созданы автоматические задачи (ошибка OpenAI)"
+                                    : "Созданы автоматические задачи (AI не вернул задач)",
+                            "createdTasks", templateIds.size(),
+                            "taskIds", templateIds
+                        );
+                    }
+                    
+                    if (failure != null) {
+                        // Часть задач уже записана - не дублируем их шаблонными
+                        log.error("OpenAI stream interrupted after {} tasks: {}", taskIds.size(), rootMessage(failure));
+                        aiMetrics.recordDistribution("partial", System.nanoTime() - startedAt);
+                        return Map.<String, Object>of(
+                            "message", "AI создал часть задач (ответ прерван)",
+                            "createdTasks", taskIds.size(),
+                            "taskIds", taskIds
+                        );
+                    }
+                    
+                    log.info("OpenAI created {} tasks for project {}", taskIds.size(), project.getTitle());
+                    aiMetrics.recordDistribution("ai", System.nanoTime() - startedAt);
+                    return Map.<String, Object>of(
+                        "message", "AI создал и распределил задачи",
+                        "createdTasks", taskIds.size(),
+                        "taskIds", taskIds
+                    );
+                }, aiExecutor));
     }
     
     /**
-     * Вызов OpenAI API
+     * Запрос к модели на генерацию задач проекта с учетом навыков команды
      */
-    private String callOpenAI(String systemPrompt, String userPrompt) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(openaiApiKey);
-            
-            Map<String, Object> requestBody = Map.of(
-                "model", openaiModel,
-                "messages", List.of(
-                    Map.of("role", "system", "content", systemPrompt),
-                    Map.of("role", "user", "content", userPrompt)
-                ),
-                "temperature", temperature,
-                "max_tokens", maxTokens
-            );
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            ResponseEntity<Map> response = restTemplate.exchange(
-                openaiApiUrl,
-                HttpMethod.POST,
-                request,
-                Map.class
-            );
-            
-            Map<String, Object> responseBody = response.getBody();
-            if (responseBody != null && responseBody.containsKey("choices")) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
-                if (!choices.isEmpty()) {
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    String content = (String) message.get("content");
-                    
-                    if (content != null && !content.isEmpty()) {
-                        return content;
-                    }
-                }
+    private LlmRequest buildDistributionRequest(Project project, List<User> teamMembers) {
+        // Создать промпт для AI для генерации задач
+        String systemPrompt = "Ты - AI система для создания и распределения задач в проектах. " +
+                "Анализируй описание проекта, навыки участников и создавай конкретные задачи с дедлайнами.";
+        
+        String teamInfo = teamMembers.stream()
+                .map(u -> String.format("- %s (%s, Опыт: %d лет, Навыки: %s)",
+                        u.getName(),
+                        u.getRole(),
+                        u.getExperienceYears() != null ? u.getExperienceYears() : 0,
+                        u.getSkills().stream().map(s -> s.getSkillName()).collect(Collectors.joining(", "))))
+                .collect(Collectors.joining("\n"));
+        
+        String userPrompt = String.format(
+                "Проект: %s\nОписание: %s\nКатегория: %s\nСрок: с %s до %s\n\nКоманда:\n%s\n\n" +
+                "Создай 5-7 конкретных задач для этого проекта на основе его описания. " +
+                "Распредели их между участниками команды учитывая их навыки. " +
+                "Важно: Ответь ТОЛЬКО JSON массивом, без дополнительного текста:\n" +
+                "[{\"title\": \"название задачи\", \"description\": \"подробное описание задачи\", \"assignTo\": \"имя участника\", " +
+                "\"priority\": \"HIGH\", \"daysFromStart\": 7, \"estimatedHours\": 16, \"requiredSkills\": [\"навык\"]}]\n\n" +
+                "Где priority может быть HIGH, MEDIUM или LOW.\n" +
+                "estimatedHours - оценка трудоемкости задачи в часах.\n" +
+                "daysFromStart - количество дней от начала проекта до дедлайна задачи (распредели равномерно).",
+                project.getTitle(),
+                project.getDescription(),
+                project.getCategory(),
+                project.getStartDate(),
+                project.getDeadline(),
+                teamInfo
+        );
+        
+        return llmClient.defaultRequest()
+                .message(LlmMessage.system(systemPrompt))
+                .message(LlmMessage.user(userPrompt))
+                .timeout(openAiConfig.getLatencyBudget().getDistribution())
+                .build();
+    }
+    
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+    
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+    
+    /**
+     * Запись задач из потока ответа модели: каждая задача назначается с учетом
+     * уже назначенных в aiExecutor и копится в буфере, буфер пишется через saveTasks
+     * (saveAll с JDBC батчингом, одно изменение счетчиков) каждые stream-flush-size задач
+     * или stream-flush-interval, остаток - в {@link #finish}. Шаги выполняются строго
+     * по очереди, поэтому load, pending и taskIds не требуют синхронизации.
+     */
+    private class StreamedTaskWriter {
+        
+        private final Project project;
+        private final List<User> members;
+        private final Map<UUID, Long> load;
+        private final List<UUID> taskIds = new ArrayList<>();
+        private final List<Task> pending = new ArrayList<>();
+        private long lastFlushAt = System.nanoTime();
+        private CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        private long assignmentNanos;
+        private long persistenceNanos;
+        
+        StreamedTaskWriter(Project project, List<User> members, Map<UUID, Long> openHours) {
+            this.project = project;
+            this.members = members;
+            this.load = new HashMap<>(openHours);
+        }
+        
+        /**
+         * Вызывается парсером в потоке HTTP клиента - только разбор, запись уходит в aiExecutor
+         */
+        void accept(JsonNode taskNode) {
+            Task task = buildTask(project, taskNode);
+            if (task == null) {
+                aiMetrics.recordParseFailure("invalid_task");
+                return;
+            }
+            // Имя от модели - предпочтение для AssignmentEngine, а не жесткое назначение
+            String preferred = taskNode.path("assignTo").asText(null);
+            written = written.thenRunAsync(() -> assign(task, preferred), aiExecutor);
+        }
+        
+        /**
+         * Дописывает буфер после конца потока; результат завершается, когда записаны все задачи
+         */
+        CompletableFuture<Void> finish() {
+            written = written.thenRunAsync(this::flush, aiExecutor);
+            return written;
+        }
+        
+        List<UUID> getTaskIds() {
+            return List.copyOf(taskIds);
+        }
+        
+        /**
+         * Суммарное время назначения и записи задач - после завершения written()
+         */
+        void recordStages() {
+            if (!taskIds.isEmpty()) {
+                aiMetrics.recordStage(AiMetrics.Stage.ASSIGNMENT, assignmentNanos);
+                aiMetrics.recordStage(AiMetrics.Stage.PERSISTENCE, persistenceNanos);
             }
+        }
+        
+        private void assign(Task task, String preferred) {
+            long assignStartedAt = System.nanoTime();
+            User assignee = assignmentEngine.assign(members, load, List.of(task),
+                    Collections.singletonList(preferred)).get(0);
+            task.setAssignedTo(assignee);
+            task.setAssignedToName(assignee.getName());
+            load.merge(assignee.getId(), (long) AssignmentEngine.hoursOf(task), Long::sum);
+            assignmentNanos += System.nanoTime() - assignStartedAt;
+            log.info("Assigned task from GPT-4: {} to {}", task.getTitle(), assignee.getName());
             
-            throw new RuntimeException("Пустой ответ от OpenAI");
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка вызова OpenAI: " + e.getMessage(), e);
+            pending.add(task);
+            long sinceFlush = System.nanoTime() - lastFlushAt;
+            if (pending.size() >= aiDistributionConfig.getStreamFlushSize()
+                    || sinceFlush >= aiDistributionConfig.getStreamFlushInterval().toNanos()) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            lastFlushAt = System.nanoTime();
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Task> batch = List.copyOf(pending);
+            pending.clear();
+            taskIds.addAll(saveTasks(batch));
+            persistenceNanos += System.nanoTime() - lastFlushAt;
         }
     }
     
     /**
-     * Создать и назначить задачи на основе AI ответа
+     * Задача из JSON объекта модели (без исполнителя), null если объект некорректен
      */
-    private int createAndAssignTasks(Project project, Set<User> teamMembers, String aiResponse) {
-        int createdCount = 0;
-        List<User> membersList = new ArrayList<>(teamMembers);
-        ObjectMapper mapper = new ObjectMapper();
-        
+    private Task buildTask(Project project, JsonNode taskNode) {
         try {
-            // Очистить ответ от markdown форматирования если есть
-            String cleanJson = aiResponse.trim();
-            if (cleanJson.startsWith("```json")) {
-                cleanJson = cleanJson.substring(7);
-            }
-            if (cleanJson.startsWith("```")) {
-                cleanJson = cleanJson.substring(3);
+            String title = taskNode.get("title").asText();
+            String description = taskNode.get("description").asText();
+            String priorityStr = taskNode.path("priority").asText("MEDIUM");
+            int daysFromStart = taskNode.path("daysFromStart").asInt(7);
+            
+            // Создать задачу
+            Task task = new Task();
+            task.setTitle(title);
+            task.setDescription(description);
+            task.setProject(project);
+            task.setStatus(com.teamai.teamai_backend.model.enums.TaskStatus.TODO);
+            if (taskNode.path("estimatedHours").asInt(0) > 0) {
+                task.setEstimatedHours(taskNode.get("estimatedHours").asInt());
             }
-            if (cleanJson.endsWith("```")) {
-                cleanJson = cleanJson.substring(0, cleanJson.length() - 3);
+            
+            // Приоритет
+            try {
+                task.setPriority(com.teamai.teamai_backend.model.enums.TaskPriority.valueOf(priorityStr));
+            } catch (Exception e) {
+                task.setPriority(com.teamai.teamai_backend.model.enums.TaskPriority.MEDIUM);
             }
-            cleanJson = cleanJson.trim();
             
-            log.info("Parsing GPT-4 response: {}", cleanJson);
+            // Дедлайн
+            java.time.LocalDate deadlineDate = project.getStartDate().plusDays(daysFromStart);
+            java.time.LocalDateTime deadline = deadlineDate.atTime(23, 59);
+            task.setDeadline(deadline);
             
-            // Парсим JSON массив задач от GPT-4
-            JsonNode tasksNode = mapper.readTree(cleanJson);
+            task.setAiReasoning("Создано GPT-4 на основе анализа проекта и навыков команды");
             
-            if (tasksNode.isArray()) {
-                for (JsonNode taskNode : tasksNode) {
-                    try {
-                        String title = taskNode.get("title").asText();
-                        String description = taskNode.get("description").asText();
-                        String assignToName = taskNode.get("assignTo").asText();
-                        String priorityStr = taskNode.get("priority").asText("MEDIUM");
-                        int daysFromStart = taskNode.get("daysFromStart").asInt(7);
-                        
-                        // Найти участника по имени
-                        User assignee = membersList.stream()
-                                .filter(u -> u.getName().equalsIgnoreCase(assignToName))
-                                .findFirst()
-                                .orElse(membersList.get(createdCount % membersList.size())); // Fallback
-                        
-                        // Создать задачу
-                        Task task = new Task();
-                        task.setTitle(title);
-                        task.setDescription(description);
-                        task.setProject(project);
-                        task.setAssignedTo(assignee);
-                        task.setAssignedToName(assignee.getName());
-                        task.setStatus(com.teamai.teamai_backend.model.enums.TaskStatus.TODO);
-                        
-                        // Приоритет
-                        try {
-                            task.setPriority(com.teamai.teamai_backend.model.enums.TaskPriority.valueOf(priorityStr));
-                        } catch (Exception e) {
-                            task.setPriority(com.teamai.teamai_backend.model.enums.TaskPriority.MEDIUM);
-                        }
-                        
-                        // Дедлайн
-                        java.time.LocalDate deadlineDate = project.getStartDate().plusDays(daysFromStart);
-                        java.time.LocalDateTime deadline = deadlineDate.atTime(23, 59);
-                        task.setDeadline(deadline);
-                        
-                        task.setAiReasoning("Создано GPT-4 на основе анализа проекта и навыков команды");
-                        
-                        taskRepository.save(task);
-                        createdCount++;
-                        log.info("Created task from GPT-4: {} for {}", title, assignee.getName());
-                        
-                    } catch (Exception e) {
-                        log.error("Error parsing task from GPT-4 response: {}", e.getMessage());
-                    }
+            // Требуемые навыки - дочерние строки, пишутся каскадом вместе с задачей
+            List<TaskSkill> requiredSkills = new ArrayList<>();
+            for (JsonNode skillNode : taskNode.path("requiredSkills")) {
+                if (!skillNode.asText().isBlank()) {
+                    requiredSkills.add(TaskSkill.builder()
+                            .task(task)
+                            .skillName(skillNode.asText().trim())
+                            .build());
                 }
             }
+            task.setRequiredSkills(requiredSkills);
+            return task;
             
         } catch (Exception e) {
-            log.error("Error parsing GPT-4 JSON response: {}", e.getMessage());
-            log.info("Falling back to template tasks");
-            // Fallback: создать шаблонные задачи
-            return createTemplateTasks(project, membersList);
+            log.error("Error parsing task from GPT-4 response: {}", e.getMessage());
+            return null;
         }
-        
-        return createdCount;
     }
     
     /**
      * Создать шаблонные задачи (fallback)
      */
-    private int createTemplateTasks(Project project, List<User> membersList) {
-        int createdCount = 0;
+    private List<UUID> createTemplateTasks(Project project, List<User> membersList, Map<UUID, Long> openHours) {
+        List<Task> tasks = buildTemplateTasks(project);
+        
+        long assignStartedAt = System.nanoTime();
+        assignTasks(tasks, membersList, openHours, null);
+        long saveStartedAt = System.nanoTime();
+        aiMetrics.recordStage(AiMetrics.Stage.ASSIGNMENT, saveStartedAt - assignStartedAt);
+        List<UUID> taskIds = saveTasks(tasks);
+        aiMetrics.recordStage(AiMetrics.Stage.PERSISTENCE, System.nanoTime() - saveStartedAt);
+        return taskIds;
+    }
+    
+    /**
+     * Шаблонные задачи проекта без исполнителей
+     */
+    private List<Task> buildTemplateTasks(Project project) {
+        List<Task> tasks = new ArrayList<>();
         String[] taskTemplates = {
             "Анализ требований проекта",
             "Проектирование архитектуры",
@@ -379,6 +929,13 @@ public class AIService {
             "Тестирование и отладка",
             "Документация и деплой"
         };
+        List<List<String>> templateSkills = List.of(
+            List.of("Аналитика"),
+            List.of("Архитектура", "Java", "Node.js"),
+            List.of("Flutter", "Dart", "React", "Java", "Python"),
+            List.of("Тестирование", "QA"),
+            List.of("DevOps", "Docker")
+        );
         
         long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(project.getStartDate(), project.getDeadline());
         long daysPerTask = daysBetween / taskTemplates.length;
@@ -390,20 +947,66 @@ public class AIService {
             task.setProject(project);
             task.setPriority(com.teamai.teamai_backend.model.enums.TaskPriority.MEDIUM);
             task.setStatus(com.teamai.teamai_backend.model.enums.TaskStatus.TODO);
+            task.setEstimatedHours(Math.max(AssignmentEngine.DEFAULT_TASK_HOURS, (int) daysPerTask * 4));
             
-            User assignee = membersList.get(i % membersList.size());
-            task.setAssignedTo(assignee);
-            task.setAssignedToName(assignee.getName());
+            List<TaskSkill> requiredSkills = new ArrayList<>();
+            for (String skillName : templateSkills.get(i)) {
+                requiredSkills.add(TaskSkill.builder().task(task).skillName(skillName).build());
+            }
+            task.setRequiredSkills(requiredSkills);
             
             java.time.LocalDate deadlineDate = project.getStartDate().plusDays(daysPerTask * (i + 1));
             java.time.LocalDateTime deadline = deadlineDate.atTime(23, 59);
             task.setDeadline(deadline);
             
-            taskRepository.save(task);
-            createdCount++;
+            tasks.add(task);
         }
-        
-        return createdCount;
+        return tasks;
+    }
+    
+    /**
+     * Назначить исполнителей по навыкам и загрузке (детерминированно, без вызова AI)
+     */
+    private void assignTasks(List<Task> tasks, List<User> membersList,
+                             Map<UUID, Long> openHours, List<String> preferredAssignees) {
+        List<User> assignees = assignmentEngine.assign(membersList, openHours, tasks, preferredAssignees);
+        for (int i = 0; i < tasks.size(); i++) {
+            User assignee = assignees.get(i);
+            tasks.get(i).setAssignedTo(assignee);
+            tasks.get(i).setAssignedToName(assignee.getName());
+            log.info("Assigned task '{}' to {}", tasks.get(i).getTitle(), assignee.getName());
+        }
+    }
+    
+    private Map<UUID, Long> loadOpenHours(List<User> members) {
+        List<UUID> userIds = members.stream().map(User::getId).collect(Collectors.toList());
+        return taskRepository.sumOpenHoursByAssignee(
+                        userIds,
+                        List.of(TaskStatus.TODO, TaskStatus.IN_PROGRESS),
+                        AssignmentEngine.DEFAULT_TASK_HOURS)
+                .stream()
+                .collect(Collectors.toMap(UserWorkload::getUserId, UserWorkload::getOpenHours));
+    }
+    
+    /**
+     * Все сгенерированные задачи пишутся одним saveAll в одной транзакции.
+     * UUID генерируется приложением, поэтому persist не требует немедленного INSERT,
+     * и при hibernate.jdbc.batch_size + order_inserts задачи и их навыки уходят батчами.
+     * Счетчики задач проекта увеличиваются в той же транзакции.
+     */
+    private List<UUID> saveTasks(List<Task> tasks) {
+        return transactionTemplate.execute(status -> {
+            List<Task> saved = taskRepository.saveAll(tasks);
+            saved.forEach(knowledgeIndex::indexTask);
+            // Сброс повесток - после коммита (TodayAgendaStore), иначе повестку перестроят без новых задач
+            todayAgendaStore.evictFor(saved);
+            saved.stream()
+                    .collect(Collectors.groupingBy(task -> task.getProject().getId(), Collectors.counting()))
+                    .forEach((projectId, count) -> projectRepository.adjustTaskCounters(projectId, count.intValue(), 0));
+            return saved.stream()
+                    .map(Task::getId)
+                    .collect(Collectors.toList());
+        });
     }
     
 }
@@ -0,0 +1,296 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.config.AiJobConfig;
+import com.teamai.teamai_backend.exception.ResourceNotFoundException;
+import com.teamai.teamai_backend.model.dto.response.AiJobResponse;
+import com.teamai.teamai_backend.model.entity.AiJob;
+import com.teamai.teamai_backend.model.enums.AiJobStatus;
+import com.teamai.teamai_backend.repository.AiJobRepository;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Фоновые задачи AI распределения: POST сразу возвращает id задачи,
+ * распределение выполняется в ограниченном пуле aiJobExecutor.
+ *
+ * Повторный POST с тем же Idempotency-Key того же пользователя (или пока по проекту
+ * есть незавершенная задача) возвращает существующую задачу, а не создает дубли.
+ * Задачу видят ее автор и участники проекта, для остальных она не найдена.
+ *
+ * Задачу держит один инстанс (owner_instance) и раз в heartbeat-interval продлевает аренду.
+ * Переход QUEUED -> RUNNING - условный UPDATE, поэтому задачу выполняет один исполнитель.
+ * Задачи с истекшей арендой (инстанс упал) подбирает любой инстанс: RUNNING завершаются
+ * с ошибкой, QUEUED ставятся в его очередь.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiJobService {
+
+    private static final List<AiJobStatus> ACTIVE_STATUSES = List.of(AiJobStatus.QUEUED, AiJobStatus.RUNNING);
+
+    private final AiJobRepository aiJobRepository;
+    private final ProjectRepository projectRepository;
+    private final AIService aiService;
+    private final AiJobConfig aiJobConfig;
+    @Qualifier("aiJobExecutor")
+    private final Executor aiJobExecutor;
+
+    private final Map<UUID, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    /**
+     * Задачи в очереди или в работе на этом инстансе - для них продлевается аренда
+     */
+    private final Set<UUID> ownedJobs = ConcurrentHashMap.newKeySet();
+    private String instanceId;
+    
+    @PostConstruct
+    void resolveInstanceId() {
+        String configured = aiJobConfig.getInstanceId();
+        instanceId = configured != null && !configured.isBlank() ? configured : hostName();
+        log.info("AI jobs are owned by instance {}", instanceId);
+    }
+
+    public AiJobResponse submitDistribution(UUID projectId, UUID userId, String idempotencyKey) {
+        // Дальше активная задача проекта отдается вызывающему - он должен видеть проект
+        if (!projectRepository.isVisibleTo(projectId, userId)) {
+            throw new ResourceNotFoundException("Проект не найден");
+        }
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            Optional<AiJob> existing = aiJobRepository.findByRequestedByAndIdempotencyKey(userId, idempotencyKey);
+            if (existing.isPresent()) {
+                return mapToJobResponse(existing.get());
+            }
+        }
+
+        Optional<AiJob> active = aiJobRepository
+                .findFirstByProjectIdAndStatusInOrderByCreatedAtDesc(projectId, ACTIVE_STATUSES);
+        if (active.isPresent()) {
+            log.info("Distribution job {} already active for project {}", active.get().getId(), projectId);
+            return mapToJobResponse(active.get());
+        }
+
+        AiJob job = AiJob.builder()
+                .projectId(projectId)
+                .requestedBy(userId)
+                .idempotencyKey(idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey : null)
+                .status(AiJobStatus.QUEUED)
+                .ownerInstance(instanceId)
+                .heartbeatAt(LocalDateTime.now())
+                .build();
+        try {
+            job = aiJobRepository.saveAndFlush(job);
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный повтор с тем же ключом успел создать задачу
+            return aiJobRepository.findByRequestedByAndIdempotencyKey(userId, idempotencyKey)
+                    .map(this::mapToJobResponse)
+                    .orElseThrow(() -> e);
+        }
+
+        enqueue(job);
+        return mapToJobResponse(job);
+    }
+
+    public AiJobResponse getJob(UUID jobId, UUID userId) {
+        return mapToJobResponse(findJob(jobId, userId));
+    }
+
+    /**
+     * SSE поток статусов задачи: текущий статус сразу, затем каждое изменение
+     */
+    public SseEmitter subscribe(UUID jobId, UUID userId) {
+        AiJob job = findJob(jobId, userId);
+        SseEmitter emitter = new SseEmitter(aiJobConfig.getEventsTimeout().toMillis());
+
+        if (isFinished(job.getStatus())) {
+            send(emitter, mapToJobResponse(job));
+            emitter.complete();
+            return emitter;
+        }
+
+        List<SseEmitter> jobSubscribers = subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        jobSubscribers.add(emitter);
+        emitter.onCompletion(() -> jobSubscribers.remove(emitter));
+        emitter.onTimeout(() -> jobSubscribers.remove(emitter));
+        emitter.onError(e -> jobSubscribers.remove(emitter));
+
+        // Статус мог измениться между чтением и подпиской - отправляем актуальный
+        send(emitter, mapToJobResponse(findJob(jobId)));
+        return emitter;
+    }
+
+    /**
+     * После рестарта - только задачи этого инстанса: QUEUED ставятся в очередь заново, RUNNING помечаются
+     * FAILED - часть задач могла быть уже записана, повторный запуск создал бы дубли.
+     * Задачи других инстансов разбирает {@link #renewAndSweep} по истечении аренды
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverJobs() {
+        for (AiJob job : aiJobRepository.findByStatusAndOwnerInstance(AiJobStatus.RUNNING, instanceId)) {
+            finish(job, AiJobStatus.FAILED, "Прервано перезапуском сервера", List.of());
+        }
+        for (AiJob job : aiJobRepository.findByStatusAndOwnerInstance(AiJobStatus.QUEUED, instanceId)) {
+            enqueue(job);
+        }
+        renewAndSweep();
+    }
+
+    /**
+     * Продлевает аренду своих задач и разбирает задачи, аренда которых истекла
+     */
+    @Scheduled(initialDelayString = "${ai.jobs.heartbeat-interval:15s}",
+               fixedDelayString = "${ai.jobs.heartbeat-interval:15s}")
+    public void renewAndSweep() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!ownedJobs.isEmpty()) {
+            aiJobRepository.renewLeases(List.copyOf(ownedJobs), instanceId, now);
+        }
+        LocalDateTime cutoff = now.minus(aiJobConfig.getLeaseTimeout());
+        for (UUID jobId : aiJobRepository.findExpiredIds(AiJobStatus.RUNNING, cutoff)) {
+            if (aiJobRepository.failExpired(jobId, "Прервано: сервер, выполнявший задачу, недоступен", now, cutoff,
+                    AiJobStatus.RUNNING, AiJobStatus.FAILED) > 0) {
+                log.warn("AI job {} lease expired while running, marked as failed", jobId);
+                publish(findJob(jobId));
+            }
+        }
+        for (UUID jobId : aiJobRepository.findExpiredIds(AiJobStatus.QUEUED, cutoff)) {
+            if (aiJobRepository.adoptExpired(jobId, instanceId, now, cutoff, AiJobStatus.QUEUED) > 0) {
+                log.info("Adopted queued AI job {} with expired lease", jobId);
+                enqueue(findJob(jobId));
+            }
+        }
+    }
+
+    String getInstanceId() {
+        return instanceId;
+    }
+
+    private void enqueue(AiJob job) {
+        UUID jobId = job.getId();
+        ownedJobs.add(jobId);
+        try {
+            aiJobExecutor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            log.warn("AI job queue is full, rejecting job {}", jobId);
+            finish(job, AiJobStatus.FAILED, "Очередь AI задач переполнена, попробуйте позже", List.of());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run(UUID jobId) {
+        // Задачу мог уже забрать другой инстанс после истечения аренды - выполняет тот, чей UPDATE прошел
+        if (aiJobRepository.claim(jobId, instanceId, LocalDateTime.now(), AiJobStatus.QUEUED, AiJobStatus.RUNNING) == 0) {
+            ownedJobs.remove(jobId);
+            return;
+        }
+        AiJob job = findJob(jobId);
+        publish(job);
+
+        try {
+            Map<String, Object> result = aiService.distributeTasks(job.getProjectId(), job.getRequestedBy()).join();
+            List<UUID> taskIds = (List<UUID>) result.getOrDefault("taskIds", List.of());
+            finish(job, AiJobStatus.DONE, (String) result.get("message"), taskIds);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("AI distribution job {} failed: {}", jobId, cause.getMessage());
+            finish(job, AiJobStatus.FAILED, cause.getMessage(), List.of());
+        }
+    }
+
+    private void finish(AiJob job, AiJobStatus status, String message, List<UUID> taskIds) {
+        job.setStatus(status);
+        job.setMessage(message);
+        job.setCreatedTaskIds(new ArrayList<>(taskIds));
+        job.setFinishedAt(LocalDateTime.now());
+        publish(aiJobRepository.save(job));
+        ownedJobs.remove(job.getId());
+    }
+
+    private void publish(AiJob job) {
+        List<SseEmitter> jobSubscribers = subscribers.get(job.getId());
+        if (jobSubscribers == null) {
+            return;
+        }
+        AiJobResponse response = mapToJobResponse(job);
+        for (SseEmitter emitter : jobSubscribers) {
+            send(emitter, response);
+            if (isFinished(job.getStatus())) {
+                emitter.complete();
+            }
+        }
+        if (isFinished(job.getStatus())) {
+            subscribers.remove(job.getId());
+        }
+    }
+
+    private void send(SseEmitter emitter, AiJobResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(response));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private AiJob findJob(UUID jobId) {
+        return aiJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Задача AI не найдена"));
+    }
+    
+    /**
+     * Чужая задача не отличается от несуществующей - id задач не перебрать
+     */
+    private AiJob findJob(UUID jobId, UUID userId) {
+        AiJob job = findJob(jobId);
+        if (!userId.equals(job.getRequestedBy()) && !projectRepository.isVisibleTo(job.getProjectId(), userId)) {
+            throw new ResourceNotFoundException("Задача AI не найдена");
+        }
+        return job;
+    }
+
+    private static String hostName() {
+        String host = System.getenv("HOSTNAME");
+        if (host != null && !host.isBlank()) {
+            return host;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "instance-" + UUID.randomUUID();
+        }
+    }
+
+    private static boolean isFinished(AiJobStatus status) {
+        return status == AiJobStatus.DONE || status == AiJobStatus.FAILED;
+    }
+
+    private AiJobResponse mapToJobResponse(AiJob job) {
+        return AiJobResponse.builder()
+                .id(job.getId())
+                .projectId(job.getProjectId())
+                .status(job.getStatus())
+                .message(job.getMessage())
+                .createdTaskIds(List.copyOf(job.getCreatedTaskIds()))
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.config.ProjectCountersConfig;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сверка Project.totalTasks/completedTasks с таблицей tasks.
+ *
+ * Счетчики меняются атомарными UPDATE вместе с задачами, но могут разойтись
+ * (ручные правки в БД, удаление задач мимо сервиса, гонка со сверкой).
+ * Раз в reconcile-interval проекты обходятся пачками по id, и разошедшиеся
+ * счетчики и progress пересчитываются одним UPDATE на пачку. Первая сверка
+ * после запуска заполняет счетчики у проектов, созданных до их появления.
+ */
+@Service
+@Slf4j
+public class ProjectCountersReconciler {
+
+    private final ProjectCountersConfig config;
+    private final ProjectRepository projectRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter repaired;
+
+    public ProjectCountersReconciler(ProjectCountersConfig config, ProjectRepository projectRepository,
+                                     TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.projectRepository = projectRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.repaired = Counter.builder("project.counters.repaired")
+                .description("Проекты с исправленными счетчиками задач")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${project-counters.initial-delay:2m}",
+               fixedDelayString = "${project-counters.reconcile-interval:1h}")
+    public void reconcile() {
+        if (!config.isReconcileEnabled()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        int scanned = 0;
+        int fixed = 0;
+        UUID after = new UUID(0, 0);
+        List<UUID> batch;
+        do {
+            batch = projectRepository.findIdsAfter(after, PageRequest.of(0, config.getBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<UUID> ids = batch;
+            Integer updated = transactionTemplate.execute(status -> projectRepository.reconcileTaskCounters(ids));
+            fixed += updated != null ? updated : 0;
+            scanned += batch.size();
+            after = batch.get(batch.size() - 1);
+        } while (batch.size() == config.getBatchSize());
+
+        repaired.increment(fixed);
+        if (fixed > 0) {
+            log.warn("Repaired task counters of {} of {} projects in {} ms", fixed, scanned,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        } else {
+            log.debug("Task counters of {} projects are consistent", scanned);
+        }
+    }
+}
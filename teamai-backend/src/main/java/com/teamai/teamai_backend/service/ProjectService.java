@@ -1,16 +1,21 @@
 package com.teamai.teamai_backend.service;
 
+import com.teamai.teamai_backend.config.PaginationConfig;
 import com.teamai.teamai_backend.exception.ResourceNotFoundException;
 import com.teamai.teamai_backend.model.dto.request.CreateProjectRequest;
 import com.teamai.teamai_backend.model.dto.response.*;
 import com.teamai.teamai_backend.model.entity.*;
 import com.teamai.teamai_backend.model.enums.ProjectStatus;
-import com.teamai.teamai_backend.model.enums.TaskStatus;
 import com.teamai.teamai_backend.repository.*;
+import com.teamai.teamai_backend.service.ai.KnowledgeIndex;
+import com.teamai.teamai_backend.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,6 +25,11 @@ public class ProjectService {
     
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
+    private final KnowledgeIndex knowledgeIndex;
+    private final ProjectSummaryService projectSummaryService;
+    private final PaginationConfig paginationConfig;
+    private final TaskRepository taskRepository;
+    private final TodayAgendaStore todayAgendaStore;
     
     @Transactional(readOnly = true)
     public List<ProjectResponse> getAllProjects(UUID userId) {
@@ -34,11 +44,40 @@ public class ProjectService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Страница проектов пользователя, новые первыми; cursor - из nextCursor предыдущей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ProjectResponse> getProjectsPage(UUID userId, String cursor, int limit) {
+        int size = paginationConfig.pageSize(limit);
+        Pageable page = PageRequest.of(0, size + 1);
+        List<Project> projects;
+        if (cursor == null || cursor.isBlank()) {
+            projects = projectRepository.findVisiblePage(userId, page);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            projects = projectRepository.findVisiblePageAfter(userId, after.getPosition(), after.getId(), page);
+        }
+        
+        boolean hasMore = projects.size() > size;
+        if (hasMore) {
+            projects = projects.subList(0, size);
+        }
+        Project last = projects.isEmpty() ? null : projects.get(projects.size() - 1);
+        return CursorPageResponse.<ProjectResponse>builder()
+                .items(projects.stream().map(this::mapToProjectResponse).collect(Collectors.toList()))
+                .nextCursor(hasMore ? new PageCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+    
     @Transactional(readOnly = true)
     public ProjectResponse getProjectById(UUID projectId) {
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new ResourceNotFoundException("Проект не найден"));
         
+        // Сводку отдаем из БД, а ее проверку на актуальность - вперед очереди
+        projectSummaryService.requestPriority(projectId);
         return mapToProjectResponse(project);
     }
     
@@ -78,6 +117,7 @@ public class ProjectService {
             project = projectRepository.save(project);
         }
         
+        knowledgeIndex.indexProject(project);
         return mapToProjectResponse(project);
     }
     
@@ -91,14 +131,16 @@ public class ProjectService {
             throw new RuntimeException("Только владелец может удалить проект");
         }
         
+        // Задачи проекта удаляются каскадом - повестки их исполнителей на сегодня строятся заново
+        LocalDateTime start = todayAgendaStore.today().atStartOfDay();
+        todayAgendaStore.evict(taskRepository.findAssigneeIdsByProjectIdAndDeadlineBetween(
+                projectId, start, start.plusDays(1)));
+        
         projectRepository.delete(project);
+        knowledgeIndex.removeProject(projectId);
     }
     
     private ProjectResponse mapToProjectResponse(Project project) {
-        long tasksCount = project.getTasks() != null ? project.getTasks().size() : 0;
-        long completedCount = project.getTasks() != null ? 
-                project.getTasks().stream().filter(t -> t.getStatus() == TaskStatus.COMPLETED).count() : 0;
-        
         return ProjectResponse.builder()
                 .id(project.getId())
                 .title(project.getTitle())
@@ -122,8 +164,8 @@ public class ProjectService {
                                 .experienceYears(member.getUser().getExperienceYears())
                                 .build())
                         .collect(Collectors.toList()))
-                .tasksCount((int) tasksCount)
-                .completedTasksCount((int) completedCount)
+                .tasksCount(project.getTotalTasks())
+                .completedTasksCount(project.getCompletedTasks())
                 .createdAt(project.getCreatedAt())
                 .build();
     }
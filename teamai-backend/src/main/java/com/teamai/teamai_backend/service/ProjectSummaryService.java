@@ -0,0 +1,353 @@
+package com.teamai.teamai_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.config.ProjectSummaryConfig;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.projection.SummaryFingerprint;
+import com.teamai.teamai_backend.repository.projection.TaskRow;
+import com.teamai.teamai_backend.service.ai.AiUsageTracker;
+import com.teamai.teamai_backend.service.ai.LlmClient;
+import com.teamai.teamai_backend.service.ai.LlmMessage;
+import com.teamai.teamai_backend.service.ai.LlmRequest;
+import com.teamai.teamai_backend.service.ai.LlmResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Фоновая генерация Project.aiSummary: чтение проекта остается запросом к БД без вызова модели.
+ *
+ * Раз в scan-interval отпечатки всех проектов (md5 задач, статусов и участников,
+ * считается в Postgres) сравниваются с отпечатком сохраненной сводки; устаревшие
+ * проекты ставятся в очередь. Один поток "ai-summary" забирает из очереди до
+ * batch-size проектов, перепроверяет отпечатки и описывает их одним запросом к модели,
+ * не чаще одного запроса в min-call-interval. Открытый пользователем проект
+ * ставится в начало очереди. Проект, сводку которого не удалось получить, не ставится
+ * в очередь failure-backoff, пауза удваивается с каждой неудачей подряд.
+ *
+ * На нескольких инстансах один проект может изредка описываться дважды:
+ * запись идемпотентна, а свежий отпечаток перепроверяется перед каждым вызовом.
+ */
+@Service
+@Slf4j
+public class ProjectSummaryService {
+
+    private static final String SUMMARY_SYSTEM_PROMPT =
+            "Ты - AI ассистент TeamAI. Для каждого проекта напиши краткую сводку на русском языке " +
+            "(2-4 предложения): состояние, риски по срокам и загрузке команды, что важно сделать дальше. " +
+            "Ответь только JSON объектом вида {\"<id проекта>\": \"сводка\"} без пояснений.";
+
+    private final ProjectSummaryConfig config;
+    private final ProjectRepository projectRepository;
+    private final TaskRepository taskRepository;
+    private final LlmClient llmClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final AiUsageTracker aiUsageTracker;
+    private final Counter generated;
+    private final Counter failed;
+
+    private final PriorityBlockingQueue<Pending> queue = new PriorityBlockingQueue<>();
+    /**
+     * Актуальная заявка по проекту; заявки в очереди, вытесненные приоритетной, пропускаются
+     */
+    private final Map<UUID, Pending> queued = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Проекты с неудачной генерацией: не ставятся в очередь до retryAt
+     */
+    private final Map<UUID, Failure> failures = new ConcurrentHashMap<>();
+    private volatile Thread dispatcher;
+    /**
+     * Раньше этого момента (System.nanoTime) следующий запрос к модели не отправляется; только поток ai-summary
+     */
+    private long nextCallAt = System.nanoTime();
+
+    public ProjectSummaryService(ProjectSummaryConfig config, ProjectRepository projectRepository,
+                                 TaskRepository taskRepository, LlmClient llmClient,
+                                 TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                 AiUsageTracker aiUsageTracker, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.projectRepository = projectRepository;
+        this.taskRepository = taskRepository;
+        this.llmClient = llmClient;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.aiUsageTracker = aiUsageTracker;
+        this.generated = meterRegistry.counter("ai.project.summary", "result", "generated");
+        this.failed = meterRegistry.counter("ai.project.summary", "result", "failed");
+        meterRegistry.gaugeMapSize("ai.project.summary.queued", List.of(), queued);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isActive()) {
+            return;
+        }
+        Thread thread = new Thread(this::dispatch, "ai-summary");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = dispatcher;
+        dispatcher = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Проект открыт пользователем: проверить его сводку раньше остальных.
+     * Не блокирует запрос - только ставит заявку в очередь.
+     */
+    public void requestPriority(UUID projectId) {
+        if (isActive()) {
+            enqueue(projectId, true);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ai.project-summary.initial-delay:1m}",
+               fixedDelayString = "${ai.project-summary.scan-interval:15m}")
+    public void scan() {
+        if (!isActive()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        int scanned = 0;
+        int stale = 0;
+        UUID after = new UUID(0, 0);
+        List<SummaryFingerprint> page;
+        do {
+            page = projectRepository.findSummaryFingerprintsAfter(after, config.getScanPageSize());
+            for (SummaryFingerprint fingerprint : page) {
+                scanned++;
+                if (fingerprint.isStale()) {
+                    stale++;
+                    enqueue(fingerprint.getProjectId(), false);
+                }
+                after = fingerprint.getProjectId();
+            }
+        } while (page.size() == config.getScanPageSize());
+        log.info("Project summary scan: {} projects, {} stale, {} queued, {} ms",
+                scanned, stale, queued.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    private boolean isActive() {
+        return config.isEnabled() && llmClient.isConfigured();
+    }
+
+    private void enqueue(UUID projectId, boolean priority) {
+        if (!priority && queued.size() >= config.getMaxQueued()) {
+            return;
+        }
+        Failure failure = failures.get(projectId);
+        if (failure != null && failure.retryAt - System.nanoTime() > 0) {
+            return;
+        }
+        Pending pending = new Pending(projectId, priority, sequence.incrementAndGet());
+        Pending current = queued.merge(projectId, pending,
+                (existing, fresh) -> existing.priority || !fresh.priority ? existing : fresh);
+        if (current == pending) {
+            queue.add(pending);
+        }
+    }
+
+    private void dispatch() {
+        while (dispatcher == Thread.currentThread()) {
+            try {
+                summarize(nextBatch());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Project summary batch failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ждет первую заявку и добирает без ожидания до batch-size (приоритетные идут первыми)
+     */
+    private List<UUID> nextBatch() throws InterruptedException {
+        List<UUID> batch = new ArrayList<>(config.getBatchSize());
+        while (batch.isEmpty()) {
+            Pending pending = queue.take();
+            if (queued.remove(pending.projectId, pending)) {
+                batch.add(pending.projectId);
+            }
+        }
+        Pending pending;
+        while (batch.size() < config.getBatchSize() && (pending = queue.poll()) != null) {
+            if (queued.remove(pending.projectId, pending)) {
+                batch.add(pending.projectId);
+            }
+        }
+        return batch;
+    }
+
+    private void summarize(List<UUID> batch) throws InterruptedException {
+        Map<UUID, String> fingerprints = projectRepository.findSummaryFingerprints(batch).stream()
+                .filter(SummaryFingerprint::isStale)
+                .collect(Collectors.toMap(SummaryFingerprint::getProjectId, SummaryFingerprint::getFingerprint));
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+
+        String prompt = transactionTemplate.execute(status ->
+                projectRepository.findAllById(fingerprints.keySet()).stream()
+                        .map(this::describe)
+                        .collect(Collectors.joining("\n\n")));
+        LlmRequest request = llmClient.defaultRequest()
+                .message(LlmMessage.system(SUMMARY_SYSTEM_PROMPT))
+                .message(LlmMessage.user(prompt))
+                .timeout(config.getCallTimeout())
+                .build();
+
+        // Не чаще одного запроса к модели в min-call-interval
+        long waitNanos = nextCallAt - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        nextCallAt = System.nanoTime() + config.getMinCallInterval().toNanos();
+
+        Map<String, String> summaries;
+        try {
+            LlmResponse response = llmClient.chat(request)
+                    .get(config.getCallTimeout().toMillis() + 1000, TimeUnit.MILLISECONDS);
+            aiUsageTracker.record(null, response);
+            summaries = parseSummaries(response.getContent());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            // Проекты останутся устаревшими и попадут в очередь при сканировании после backoff
+            failed.increment(fingerprints.size());
+            fingerprints.keySet().forEach(this::recordFailure);
+            log.warn("Project summary generation failed for {} projects: {}", fingerprints.size(), e.getMessage());
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> fingerprints.forEach((projectId, fingerprint) -> {
+            String summary = summaries.get(projectId.toString());
+            if (summary == null || summary.isBlank()) {
+                failed.increment();
+                recordFailure(projectId);
+                return;
+            }
+            projectRepository.updateAiSummary(projectId, summary.trim(), fingerprint, now);
+            failures.remove(projectId);
+            generated.increment();
+        }));
+        log.info("Generated AI summaries for {} of {} projects", summaries.size(), fingerprints.size());
+    }
+
+    private void recordFailure(UUID projectId) {
+        failures.compute(projectId, (id, previous) -> {
+            int attempts = previous == null ? 1 : previous.attempts + 1;
+            long backoff = config.getFailureBackoff().toNanos() << Math.min(attempts - 1, 20);
+            long delay = Math.min(backoff > 0 ? backoff : Long.MAX_VALUE, config.getMaxFailureBackoff().toNanos());
+            return new Failure(attempts, System.nanoTime() + delay);
+        });
+    }
+
+    /**
+     * Только скалярные поля проекта и счетчики задач; задачи - не больше max-tasks-in-prompt
+     * строк запросом с ORDER BY и LIMIT, участники - одни имена
+     */
+    private String describe(Project project) {
+        StringBuilder text = new StringBuilder()
+                .append("Проект ").append(project.getId()).append(": ").append(project.getTitle()).append('\n');
+        if (project.getDescription() != null && !project.getDescription().isBlank()) {
+            text.append("Описание: ").append(project.getDescription()).append('\n');
+        }
+        text.append("Статус: ").append(project.getStatus())
+                .append(", прогресс ").append(Math.round(project.getProgress() != null ? project.getProgress() : 0)).append('%')
+                .append(", дедлайн ").append(project.getDeadline()).append('\n');
+        text.append("Команда: ")
+                .append(String.join(", ", projectRepository.findMemberNames(project.getId()))).append('\n');
+
+        text.append("Задачи (всего ").append(project.getTotalTasks())
+                .append(", выполнено ").append(project.getCompletedTasks()).append("):");
+        // Открытые задачи важнее для сводки: сначала они, по дедлайну
+        List<TaskRow> tasks = taskRepository.findSummaryRowsByProjectId(project.getId(), TaskStatus.COMPLETED,
+                PageRequest.of(0, config.getMaxTasksInPrompt()));
+        tasks.forEach(task -> text.append("\n- ").append(task.getTitle())
+                .append(" [").append(task.getStatus()).append("]")
+                .append(task.getAssignedToName() != null ? ", " + task.getAssignedToName() : "")
+                .append(", до ").append(task.getDeadline() != null ? task.getDeadline().toLocalDate() : "-"));
+        return text.toString();
+    }
+
+    /**
+     * JSON объект {id: сводка}; модель иногда оборачивает его в ```json - берем от первой { до последней }
+     */
+    private Map<String, String> parseSummaries(String content) throws JsonProcessingException {
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            throw new IllegalStateException("В ответе модели нет JSON объекта");
+        }
+        JsonNode root = objectMapper.readTree(content.substring(start, end + 1));
+        Map<String, String> summaries = new HashMap<>();
+        for (Map.Entry<String, JsonNode> field : root.properties()) {
+            if (field.getValue().isTextual()) {
+                summaries.put(field.getKey().trim(), field.getValue().asText());
+            }
+        }
+        return summaries;
+    }
+
+    private static final class Failure {
+
+        private final int attempts;
+        private final long retryAt;
+
+        Failure(int attempts, long retryAt) {
+            this.attempts = attempts;
+            this.retryAt = retryAt;
+        }
+    }
+
+    private static final class Pending implements Comparable<Pending> {
+
+        private final UUID projectId;
+        private final boolean priority;
+        private final long sequence;
+
+        Pending(UUID projectId, boolean priority, long sequence) {
+            this.projectId = projectId;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            if (priority != other.priority) {
+                return priority ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
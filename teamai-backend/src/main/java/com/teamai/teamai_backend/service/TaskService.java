@@ -1,16 +1,27 @@
 package com.teamai.teamai_backend.service;
 
+import com.teamai.teamai_backend.config.PaginationConfig;
 import com.teamai.teamai_backend.exception.ResourceNotFoundException;
+import com.teamai.teamai_backend.model.dto.request.BatchUpdateTaskStatusRequest;
 import com.teamai.teamai_backend.model.dto.request.CreateTaskRequest;
 import com.teamai.teamai_backend.model.dto.request.UpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.dto.response.CursorPageResponse;
 import com.teamai.teamai_backend.model.dto.response.TaskResponse;
 import com.teamai.teamai_backend.model.entity.*;
 import com.teamai.teamai_backend.model.enums.TaskStatus;
 import com.teamai.teamai_backend.repository.*;
+import com.teamai.teamai_backend.repository.projection.TaskRow;
+import com.teamai.teamai_backend.repository.projection.TaskSkillName;
+import com.teamai.teamai_backend.repository.projection.TaskStatusRow;
+import com.teamai.teamai_backend.service.ai.KnowledgeIndex;
+import com.teamai.teamai_backend.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -22,21 +33,84 @@ public class TaskService {
     private final TaskRepository taskRepository;
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
+    private final KnowledgeIndex knowledgeIndex;
+    private final PaginationConfig paginationConfig;
+    private final TodayAgendaStore todayAgendaStore;
     
     @Transactional(readOnly = true)
     public List<TaskResponse> getAllTasks(UUID userId) {
-        List<Task> tasks = taskRepository.findByAssignedToId(userId);
-        return tasks.stream()
-                .map(this::mapToTaskResponse)
-                .collect(Collectors.toList());
+        return mapRows(taskRepository.findRowsByAssignedToId(userId));
     }
     
     @Transactional(readOnly = true)
     public List<TaskResponse> getTodayTasks(UUID userId) {
-        List<Task> tasks = taskRepository.findTodayTasksByUserId(userId);
-        return tasks.stream()
-                .map(this::mapToTaskResponse)
-                .collect(Collectors.toList());
+        return loadTodayTasks(userId, todayAgendaStore.today());
+    }
+    
+    /**
+     * Задачи на сегодня готовым JSON массивом: из материализованной повестки,
+     * при промахе - из БД с записью повестки. Без @Transactional: попадание не берет соединение из пула
+     */
+    public String getTodayAgenda(UUID userId) {
+        LocalDate today = todayAgendaStore.today();
+        return todayAgendaStore.find(userId, today).orElseGet(() -> {
+            // Поколение - до запроса в БД: изменение, закоммиченное во время запроса, отменит запись
+            long generation = todayAgendaStore.generation(userId);
+            return todayAgendaStore.save(userId, today, loadTodayTasks(userId, today), generation);
+        });
+    }
+    
+    /**
+     * Материализует повестки всех пользователей с задачами на сегодня, пачками по batchSize.
+     * Пользователи без задач получат пустую повестку при первом чтении
+     */
+    public int materializeTodayAgendas(int batchSize) {
+        LocalDate today = todayAgendaStore.today();
+        LocalDateTime start = today.atStartOfDay();
+        List<UUID> userIds = taskRepository.findAssigneeIdsByDeadlineBetween(start, start.plusDays(1));
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<UUID> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            Map<UUID, Long> generations = todayAgendaStore.generations(batch);
+            Map<UUID, List<TaskResponse>> agendas = mapRows(
+                    taskRepository.findTodayRowsByUserIds(batch, start, start.plusDays(1)))
+                    .stream()
+                    .collect(Collectors.groupingBy(TaskResponse::getAssignedToId));
+            agendas.forEach((userId, tasks) -> todayAgendaStore.save(userId, today, tasks, generations.get(userId)));
+        }
+        return userIds.size();
+    }
+    
+    private List<TaskResponse> loadTodayTasks(UUID userId, LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        return mapRows(taskRepository.findTodayRowsByUserId(userId, start, start.plusDays(1)));
+    }
+    
+    /**
+     * Страница задач пользователя по (deadline, id); cursor - из nextCursor предыдущей страницы
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<TaskResponse> getTasksPage(UUID userId, String cursor, int limit) {
+        int size = paginationConfig.pageSize(limit);
+        Pageable page = PageRequest.of(0, size + 1);
+        List<TaskRow> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = taskRepository.findRowPageByAssignedToId(userId, page);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            rows = taskRepository.findRowPageByAssignedToIdAfter(userId, after.getPosition(), after.getId(), page);
+        }
+        
+        // Лишняя строка только показывает, что есть следующая страница
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        TaskRow last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        return CursorPageResponse.<TaskResponse>builder()
+                .items(mapRows(rows))
+                .nextCursor(hasMore ? new PageCursor(last.getDeadline(), last.getId()).encode() : null)
+                .hasMore(hasMore)
+                .build();
     }
     
     @Transactional
@@ -76,7 +150,11 @@ public class TaskService {
             task = taskRepository.save(task);
         }
         
-        return mapToTaskResponse(task);
+        projectRepository.adjustTaskCounters(project.getId(), 1, task.getStatus() == TaskStatus.COMPLETED ? 1 : 0);
+        knowledgeIndex.indexTask(task);
+        TaskResponse response = mapToTaskResponse(task);
+        todayAgendaStore.put(response);
+        return response;
     }
     
     @Transactional
@@ -84,6 +162,7 @@ public class TaskService {
         Task task = taskRepository.findById(taskId)
                 .orElseThrow(() -> new ResourceNotFoundException("Задача не найдена"));
         
+        boolean wasCompleted = task.getStatus() == TaskStatus.COMPLETED;
         task.setStatus(request.getStatus());
         
         if (request.getStatus() == TaskStatus.COMPLETED) {
@@ -92,23 +171,92 @@ public class TaskService {
         
         task = taskRepository.save(task);
         
-        // Update project progress
-        updateProjectProgress(task.getProject());
+        // Прогресс проекта - по счетчикам, без загрузки всех задач проекта
+        int completedDelta = (request.getStatus() == TaskStatus.COMPLETED ? 1 : 0) - (wasCompleted ? 1 : 0);
+        if (completedDelta != 0) {
+            projectRepository.adjustTaskCounters(task.getProject().getId(), 0, completedDelta);
+        }
+        knowledgeIndex.indexTask(task);
         
-        return mapToTaskResponse(task);
+        TaskResponse response = mapToTaskResponse(task);
+        todayAgendaStore.put(response);
+        return response;
     }
     
-    private void updateProjectProgress(Project project) {
-        long totalTasks = project.getTasks().size();
-        if (totalTasks == 0) return;
+    /**
+     * Пакетная смена статусов (канбан, закрытие спринта) одной транзакцией:
+     * строки блокируются, затем один UPDATE на каждый целевой статус и одно изменение
+     * счетчиков на каждый затронутый проект. Неизвестная задача отменяет весь пакет.
+     * Для повторяющегося taskId действует последний статус.
+     */
+    @Transactional
+    public List<TaskResponse> updateTaskStatuses(List<BatchUpdateTaskStatusRequest.Item> updates) {
+        Map<UUID, TaskStatus> targets = new LinkedHashMap<>();
+        updates.forEach(update -> targets.put(update.getTaskId(), update.getStatus()));
+        
+        List<TaskStatusRow> current = taskRepository.lockStatuses(targets.keySet());
+        if (current.size() != targets.size()) {
+            throw new ResourceNotFoundException("Задача не найдена");
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        targets.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((status, ids) -> taskRepository.updateStatuses(ids, status,
+                        status == TaskStatus.COMPLETED ? now : null, now));
         
-        long completedTasks = project.getTasks().stream()
-                .filter(t -> t.getStatus() == TaskStatus.COMPLETED)
-                .count();
+        Map<UUID, Integer> completedDeltas = new HashMap<>();
+        for (TaskStatusRow row : current) {
+            int delta = (targets.get(row.getId()) == TaskStatus.COMPLETED ? 1 : 0)
+                    - (TaskStatus.COMPLETED.name().equals(row.getStatus()) ? 1 : 0);
+            completedDeltas.merge(row.getProjectId(), delta, Integer::sum);
+        }
+        completedDeltas.forEach((projectId, delta) -> {
+            if (delta != 0) {
+                projectRepository.adjustTaskCounters(projectId, 0, delta);
+            }
+        });
         
-        double progress = (completedTasks * 100.0) / totalTasks;
-        project.setProgress(progress);
-        projectRepository.save(project);
+        List<TaskRow> rows = taskRepository.findRowsByIdIn(targets.keySet());
+        rows.forEach(knowledgeIndex::indexTask);
+        List<TaskResponse> responses = mapRows(rows);
+        responses.forEach(todayAgendaStore::put);
+        return responses;
+    }
+    
+    /**
+     * Строки задач и их навыки - два запроса на весь список, независимо от числа задач
+     */
+    private List<TaskResponse> mapRows(List<TaskRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, List<String>> skills = taskRepository.findSkillNames(
+                        rows.stream().map(TaskRow::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(TaskSkillName::getTaskId,
+                        Collectors.mapping(TaskSkillName::getSkillName, Collectors.toList())));
+        
+        return rows.stream()
+                .map(row -> TaskResponse.builder()
+                        .id(row.getId())
+                        .projectId(row.getProjectId())
+                        .projectTitle(row.getProjectTitle())
+                        .title(row.getTitle())
+                        .description(row.getDescription())
+                        .assignedToId(row.getAssignedToId())
+                        .assignedToName(row.getAssignedToName())
+                        .deadline(row.getDeadline())
+                        .status(row.getStatus())
+                        .priority(row.getPriority())
+                        .aiReasoning(row.getAiReasoning())
+                        .requiredSkills(skills.getOrDefault(row.getId(), List.of()))
+                        .estimatedHours(row.getEstimatedHours())
+                        .createdAt(row.getCreatedAt())
+                        .completedAt(row.getCompletedAt())
+                        .build())
+                .collect(Collectors.toList());
     }
     
     private TaskResponse mapToTaskResponse(Task task) {
@@ -0,0 +1,49 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.config.AgendaConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ночной пересчет повесток "задачи на сегодня".
+ *
+ * Вскоре после полуночи (agenda.precompute-cron в поясе agenda.zone) повестки нового дня
+ * строятся для всех пользователей, у которых есть задачи на этот день, поэтому первое
+ * открытие приложения утром не идет в БД. Повестки прошлого дня истекают по agenda.ttl.
+ */
+@Service
+@Slf4j
+public class TodayAgendaPrecomputer {
+
+    private final AgendaConfig config;
+    private final TaskService taskService;
+    private final Counter materialized;
+
+    public TodayAgendaPrecomputer(AgendaConfig config, TaskService taskService, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.taskService = taskService;
+        this.materialized = Counter.builder("agenda.precomputed")
+                .description("Повестки, построенные ночным пересчетом")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${agenda.precompute-cron:0 5 0 * * *}", zone = "${agenda.zone:}")
+    public void precompute() {
+        if (!config.isEnabled() || !config.isPrecomputeEnabled()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            int users = taskService.materializeTodayAgendas(config.getBatchSize());
+            materialized.increment(users);
+            log.info("Precomputed today agendas of {} users in {} ms", users,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Повестки построятся при первом чтении
+            log.error("Agenda precomputation failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.teamai.teamai_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.AgendaConfig;
+import com.teamai.teamai_backend.model.dto.response.TaskResponse;
+import com.teamai.teamai_backend.model.entity.Task;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Материализованные повестки "задачи на сегодня" (GET /tasks/today) по пользователям.
+ *
+ * Повестка - хэш taskId -> JSON TaskResponse под ключом дня и пользователя, поэтому чтение -
+ * один HGETALL и склейка готовых строк в массив, без БД и без сериализации.
+ * Создание задачи и смена статуса патчат одно поле уже материализованной повестки
+ * после коммита транзакции; пакетные изменения (AI распределение, удаление проекта)
+ * сбрасывают повестку, и она строится заново при следующем чтении.
+ * Ключи нового дня заполняет ночной пересчет {@link TodayAgendaPrecomputer}.
+ * Ошибки Redis не ломают запрос - он уходит в БД.
+ *
+ * Каждое изменение повестки пользователя увеличивает его поколение. Заполнение из БД
+ * запоминает поколение до запроса и записывает повестку, только если оно не изменилось:
+ * иначе изменение, закоммиченное во время запроса, потерялось бы до истечения ttl.
+ */
+@Component
+@Slf4j
+public class TodayAgendaStore {
+
+    /**
+     * Поле-метка: пустая повестка тоже материализована, а хэш без полей Redis не хранит
+     */
+    private static final String MARKER = "";
+
+    /**
+     * Поколение не удалось прочитать - такое заполнение не записывается
+     */
+    private static final long UNKNOWN_GENERATION = -1;
+
+    /**
+     * KEYS[1] - повестка, KEYS[2] - поколение, ARGV[1] - taskId, ARGV[2] - JSON задачи или пусто
+     * для удаления, ARGV[3] - ttl поколения (с). Повестку, которой еще нет, не создает:
+     * частичная повестка выглядела бы полной
+     */
+    private static final RedisScript<Long> PATCH_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[3])
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            if ARGV[2] == '' then redis.call('HDEL', KEYS[1], ARGV[1])
+            else redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS[1] - повестка, KEYS[2] - поколение, ARGV[1] - ttl поколения (с)
+     */
+    private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    /**
+     * KEYS[1] - заполненный временный ключ, KEYS[2] - повестка, KEYS[3] - поколение,
+     * ARGV[1] - поколение до чтения из БД. Подменяет повестку, только если изменений не было
+     */
+    private static final RedisScript<Long> INSTALL_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('GET', KEYS[3]) or '0'
+            if generation ~= ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                return 0
+            end
+            redis.call('RENAME', KEYS[1], KEYS[2])
+            return 1
+            """, Long.class);
+
+    private final AgendaConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, ConcurrentMap<String, String>> localAgendas;
+    /**
+     * Поколения повесток в локальном режиме; значения берутся из одного растущего счетчика,
+     * поэтому вытесненное и созданное заново поколение не совпадет со старым
+     */
+    private final Cache<UUID, Long> localGenerations;
+    private final AtomicLong generationSequence = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleFills;
+
+    public TodayAgendaStore(AgendaConfig config, StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localAgendas = Caffeine.newBuilder()
+                .maximumSize(config.getMaxLocalEntries())
+                .expireAfterWrite(config.getTtl())
+                .build();
+        this.localGenerations = Caffeine.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .build();
+        this.hits = meterRegistry.counter("agenda.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("agenda.lookups", "result", "miss");
+        this.staleFills = meterRegistry.counter("agenda.fills.skipped");
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(config.zoneId());
+    }
+
+    /**
+     * JSON массив задач пользователя на day, если повестка материализована
+     */
+    public Optional<String> find(UUID userId, LocalDate day) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        Collection<?> tasks = null;
+        if (config.isRedisEnabled()) {
+            try {
+                Map<Object, Object> fields = redisTemplate.opsForHash().entries(key(userId, day));
+                if (!fields.isEmpty()) {
+                    fields.remove(MARKER);
+                    tasks = fields.values();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Redis agenda read failed, using database: {}", e.getMessage());
+            }
+        } else {
+            Map<String, String> agenda = localAgendas.getIfPresent(key(userId, day));
+            tasks = agenda != null ? agenda.values() : null;
+        }
+        if (tasks == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        tasks.forEach(task -> json.add(task.toString()));
+        return Optional.of(json.toString());
+    }
+
+    /**
+     * Поколения повесток; читаются до загрузки задач из БД и передаются в {@link #save}
+     */
+    public Map<UUID, Long> generations(Collection<UUID> userIds) {
+        Map<UUID, Long> generations = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(userIds);
+        if (config.isRedisEnabled()) {
+            List<String> values = null;
+            try {
+                values = redisTemplate.opsForValue().multiGet(ids.stream().map(this::generationKey).toList());
+            } catch (RuntimeException e) {
+                log.warn("Redis agenda generation read failed: {}", e.getMessage());
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                String value = values != null ? values.get(i) : null;
+                generations.put(ids.get(i), values == null ? UNKNOWN_GENERATION
+                        : value == null ? 0 : Long.parseLong(value));
+            }
+        } else {
+            ids.forEach(userId -> generations.put(userId,
+                    Optional.ofNullable(localGenerations.getIfPresent(userId)).orElse(0L)));
+        }
+        return generations;
+    }
+
+    public long generation(UUID userId) {
+        return generations(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Записывает повестку целиком и возвращает ее JSON. Если после чтения generation
+     * повестка пользователя менялась, tasks уже устарели и не записываются
+     */
+    public String save(UUID userId, LocalDate day, List<TaskResponse> tasks, long generation) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (TaskResponse task : tasks) {
+            String value = serialize(task);
+            fields.put(task.getId().toString(), value);
+            json.add(value);
+        }
+        if (!config.isEnabled() || generation == UNKNOWN_GENERATION) {
+            return json.toString();
+        }
+        String key = key(userId, day);
+        boolean installed;
+        if (config.isRedisEnabled()) {
+            fields.put(MARKER, "");
+            // Заполняем временный ключ и подменяем RENAME: читатель не видит повестку наполовину
+            String staging = key + ":" + UUID.randomUUID();
+            try {
+                redisTemplate.opsForHash().putAll(staging, fields);
+                redisTemplate.expire(staging, config.getTtl());
+                Long result = redisTemplate.execute(INSTALL_SCRIPT, List.of(staging, key, generationKey(userId)),
+                        Long.toString(generation));
+                installed = result != null && result == 1;
+            } catch (RuntimeException e) {
+                log.warn("Redis agenda write failed: {}", e.getMessage());
+                return json.toString();
+            }
+        } else {
+            boolean[] applied = new boolean[1];
+            // compute по ключу пользователя атомарен с put/evict, которые меняют поколение тем же compute
+            localGenerations.asMap().compute(userId, (id, current) -> {
+                if ((current == null ? 0 : current) == generation) {
+                    localAgendas.put(key, new ConcurrentHashMap<>(fields));
+                    applied[0] = true;
+                }
+                return current;
+            });
+            installed = applied[0];
+        }
+        if (!installed) {
+            staleFills.increment();
+        }
+        return json.toString();
+    }
+
+    /**
+     * Задача создана или изменена: обновляет ее в повестке исполнителя на сегодня
+     * или убирает оттуда, если дедлайн уже не сегодня
+     */
+    public void put(TaskResponse task) {
+        if (!config.isEnabled() || task.getAssignedToId() == null) {
+            return;
+        }
+        String value = isToday(task.getDeadline()) ? serialize(task) : "";
+        afterCommit(() -> patch(task.getAssignedToId(), today(), task.getId().toString(), value));
+    }
+
+    /**
+     * Повестки исполнителей задач на сегодня строятся заново при следующем чтении
+     */
+    public void evictFor(Collection<Task> tasks) {
+        Set<UUID> userIds = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.getAssignedTo() != null && isToday(task.getDeadline())) {
+                userIds.add(task.getAssignedTo().getId());
+            }
+        }
+        evict(userIds);
+    }
+
+    public void evict(Collection<UUID> userIds) {
+        if (!config.isEnabled() || userIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(userIds);
+        afterCommit(() -> {
+            LocalDate day = today();
+            for (UUID userId : ids) {
+                if (config.isRedisEnabled()) {
+                    try {
+                        redisTemplate.execute(EVICT_SCRIPT, List.of(key(userId, day), generationKey(userId)),
+                                Long.toString(config.getTtl().toSeconds()));
+                    } catch (RuntimeException e) {
+                        log.warn("Redis agenda eviction failed: {}", e.getMessage());
+                    }
+                } else {
+                    localGenerations.asMap().compute(userId, (id, current) -> {
+                        localAgendas.invalidate(key(userId, day));
+                        return generationSequence.incrementAndGet();
+                    });
+                }
+            }
+        });
+    }
+
+    private void patch(UUID userId, LocalDate day, String taskId, String value) {
+        String key = key(userId, day);
+        if (config.isRedisEnabled()) {
+            try {
+                redisTemplate.execute(PATCH_SCRIPT, List.of(key, generationKey(userId)), taskId, value,
+                        Long.toString(config.getTtl().toSeconds()));
+            } catch (RuntimeException e) {
+                // Непропатченная повестка отдавала бы старые данные до конца дня
+                log.warn("Redis agenda patch failed, evicting: {}", e.getMessage());
+                try {
+                    redisTemplate.delete(key);
+                } catch (RuntimeException ignored) {
+                    // Redis недоступен целиком - повестка истечет по ttl
+                }
+            }
+            return;
+        }
+        localGenerations.asMap().compute(userId, (id, current) -> {
+            localAgendas.asMap().computeIfPresent(key, (k, agenda) -> {
+                if (value.isEmpty()) {
+                    agenda.remove(taskId);
+                } else {
+                    agenda.put(taskId, value);
+                }
+                return agenda;
+            });
+            return generationSequence.incrementAndGet();
+        });
+    }
+
+    private boolean isToday(LocalDateTime deadline) {
+        return deadline != null && deadline.toLocalDate().equals(today());
+    }
+
+    /**
+     * Внутри транзакции - после коммита, чтобы повестка не увидела откаченные изменения
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private String serialize(TaskResponse task) {
+        try {
+            return objectMapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать задачу повестки", e);
+        }
+    }
+
+    // {userId} - hash tag: повестка, ее поколение и временный ключ в одном слоте Redis Cluster
+    private String key(UUID userId, LocalDate day) {
+        return config.getRedisKeyPrefix() + day + ":{" + userId + "}";
+    }
+
+    private String generationKey(UUID userId) {
+        return config.getRedisKeyPrefix() + "gen:{" + userId + "}";
+    }
+}
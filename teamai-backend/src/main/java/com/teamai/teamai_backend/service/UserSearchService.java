@@ -0,0 +1,177 @@
+package com.teamai.teamai_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.UserSearchConfig;
+import com.teamai.teamai_backend.exception.BadRequestException;
+import com.teamai.teamai_backend.model.dto.response.UserResponse;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск пользователей для выбора участников (автодополнение по email и имени).
+ * Сначала совпадения с начала email или имени, затем с начала слова в имени, затем подстрока.
+ * Запрос к БД ранжирует так же и ограничен limit, идет по индексам V6; ответы кэшируются на cacheTtl,
+ * а полный ответ на "iva" без БД отвечает на "ivan", "ivano" при наборе
+ */
+@Service
+public class UserSearchService {
+
+    private static final int NO_MATCH = 3;
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final UserSearchConfig config;
+    private final Cache<String, Result> cache;
+    private final Counter hits;
+    private final Counter narrowedHits;
+    private final Counter misses;
+
+    public UserSearchService(UserRepository userRepository, UserService userService,
+                             UserSearchConfig config, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaxEntries())
+                .expireAfterWrite(config.getCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.search");
+        this.hits = meterRegistry.counter("user.search.cache", "result", "hit");
+        this.narrowedHits = meterRegistry.counter("user.search.cache", "result", "narrowed");
+        this.misses = meterRegistry.counter("user.search.cache", "result", "miss");
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserResponse> search(String query, Integer limit) {
+        String term = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int size = limit == null ? config.getDefaultLimit() : limit;
+        if (size < 1) {
+            throw new BadRequestException("limit должен быть больше 0");
+        }
+        size = Math.min(size, config.getMaxLimit());
+
+        if (!config.isCacheEnabled()) {
+            return load(term, size).getUsers();
+        }
+        String key = size + ":" + term;
+        Result cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.getUsers();
+        }
+        Result narrowed = narrow(term, size);
+        if (narrowed != null) {
+            narrowedHits.increment();
+            cache.put(key, narrowed);
+            return narrowed.getUsers();
+        }
+        misses.increment();
+        Result result = load(term, size);
+        cache.put(key, result);
+        return result.getUsers();
+    }
+
+    /**
+     * Полный (меньше limit) ответ на более короткий запрос содержит все совпадения с term:
+     * кто содержит "ivan", содержит и "iva"
+     */
+    private Result narrow(String term, int size) {
+        for (int length = term.length() - 1; length >= config.getMinContainsLength(); length--) {
+            Result shorter = cache.getIfPresent(size + ":" + term.substring(0, length));
+            if (shorter != null && shorter.isComplete()) {
+                List<UserResponse> users = shorter.getUsers().stream()
+                        .filter(user -> rank(user, term) < NO_MATCH)
+                        .sorted(ranking(term))
+                        .toList();
+                return new Result(users, true);
+            }
+        }
+        return null;
+    }
+
+    private Result load(String term, int size) {
+        String escaped = escapeLike(term);
+        Set<UUID> ids = new LinkedHashSet<>(userRepository.searchIds(escaped + "%", escaped, size));
+        // Префиксных совпадений хватает на limit - подстроки ниже по рангу и не нужны
+        boolean complete = false;
+        if (ids.size() < size && term.length() >= config.getMinContainsLength()) {
+            List<UUID> containing = userRepository.searchIds("%" + escaped + "%", escaped, size);
+            ids.addAll(containing);
+            // Подстрока покрывает и префикс: меньше limit строк - это все совпадения
+            complete = containing.size() < size;
+        }
+        if (ids.isEmpty()) {
+            return new Result(Collections.emptyList(), complete);
+        }
+
+        Map<UUID, User> users = userRepository.findWithSkillsByIdIn(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity(), (first, second) -> first));
+        List<UserResponse> ranked = ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(userService::mapToUserResponse)
+                .sorted(ranking(term))
+                .limit(size)
+                .toList();
+        return new Result(ranked, complete);
+    }
+
+    /**
+     * 0 - email или имя начинается с term, 1 - слово в имени начинается с term, 2 - подстрока
+     */
+    static int rank(UserResponse user, String term) {
+        String email = lower(user.getEmail());
+        String name = lower(user.getName());
+        if (email.startsWith(term) || name.startsWith(term)) {
+            return 0;
+        }
+        if (name.contains(" " + term)) {
+            return 1;
+        }
+        if (email.contains(term) || name.contains(term)) {
+            return 2;
+        }
+        return NO_MATCH;
+    }
+
+    static Comparator<UserResponse> ranking(String term) {
+        return Comparator.<UserResponse>comparingInt(user -> rank(user, term))
+                .thenComparing(user -> lower(user.getName()))
+                .thenComparing(user -> lower(user.getEmail()));
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * %, _ и \ из запроса ищутся как обычные символы (\ - escape по умолчанию в LIKE PostgreSQL)
+     */
+    static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Value
+    private static class Result {
+        List<UserResponse> users;
+        /**
+         * Все совпадения с запросом (их меньше limit) - можно фильтровать для уточненных запросов
+         */
+        boolean complete;
+    }
+}
@@ -44,19 +44,6 @@ public class UserService {
         return mapToUserResponse(user);
     }
     
-    @Transactional(readOnly = true)
-    public java.util.List<UserResponse> searchUsersByEmail(String email) {
-        if (email == null || email.trim().isEmpty()) {
-            return java.util.Collections.emptyList();
-        }
-        
-        java.util.List<User> users = userRepository.searchByEmailContaining(email.trim());
-        
-        return users.stream()
-                .map(this::mapToUserResponse)
-                .toList();
-    }
-    
     @Transactional
     public UserResponse updateSkills(UUID userId, List<String> skillNames) {
         User user = userRepository.findById(userId)
@@ -81,7 +68,7 @@ public class UserService {
         return mapToUserResponse(user);
     }
     
-    private UserResponse mapToUserResponse(User user) {
+    UserResponse mapToUserResponse(User user) {
         return UserResponse.builder()
                 .id(user.getId())
                 .name(user.getName())
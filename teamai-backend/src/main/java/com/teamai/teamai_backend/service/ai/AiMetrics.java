@@ -0,0 +1,150 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.exception.LlmException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Метрики AI конвейера (экспортируются через /actuator/prometheus):
+ * <ul>
+ *   <li>ai.distribution.stage{stage} - время этапов одного распределения задач</li>
+ *   <li>ai.distribution.duration{outcome} - распределение целиком</li>
+ *   <li>ai.llm.upstream{kind, provider, model, status} - каждый HTTP запрос к провайдеру,
+ *       для стрима - до первой строки ответа</li>
+ *   <li>ai.fallback{operation, reason} - локальные ответы вместо модели</li>
+ *   <li>ai.distribution.parse.failures{reason} - отброшенные объекты задач и оборванный JSON</li>
+ * </ul>
+ * Токены считает {@link AiUsageTracker} (ai.llm.tokens{type}).
+ */
+@Component
+public class AiMetrics {
+
+    public enum Stage {
+        LOAD("load"),
+        PROMPT_BUILD("prompt_build"),
+        PARSE("parse"),
+        ASSIGNMENT("assignment"),
+        PERSISTENCE("persistence");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+
+    public AiMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("ai.distribution.stage")
+                    .description("Время этапа AI распределения задач")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stages.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param outcome ai - все задачи от модели, partial - ответ оборвался, template - шаблонные задачи
+     */
+    public void recordDistribution(String outcome, long nanos) {
+        Timer.builder("ai.distribution.duration")
+                .description("AI распределение задач целиком")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordUpstream(boolean stream, LlmProvider provider, String model, Throwable error, long nanos) {
+        Timer.builder("ai.llm.upstream")
+                .description("Запросы к провайдеру LLM, для стрима - до первой строки")
+                .tag("kind", stream ? "stream" : "chat")
+                .tag("provider", provider.getName())
+                .tag("model", model != null ? model : "unknown")
+                .tag("status", statusOf(error))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param operation chat, chat_stream или distribution
+     */
+    public void recordFallback(String operation, String reason) {
+        Counter.builder("ai.fallback")
+                .description("Локальные ответы вместо ответа модели")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * @param reason invalid_task - объект задачи без обязательных полей, malformed_json - разбор остановлен
+     */
+    public void recordParseFailure(String reason) {
+        Counter.builder("ai.distribution.parse.failures")
+                .description("Ошибки разбора задач из ответа модели")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Причина fallback для тега reason
+     */
+    public static String fallbackReason(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof CallNotPermittedException) {
+            return "circuit_open";
+        }
+        if (cause instanceof BulkheadFullException) {
+            return "bulkhead_full";
+        }
+        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+            return "timeout";
+        }
+        return "upstream_error";
+    }
+
+    private static String statusOf(Throwable error) {
+        if (error == null) {
+            return "200";
+        }
+        Throwable cause = unwrap(error);
+        if (cause instanceof LlmException llmException) {
+            return llmException.getStatusCode() > 0 ? String.valueOf(llmException.getStatusCode()) : "invalid_response";
+        }
+        if (cause instanceof CancellationException) {
+            return "cancelled";
+        }
+        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+            return "timeout";
+        }
+        return "io_error";
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
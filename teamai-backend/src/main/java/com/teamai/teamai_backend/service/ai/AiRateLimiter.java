@@ -0,0 +1,161 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.AiRateLimitConfig;
+import com.teamai.teamai_backend.exception.RateLimitException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Лимит запросов к AI на пользователя: отдельный token bucket на чат и на распределение задач.
+ *
+ * Бакет хранится как одно число - момент, когда он снова станет полным (GCRA):
+ * запрос сдвигает его на интервал пополнения и проходит, если сдвиг не ушел дальше
+ * capacity интервалов от текущего времени. Локально это CAS по AtomicLong без блокировок,
+ * в Redis - Lua скрипт со временем сервера Redis, чтобы лимит был общим для всех инстансов.
+ * Если Redis недоступен, запрос проверяется по локальному бакету.
+ */
+@Component
+@Slf4j
+public class AiRateLimiter {
+
+    public enum Operation {
+        CHAT("chat", "Слишком много запросов к AI чату"),
+        DISTRIBUTION("distribution", "Слишком много запусков AI распределения задач"),
+        BULK_DISTRIBUTION("bulk_distribution", "Слишком много запусков массового распределения задач");
+
+        private final String key;
+        private final String message;
+
+        Operation(String key, String message) {
+            this.key = key;
+            this.message = message;
+        }
+    }
+
+    /**
+     * KEYS[1] - бакет, ARGV[1] - интервал пополнения, ARGV[2] - capacity * интервал (мкс).
+     * Возвращает 0 если запрос прошел, иначе сколько мкс ждать.
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local interval = tonumber(ARGV[1])
+            local burst = tonumber(ARGV[2])
+            local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+            if tat < now then tat = now end
+            local nextTat = tat + interval
+            local wait = nextTat - now - burst
+            if wait > 0 then return wait end
+            redis.call('SET', KEYS[1], nextTat, 'PX', math.ceil((nextTat - now) / 1000))
+            return 0
+            """, Long.class);
+
+    private final AiRateLimitConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final Map<Operation, Bucket> buckets = new EnumMap<>(Operation.class);
+
+    public AiRateLimiter(AiRateLimitConfig config, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        buckets.put(Operation.CHAT, new Bucket(Operation.CHAT, config.getChat(), meterRegistry));
+        buckets.put(Operation.DISTRIBUTION, new Bucket(Operation.DISTRIBUTION, config.getDistribution(), meterRegistry));
+        buckets.put(Operation.BULK_DISTRIBUTION,
+                new Bucket(Operation.BULK_DISTRIBUTION, config.getBulkDistribution(), meterRegistry));
+    }
+
+    /**
+     * Списывает один запрос из бакета пользователя
+     *
+     * @throws RateLimitException если бакет пуст, с временем до следующего доступного запроса
+     */
+    public void acquire(UUID userId, Operation operation) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Bucket bucket = buckets.get(operation);
+        long waitNanos = config.isRedisEnabled()
+                ? acquireRedis(bucket, userId)
+                : bucket.acquireLocal(userId);
+        if (waitNanos > 0) {
+            bucket.rejected.increment();
+            throw new RateLimitException(operation.message, Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private long acquireRedis(Bucket bucket, UUID userId) {
+        try {
+            Long waitMicros = redisTemplate.execute(ACQUIRE_SCRIPT,
+                    List.of(config.getRedisKeyPrefix() + bucket.operation.key + ":" + userId),
+                    String.valueOf(bucket.intervalNanos / 1000),
+                    String.valueOf(bucket.burstNanos / 1000));
+            return waitMicros != null ? TimeUnit.MICROSECONDS.toNanos(waitMicros) : 0;
+        } catch (RuntimeException e) {
+            log.warn("Redis rate limit check failed, using local bucket: {}", e.getMessage());
+            return bucket.acquireLocal(userId);
+        }
+    }
+
+    private final class Bucket {
+
+        private final Operation operation;
+        private final long intervalNanos;
+        private final long burstNanos;
+        /**
+         * userId -> момент System.nanoTime(), когда бакет снова полный.
+         * Бакет без обращений дольше burst уже полный, поэтому вытеснение ничего не теряет.
+         */
+        private final Cache<UUID, AtomicLong> fullAt;
+        private final Counter rejected;
+
+        Bucket(Operation operation, AiRateLimitConfig.Budget budget, MeterRegistry meterRegistry) {
+            if (budget.getCapacity() <= 0 || budget.getRefillTokens() <= 0
+                    || budget.getRefillPeriod() == null || budget.getRefillPeriod().isNegative()
+                    || budget.getRefillPeriod().isZero()) {
+                throw new IllegalStateException("Некорректный лимит ai.rate-limit." + operation.key);
+            }
+            this.operation = operation;
+            // Не меньше 1 мкс: интервал передается в Redis в микросекундах
+            this.intervalNanos = Math.max(1000, budget.getRefillPeriod().toNanos() / budget.getRefillTokens());
+            this.burstNanos = intervalNanos * budget.getCapacity();
+            this.fullAt = Caffeine.newBuilder()
+                    .maximumSize(config.getMaxTrackedUsers())
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .build();
+            this.rejected = meterRegistry.counter("ai.rate.limited", "operation", operation.key);
+        }
+
+        /**
+         * @return 0 если запрос прошел, иначе сколько наносекунд ждать
+         */
+        long acquireLocal(UUID userId) {
+            AtomicLong state = fullAt.get(userId, id -> new AtomicLong(System.nanoTime()));
+            while (true) {
+                long now = System.nanoTime();
+                long current = state.get();
+                long next = (current - now < 0 ? now : current) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (state.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
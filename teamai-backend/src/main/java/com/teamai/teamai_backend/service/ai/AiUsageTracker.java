@@ -0,0 +1,125 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.AiRateLimitConfig;
+import com.teamai.teamai_backend.model.dto.response.AiUsageResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учет токенов OpenAI по пользователям (поле usage ответа).
+ *
+ * Локально счетчики живут в памяти инстанса до вытеснения; в режиме
+ * ai.rate-limit.redis-enabled пишутся в hash пользователя в Redis и суммируются
+ * по всем инстансам. Общий расход без разбивки по пользователям - счетчик ai.llm.tokens{type}.
+ */
+@Component
+@Slf4j
+public class AiUsageTracker {
+
+    private static final String REQUESTS = "requests";
+    private static final String PROMPT_TOKENS = "prompt_tokens";
+    private static final String COMPLETION_TOKENS = "completion_tokens";
+
+    private final AiRateLimitConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<UUID, Usage> localUsage;
+    private final Counter promptTokens;
+    private final Counter completionTokens;
+
+    public AiUsageTracker(AiRateLimitConfig config, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        this.localUsage = Caffeine.newBuilder()
+                .maximumSize(config.getMaxTrackedUsers())
+                .build();
+        this.promptTokens = meterRegistry.counter("ai.llm.tokens", "type", "prompt");
+        this.completionTokens = meterRegistry.counter("ai.llm.tokens", "type", "completion");
+    }
+
+    /**
+     * Учитывает ответ модели. Fallback-ответы и вызовы без пользователя не учитываются.
+     */
+    public void record(UUID userId, LlmResponse response) {
+        if (response == null || response.isFallback()) {
+            return;
+        }
+        promptTokens.increment(response.getPromptTokens());
+        completionTokens.increment(response.getCompletionTokens());
+        if (userId == null) {
+            return;
+        }
+
+        if (config.isRedisEnabled()) {
+            try {
+                HashOperations<String, Object, Object> hash = redisTemplate.opsForHash();
+                String key = keyOf(userId);
+                hash.increment(key, REQUESTS, 1);
+                hash.increment(key, PROMPT_TOKENS, response.getPromptTokens());
+                hash.increment(key, COMPLETION_TOKENS, response.getCompletionTokens());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Redis usage write failed, counting locally: {}", e.getMessage());
+            }
+        }
+        Usage usage = localUsage.get(userId, id -> new Usage());
+        usage.requests.increment();
+        usage.promptTokens.add(response.getPromptTokens());
+        usage.completionTokens.add(response.getCompletionTokens());
+    }
+
+    public AiUsageResponse getUsage(UUID userId) {
+        long requests = 0;
+        long prompt = 0;
+        long completion = 0;
+
+        if (config.isRedisEnabled()) {
+            try {
+                Map<Object, Object> stored = redisTemplate.opsForHash().entries(keyOf(userId));
+                requests = parse(stored.get(REQUESTS));
+                prompt = parse(stored.get(PROMPT_TOKENS));
+                completion = parse(stored.get(COMPLETION_TOKENS));
+            } catch (RuntimeException e) {
+                log.warn("Redis usage read failed: {}", e.getMessage());
+            }
+        }
+        // Локальные счетчики: основной режим или то, что не удалось записать в Redis
+        Usage usage = localUsage.getIfPresent(userId);
+        if (usage != null) {
+            requests += usage.requests.sum();
+            prompt += usage.promptTokens.sum();
+            completion += usage.completionTokens.sum();
+        }
+
+        return AiUsageResponse.builder()
+                .requests(requests)
+                .promptTokens(prompt)
+                .completionTokens(completion)
+                .estimatedCost(prompt / 1000.0 * config.getPromptPricePer1k()
+                        + completion / 1000.0 * config.getCompletionPricePer1k())
+                .build();
+    }
+
+    private String keyOf(UUID userId) {
+        return config.getRedisKeyPrefix() + "usage:" + userId;
+    }
+
+    private static long parse(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0;
+    }
+
+    private static final class Usage {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+    }
+}
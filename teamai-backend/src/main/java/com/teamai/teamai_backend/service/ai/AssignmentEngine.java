@@ -0,0 +1,188 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.TaskSkill;
+import com.teamai.teamai_backend.model.entity.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Назначение задач участникам как задача о назначениях минимальной стоимости.
+ *
+ * Стоимость пары задача-участник складывается из несоответствия навыкам
+ * (по {@link SkillIndex}), отказа от кандидата, предложенного моделью, и загрузки.
+ * Каждый участник представлен несколькими слотами с растущей стоимостью
+ * (текущие открытые часы + уже назначенное), поэтому венгерский алгоритм
+ * на слотах дает назначение, балансирующее нагрузку.
+ *
+ * Загрузка считается относительно средней по команде (вместе с новыми задачами)
+ * и ограничена MAX_LOAD_RATIO: часы сами по себе не сравнимы с весом навыков,
+ * а участник с нужными навыками и загрузкой около средней должен получать задачу.
+ *
+ * Результат детерминирован: участники упорядочиваются по имени и id.
+ */
+@Component
+public class AssignmentEngine {
+
+    public static final int DEFAULT_TASK_HOURS = 8;
+
+    private static final double SKILL_WEIGHT = 100.0;
+    private static final double PREFERENCE_WEIGHT = 15.0;
+    /**
+     * Стоимость загрузки, равной средней по команде
+     */
+    private static final double LOAD_WEIGHT = 40.0;
+    /**
+     * Выше этой доли от средней загрузка не растет: участник считается полностью занятым
+     */
+    private static final double MAX_LOAD_RATIO = 3.0;
+
+    /**
+     * @param openHours          часы по открытым задачам участников (отсутствующие - 0)
+     * @param preferredAssignees имя, предложенное моделью, по индексу задачи (может быть null)
+     * @return исполнитель для каждой задачи в том же порядке
+     */
+    public List<User> assign(List<User> members, Map<UUID, Long> openHours,
+                             List<Task> tasks, List<String> preferredAssignees) {
+        if (tasks.isEmpty()) {
+            return List.of();
+        }
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Нет участников для назначения задач");
+        }
+
+        List<User> team = new ArrayList<>(members);
+        team.sort(Comparator.comparing((User u) -> u.getName() != null ? u.getName() : "")
+                .thenComparing(User::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        int taskCount = tasks.size();
+        int memberCount = team.size();
+        SkillIndex index = new SkillIndex(team);
+
+        double[] load = new double[memberCount];
+        double totalHours = 0;
+        for (int m = 0; m < memberCount; m++) {
+            load[m] = openHours.getOrDefault(team.get(m).getId(), 0L);
+            totalHours += load[m];
+        }
+
+        double averageHours = 0;
+        double[][] baseCost = new double[taskCount][memberCount];
+        for (int t = 0; t < taskCount; t++) {
+            Task task = tasks.get(t);
+            averageHours += hoursOf(task);
+            BitSet required = index.encode(task.getRequiredSkills().stream()
+                    .map(TaskSkill::getSkillName)
+                    .toList());
+            String preferred = preferredAssignees != null && t < preferredAssignees.size()
+                    ? preferredAssignees.get(t) : null;
+
+            for (int m = 0; m < memberCount; m++) {
+                double cost = SKILL_WEIGHT * (1.0 - index.fit(m, required));
+                if (preferred != null && !preferred.isBlank() && !preferred.equalsIgnoreCase(team.get(m).getName())) {
+                    cost += PREFERENCE_WEIGHT;
+                }
+                baseCost[t][m] = cost;
+            }
+        }
+        totalHours += averageHours;
+        averageHours /= taskCount;
+        // Средняя загрузка после распределения; не меньше одной задачи, чтобы не делить на 0
+        double averageLoad = Math.max(totalHours / memberCount, averageHours);
+
+        // Слотов на участника хватает, чтобы разложить все задачи, плюс запас для перекоса по навыкам
+        int slotsPerMember = (taskCount + memberCount - 1) / memberCount + 1;
+        int[] slotOfTask = solve(baseCost, load, averageHours, averageLoad, slotsPerMember);
+
+        List<User> assignees = new ArrayList<>(taskCount);
+        for (int t = 0; t < taskCount; t++) {
+            assignees.add(team.get(slotOfTask[t] / slotsPerMember));
+        }
+        return assignees;
+    }
+
+    public static int hoursOf(Task task) {
+        return task.getEstimatedHours() != null && task.getEstimatedHours() > 0
+                ? task.getEstimatedHours()
+                : DEFAULT_TASK_HOURS;
+    }
+
+    /**
+     * Венгерский алгоритм (потенциалы, O(n^2 * m)) для прямоугольной матрицы
+     * задачи x слоты. Матрица слотов не хранится: стоимость слота j участника m -
+     * базовая стоимость плюс загрузка участника после j уже назначенных задач
+     * в долях averageLoad.
+     */
+    private static int[] solve(double[][] baseCost, double[] load, double averageHours, double averageLoad,
+                               int slotsPerMember) {
+        int n = baseCost.length;
+        int m = baseCost[0].length * slotsPerMember;
+
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                int j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    int member = (j - 1) / slotsPerMember;
+                    int slot = (j - 1) % slotsPerMember;
+                    double loadRatio = (load[member] + slot * averageHours) / averageLoad;
+                    double cost = baseCost[i0 - 1][member] + LOAD_WEIGHT * Math.min(loadRatio, MAX_LOAD_RATIO);
+                    double current = cost - u[i0] - v[j];
+                    if (current < minv[j]) {
+                        minv[j] = current;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] result = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0) {
+                result[p[j] - 1] = j - 1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,146 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.ChatCacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Кэш ответов AI чата: локальный Caffeine (LRU по размеру + TTL) перед Redis.
+ * Попадание в кэш полностью исключает вызов OpenAI.
+ * Ошибки Redis не ломают чат - такой запрос считается промахом.
+ *
+ * Ключ - нормализованный вопрос, модель, температура, системные сообщения и контекст ответа
+ * (контекст клиента и найденные задачи/проекты), а не весь текст запроса: одинаковый вопрос
+ * при том же контексте попадает в кэш. Запросы с историей разговора не кэшируются -
+ * ответ зависит от предыдущих реплик, и повторно такой же запрос почти не встречается.
+ */
+@Component
+@Slf4j
+public class ChatResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.…]+$");
+
+    private final ChatCacheConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<String, String> localCache;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    public ChatResponseCache(ChatCacheConfig config, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "ai.chat.local");
+        this.localHits = meterRegistry.counter("ai.chat.cache", "result", "hit", "tier", "local");
+        this.redisHits = meterRegistry.counter("ai.chat.cache", "result", "hit", "tier", "redis");
+        this.misses = meterRegistry.counter("ai.chat.cache", "result", "miss", "tier", "none");
+    }
+
+    /**
+     * @param question вопрос пользователя без контекста
+     * @param context всё, кроме вопроса, от чего зависит ответ: контекст клиента и найденные задачи/проекты
+     */
+    public Optional<String> get(LlmRequest request, String question, String context) {
+        if (!config.isEnabled() || hasHistory(request)) {
+            return Optional.empty();
+        }
+        String key = keyOf(request, question, context);
+
+        String cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            localHits.increment();
+            return Optional.of(cached);
+        }
+
+        if (config.isRedisEnabled()) {
+            try {
+                cached = redisTemplate.opsForValue().get(config.getRedisKeyPrefix() + key);
+            } catch (RuntimeException e) {
+                log.warn("Redis chat cache read failed: {}", e.getMessage());
+            }
+            if (cached != null) {
+                localCache.put(key, cached);
+                redisHits.increment();
+                return Optional.of(cached);
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(LlmRequest request, String question, String context, String response) {
+        if (!config.isEnabled() || hasHistory(request)) {
+            return;
+        }
+        String key = keyOf(request, question, context);
+        localCache.put(key, response);
+
+        if (config.isRedisEnabled()) {
+            try {
+                redisTemplate.opsForValue().set(config.getRedisKeyPrefix() + key, response, config.getTtl());
+            } catch (RuntimeException e) {
+                log.warn("Redis chat cache write failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * SHA-256 от модели, температуры, системных сообщений, вопроса и контекста; вопрос
+     * нормализуется, чтобы "Как начать?" и "как  начать" давали один ключ
+     */
+    String keyOf(LlmRequest request, String question, String context) {
+        StringBuilder source = new StringBuilder()
+                .append(request.getModel()).append('\u0000')
+                .append(request.getTemperature()).append('\u0000');
+        for (LlmMessage message : request.getMessages()) {
+            if ("system".equals(message.getRole())) {
+                source.append(message.getContent()).append('\u0000');
+            }
+        }
+        source.append(normalize(question)).append('\u0001')
+                .append(context != null ? context : "");
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Кроме системного промпта и вопроса в запросе есть прошлые ходы разговора или их краткое содержание
+     */
+    private static boolean hasHistory(LlmRequest request) {
+        return request.getMessages().size() > 2;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = WHITESPACE.matcher(text.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+    }
+}
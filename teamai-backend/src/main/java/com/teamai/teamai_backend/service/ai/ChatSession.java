@@ -0,0 +1,126 @@
+package com.teamai.teamai_backend.service.ai;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Память одного разговора: кольцевой буфер последних реплик и сводка более ранних.
+ *
+ * Реплика, вытесненная из буфера (по числу реплик или по бюджету токенов),
+ * сворачивается в строку сводки "вопрос → начало ответа"; сводка ограничена
+ * по токенам и теряет самые старые строки. Поэтому размер сессии и ее доля в
+ * промпте не растут с длиной разговора. Сводка строится без вызова модели.
+ */
+@Data
+@NoArgsConstructor
+public class ChatSession {
+
+    private static final int SUMMARY_QUESTION_CHARS = 120;
+    private static final int SUMMARY_ANSWER_CHARS = 160;
+
+    private String summary = "";
+    private ArrayDeque<Turn> turns = new ArrayDeque<>();
+
+    /**
+     * Добавляет реплику и сжимает историю до лимитов
+     *
+     * @param maxTurns         размер буфера реплик
+     * @param tokenBudget      бюджет токенов на сводку и реплики вместе
+     * @param summaryMaxTokens предел токенов сводки
+     * @param maxTurnTokens    предел токенов одной реплики
+     */
+    public void append(String userMessage, String reply, int maxTurns, int tokenBudget, int summaryMaxTokens,
+                       int maxTurnTokens) {
+        String user = truncate(userMessage, maxTurnTokens / 2);
+        String assistant = truncate(reply, maxTurnTokens - estimateTokens(user));
+        turns.addLast(new Turn(user, assistant, estimateTokens(user) + estimateTokens(assistant)));
+
+        // Последнюю реплику оставляем всегда: она ограничена maxTurnTokens
+        while (turns.size() > maxTurns || (turns.size() > 1 && historyTokens() > tokenBudget)) {
+            fold(turns.removeFirst(), summaryMaxTokens);
+        }
+    }
+
+    /**
+     * Сводка и реплики в формате сообщений модели, от старых к новым
+     */
+    public List<LlmMessage> toMessages() {
+        List<LlmMessage> messages = new ArrayList<>(turns.size() * 2 + 1);
+        if (!summary.isEmpty()) {
+            messages.add(LlmMessage.system("Краткое содержание начала разговора:\n" + summary));
+        }
+        for (Turn turn : turns) {
+            messages.add(LlmMessage.user(turn.getUser()));
+            messages.add(LlmMessage.assistant(turn.getAssistant()));
+        }
+        return messages;
+    }
+
+    public int historyTokens() {
+        int tokens = estimateTokens(summary);
+        for (Turn turn : turns) {
+            tokens += turn.getTokens();
+        }
+        return tokens;
+    }
+
+    private void fold(Turn turn, int summaryMaxTokens) {
+        String line = "- " + abbreviate(turn.getUser(), SUMMARY_QUESTION_CHARS)
+                + " → " + abbreviate(firstSentence(turn.getAssistant()), SUMMARY_ANSWER_CHARS);
+        String folded = summary.isEmpty() ? line : summary + "\n" + line;
+        while (estimateTokens(folded) > summaryMaxTokens) {
+            int lineEnd = folded.indexOf('\n');
+            if (lineEnd < 0) {
+                folded = truncate(folded, summaryMaxTokens);
+                break;
+            }
+            folded = folded.substring(lineEnd + 1);
+        }
+        summary = folded;
+    }
+
+    /**
+     * Оценка числа токенов без токенизатора: ~3 символа на токен для смеси
+     * русского и английского текста в cl100k (с запасом для кириллицы)
+     */
+    public static int estimateTokens(String text) {
+        return text == null || text.isEmpty() ? 0 : (text.length() + 2) / 3;
+    }
+
+    private static String truncate(String text, int maxTokens) {
+        if (text == null) {
+            return "";
+        }
+        int maxChars = Math.max(0, maxTokens) * 3;
+        return text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+
+    private static String abbreviate(String text, int maxChars) {
+        String flat = text.replace('\n', ' ').trim();
+        return flat.length() <= maxChars ? flat : flat.substring(0, maxChars - 1) + "…";
+    }
+
+    private static String firstSentence(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?' || c == '\n') && i > 20) {
+                return text.substring(0, i + 1);
+            }
+        }
+        return text;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Turn {
+        private String user;
+        private String assistant;
+        private int tokens;
+    }
+}
@@ -0,0 +1,235 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.ChatMemoryConfig;
+import com.teamai.teamai_backend.exception.BadRequestException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Серверная память AI чата: разговоры пользователя с ограниченной историей ({@link ChatSession}).
+ *
+ * Вытеснение: у пользователя не больше maxSessionsPerUser разговоров (LRU),
+ * разговор без сообщений дольше sessionTtl удаляется, локально хранится не больше
+ * maxUsers пользователей. В режиме redis-enabled разговор - JSON в Redis с TTL,
+ * общий для всех инстансов; при ошибке Redis используется локальная память.
+ * Два одновременных сообщения в один разговор могут потерять одну реплику (last write wins).
+ */
+@Component
+@Slf4j
+public class ConversationMemory {
+
+    public static final String DEFAULT_CONVERSATION = "default";
+
+    private static final Pattern CONVERSATION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final ChatMemoryConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<UUID, UserSessions> localSessions;
+    private final DistributionSummary historyTokens;
+
+    public ConversationMemory(ChatMemoryConfig config, StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localSessions = Caffeine.newBuilder()
+                .maximumSize(config.getMaxUsers())
+                .expireAfterAccess(config.getSessionTtl())
+                .build();
+        this.historyTokens = DistributionSummary.builder("ai.chat.history.tokens")
+                .description("Оценка токенов истории разговора в промпте чата")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверенный идентификатор разговора; без него - разговор по умолчанию
+     */
+    public static String conversationId(String requested) {
+        if (requested == null || requested.isBlank()) {
+            return DEFAULT_CONVERSATION;
+        }
+        if (!CONVERSATION_ID.matcher(requested).matches()) {
+            throw new BadRequestException("conversationId: до 64 символов из латиницы, цифр, '-' и '_'");
+        }
+        return requested;
+    }
+
+    /**
+     * Копия разговора для сборки промпта; пустая, если память выключена или разговора нет
+     */
+    public ChatSession load(UUID userId, String conversationId) {
+        if (!config.isEnabled() || userId == null) {
+            return new ChatSession();
+        }
+        ChatSession session = null;
+        if (config.isRedisEnabled()) {
+            try {
+                session = loadRedis(userId, conversationId);
+                historyTokens.record(session.historyTokens());
+                return session;
+            } catch (RuntimeException e) {
+                log.warn("Redis chat memory read failed, using local memory: {}", e.getMessage());
+            }
+        }
+        UserSessions sessions = localSessions.getIfPresent(userId);
+        if (sessions != null) {
+            session = sessions.copyOf(conversationId);
+        }
+        if (session == null) {
+            session = new ChatSession();
+        }
+        historyTokens.record(session.historyTokens());
+        return session;
+    }
+
+    /**
+     * Добавляет обмен репликами в разговор и сжимает историю до бюджета
+     */
+    public void append(UUID userId, String conversationId, String userMessage, String reply) {
+        if (!config.isEnabled() || userId == null) {
+            return;
+        }
+        if (config.isRedisEnabled()) {
+            try {
+                ChatSession session = loadRedis(userId, conversationId);
+                appendTo(session, userMessage, reply);
+                saveRedis(userId, conversationId, session);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Redis chat memory write failed, using local memory: {}", e.getMessage());
+            }
+        }
+        localSessions.get(userId, id -> new UserSessions(config.getMaxSessionsPerUser()))
+                .update(conversationId, config.getSessionTtl().toMillis(), session -> appendTo(session, userMessage, reply));
+    }
+
+    public void clear(UUID userId, String conversationId) {
+        UserSessions sessions = localSessions.getIfPresent(userId);
+        if (sessions != null) {
+            sessions.remove(conversationId);
+        }
+        if (config.isRedisEnabled()) {
+            try {
+                redisTemplate.delete(sessionKey(userId, conversationId));
+                redisTemplate.opsForZSet().remove(indexKey(userId), conversationId);
+            } catch (RuntimeException e) {
+                log.warn("Redis chat memory delete failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void appendTo(ChatSession session, String userMessage, String reply) {
+        session.append(userMessage, reply, config.getMaxTurns(), config.getPromptTokenBudget(),
+                config.getSummaryMaxTokens(), config.getMaxTurnTokens());
+    }
+
+    private ChatSession loadRedis(UUID userId, String conversationId) {
+        String json = redisTemplate.opsForValue().get(sessionKey(userId, conversationId));
+        if (json == null) {
+            return new ChatSession();
+        }
+        try {
+            return objectMapper.readValue(json, ChatSession.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Corrupted chat memory for user {}, starting over: {}", userId, e.getOriginalMessage());
+            return new ChatSession();
+        }
+    }
+
+    /**
+     * Разговор с TTL и индекс разговоров пользователя (ZSET по времени), лишние - самые давние - удаляются
+     */
+    private void saveRedis(UUID userId, String conversationId, ChatSession session) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(session);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать разговор", e);
+        }
+        String indexKey = indexKey(userId);
+        redisTemplate.opsForValue().set(sessionKey(userId, conversationId), json, config.getSessionTtl());
+        redisTemplate.opsForZSet().add(indexKey, conversationId, System.currentTimeMillis());
+        redisTemplate.expire(indexKey, config.getSessionTtl());
+
+        Long count = redisTemplate.opsForZSet().zCard(indexKey);
+        int excess = count != null ? (int) (count - config.getMaxSessionsPerUser()) : 0;
+        if (excess > 0) {
+            Set<String> evicted = redisTemplate.opsForZSet().range(indexKey, 0, excess - 1);
+            if (evicted != null && !evicted.isEmpty()) {
+                redisTemplate.delete(evicted.stream().map(id -> sessionKey(userId, id)).toList());
+                redisTemplate.opsForZSet().remove(indexKey, evicted.toArray());
+            }
+        }
+    }
+
+    private String sessionKey(UUID userId, String conversationId) {
+        return config.getRedisKeyPrefix() + userId + ":" + conversationId;
+    }
+
+    private String indexKey(UUID userId) {
+        return config.getRedisKeyPrefix() + userId;
+    }
+
+    /**
+     * Разговоры одного пользователя в порядке последнего обращения (LRU)
+     */
+    private static final class UserSessions {
+
+        private final Map<String, Stored> sessions;
+
+        UserSessions(int maxSessions) {
+            this.sessions = new LinkedHashMap<>(maxSessions + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                    return size() > maxSessions;
+                }
+            };
+        }
+
+        synchronized ChatSession copyOf(String conversationId) {
+            Stored stored = sessions.get(conversationId);
+            if (stored == null || stored.expiresAt < System.currentTimeMillis()) {
+                return null;
+            }
+            ChatSession copy = new ChatSession();
+            copy.setSummary(stored.session.getSummary());
+            copy.getTurns().addAll(stored.session.getTurns());
+            return copy;
+        }
+
+        synchronized void update(String conversationId, long ttlMillis, Consumer<ChatSession> change) {
+            long now = System.currentTimeMillis();
+            Stored stored = sessions.get(conversationId);
+            if (stored == null || stored.expiresAt < now) {
+                stored = new Stored();
+                sessions.put(conversationId, stored);
+            }
+            change.accept(stored.session);
+            stored.expiresAt = now + ttlMillis;
+        }
+
+        synchronized void remove(String conversationId) {
+            sessions.remove(conversationId);
+        }
+    }
+
+    private static final class Stored {
+        private final ChatSession session = new ChatSession();
+        private long expiresAt;
+    }
+}
@@ -0,0 +1,135 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.AiDistributionConfig;
+import com.teamai.teamai_backend.model.dto.response.DistributionPlanResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Планы распределения задач (режим preview) до их записи.
+ *
+ * План живет plan-ttl и доступен только создавшему его пользователю.
+ * {@link #take} забирает план атомарно, поэтому один план нельзя записать дважды.
+ * В режиме plan-redis-enabled планы хранятся в Redis и видны всем инстансам;
+ * при ошибке Redis используется локальный кэш.
+ */
+@Component
+@Slf4j
+public class DistributionPlanStore {
+
+    private final AiDistributionConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<UUID, StoredPlan> localPlans;
+
+    public DistributionPlanStore(AiDistributionConfig config, StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper) {
+        this.config = config;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localPlans = Caffeine.newBuilder()
+                .maximumSize(config.getMaxPlans())
+                .expireAfterWrite(config.getPlanTtl())
+                .build();
+    }
+
+    public void save(UUID userId, DistributionPlanResponse plan) {
+        StoredPlan stored = new StoredPlan(userId, plan);
+        if (config.isPlanRedisEnabled()) {
+            try {
+                Duration ttl = Duration.between(LocalDateTime.now(), plan.getExpiresAt());
+                if (!ttl.isNegative() && !ttl.isZero()) {
+                    redisTemplate.opsForValue().set(key(plan.getPlanId()), objectMapper.writeValueAsString(stored), ttl);
+                }
+                return;
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Не удалось сериализовать план распределения", e);
+            } catch (RuntimeException e) {
+                log.warn("Redis plan write failed, using local cache: {}", e.getMessage());
+            }
+        }
+        localPlans.put(plan.getPlanId(), stored);
+    }
+
+    public Optional<DistributionPlanResponse> find(UUID planId, UUID userId) {
+        StoredPlan stored = null;
+        if (config.isPlanRedisEnabled()) {
+            try {
+                stored = parse(redisTemplate.opsForValue().get(key(planId)));
+            } catch (RuntimeException e) {
+                log.warn("Redis plan read failed, using local cache: {}", e.getMessage());
+            }
+        }
+        if (stored == null) {
+            stored = localPlans.getIfPresent(planId);
+        }
+        return ownedBy(stored, userId);
+    }
+
+    /**
+     * Забирает план из хранилища; чужой план остается на месте
+     */
+    public Optional<DistributionPlanResponse> take(UUID planId, UUID userId) {
+        StoredPlan stored = null;
+        if (config.isPlanRedisEnabled()) {
+            try {
+                stored = parse(redisTemplate.opsForValue().getAndDelete(key(planId)));
+            } catch (RuntimeException e) {
+                log.warn("Redis plan take failed, using local cache: {}", e.getMessage());
+            }
+        }
+        if (stored == null) {
+            stored = localPlans.asMap().remove(planId);
+        }
+        if (stored != null && !stored.getUserId().equals(userId)) {
+            save(stored.getUserId(), stored.getPlan());
+            return Optional.empty();
+        }
+        return ownedBy(stored, userId);
+    }
+
+    private Optional<DistributionPlanResponse> ownedBy(StoredPlan stored, UUID userId) {
+        if (stored == null || !stored.getUserId().equals(userId)
+                || stored.getPlan().getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(stored.getPlan());
+    }
+
+    private StoredPlan parse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, StoredPlan.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Corrupted distribution plan in Redis: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private String key(UUID planId) {
+        return config.getPlanRedisKeyPrefix() + planId;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class StoredPlan {
+        private UUID userId;
+        private DistributionPlanResponse plan;
+    }
+}
@@ -0,0 +1,17 @@
+package com.teamai.teamai_backend.service.ai;
+
+/**
+ * Векторное представление текста для {@link KnowledgeIndex}.
+ *
+ * Вызывается синхронно в потоке запроса чата и при каждой записи задачи,
+ * поэтому реализация должна быть быстрой; векторы - единичной длины.
+ */
+public interface Embedder {
+
+    int dimension();
+
+    /**
+     * @return вектор длины {@link #dimension()}; нулевой, если в тексте нет слов
+     */
+    float[] embed(String text);
+}
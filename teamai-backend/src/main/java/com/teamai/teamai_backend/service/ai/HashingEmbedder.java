@@ -0,0 +1,116 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.config.AiRetrievalConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Embedder без внешних вызовов: feature hashing слов и символьных триграмм.
+ *
+ * Каждое слово и его триграммы (с границами слова, "#задача#" -> "#за", "зад", ...)
+ * хешируются в координату вектора со знаком. Триграммы сближают словоформы
+ * ("задача", "задачи", "задачу"), поэтому без стемминга работает и для русского.
+ * Результат детерминирован: одинаковый текст дает одинаковый вектор на любом узле.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ai.retrieval", name = "embedder", havingValue = "hashing", matchIfMissing = true)
+public class HashingEmbedder implements Embedder {
+
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private final int dimension;
+
+    public HashingEmbedder(AiRetrievalConfig config) {
+        this(config.getDimension());
+    }
+
+    HashingEmbedder(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        if (text == null) {
+            return vector;
+        }
+        // Слово с граничными символами: '#' + буквы + '#'
+        char[] word = new char[MAX_WORD_LENGTH + 2];
+        int length = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? fold(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (length < MAX_WORD_LENGTH) {
+                    word[++length] = c;
+                }
+            } else if (length > 0) {
+                addWord(vector, word, length);
+                length = 0;
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private void addWord(float[] vector, char[] word, int length) {
+        add(vector, hash(word, 1, length), WORD_WEIGHT);
+        word[0] = '#';
+        word[length + 1] = '#';
+        for (int start = 0; start + 3 <= length + 2; start++) {
+            add(vector, hash(word, start, 3) * 31 + 7, TRIGRAM_WEIGHT);
+        }
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        int mixed = mix(hash);
+        vector[(mixed >>> 1) % dimension] += (mixed & 1) == 0 ? weight : -weight;
+    }
+
+    private static int hash(char[] chars, int offset, int length) {
+        // FNV-1a
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= chars[i];
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Финальное перемешивание murmur3: младшие биты FNV распределены плохо
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
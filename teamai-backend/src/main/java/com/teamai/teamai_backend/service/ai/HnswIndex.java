@@ -0,0 +1,544 @@
+package com.teamai.teamai_backend.service.ai;
+
+import lombok.Value;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Граф HNSW (Malkov, Yashunin) для приближенного поиска ближайших соседей
+ * по единичным векторам, близость - скалярное произведение (косинус).
+ *
+ * Векторы хранятся квантованными в int8 одним массивом (1 байт на координату),
+ * поэтому 1M векторов размерности 256 занимают ~256 МБ и читаются подряд.
+ * Удаление мягкое: узел остается в графе для маршрутизации, но не попадает в результаты.
+ *
+ * Не потокобезопасен для записи: add/remove вызывает один поток, search может
+ * выполняться параллельно из нескольких потоков при внешней блокировке на запись.
+ */
+final class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final float SCALE = 127f;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    private byte[] vectors;
+    /**
+     * node -> level -> [количество, соседи...]
+     */
+    private int[][][] links;
+    private final BitSet deleted = new BitSet();
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+        this.vectors = new byte[INITIAL_CAPACITY * dimension];
+        this.links = new int[INITIAL_CAPACITY][][];
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return size - deletedCount;
+    }
+
+    boolean isDeleted(int node) {
+        return deleted.get(node);
+    }
+
+    /**
+     * @return номер нового узла
+     */
+    int add(float[] vector) {
+        int node = size;
+        ensureCapacity(node + 1);
+        byte[] query = quantize(vector);
+        System.arraycopy(query, 0, vectors, node * dimension, dimension);
+
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + maxConnections(l)];
+        }
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(query, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap found = searchLayer(query, current, efConstruction, l, n -> true, Integer.MAX_VALUE);
+            int[] nodes = new int[found.size()];
+            float[] scores = new float[found.size()];
+            // Из min-кучи: от худшего к лучшему, разворачиваем
+            for (int i = nodes.length - 1; i >= 0; i--) {
+                scores[i] = found.peekScore();
+                nodes[i] = found.pop();
+            }
+            current = nodes[0];
+
+            int[] selected = selectNeighbors(nodes, scores, nodes.length, m);
+            int[] own = links[node][l];
+            own[0] = selected.length;
+            System.arraycopy(selected, 0, own, 1, selected.length);
+            for (int neighbour : selected) {
+                connect(neighbour, node, l);
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * Вектор узла после квантования - повторный add дает тот же int8 вектор
+     */
+    float[] vector(int node) {
+        float[] vector = new float[dimension];
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors[offset + i] / SCALE;
+        }
+        return vector;
+    }
+
+    void remove(int node) {
+        if (node < size && !deleted.get(node)) {
+            deleted.set(node);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * k ближайших живых узлов, проходящих filter, от лучшего к худшему
+     *
+     * @param maxVisits предел просмотренных узлов на нижнем уровне (для селективных фильтров)
+     */
+    List<Neighbor> search(float[] vector, int k, int ef, IntPredicate filter, int maxVisits) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        byte[] query = quantize(vector);
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedy(query, current, l);
+        }
+        NodeHeap found = searchLayer(query, current, Math.max(ef, k), 0,
+                n -> !deleted.get(n) && filter.test(n), maxVisits);
+        while (found.size() > k) {
+            found.pop();
+        }
+        Neighbor[] result = new Neighbor[found.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            float score = found.peekScore();
+            result[i] = new Neighbor(found.pop(), score / (SCALE * SCALE));
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Точный перебор по списку узлов - для маленьких подмножеств, где фильтр по графу неэффективен
+     */
+    List<Neighbor> exact(float[] vector, int[] nodes, int count, int k) {
+        byte[] query = quantize(vector);
+        NodeHeap best = new NodeHeap(k + 1, false);
+        for (int i = 0; i < count; i++) {
+            int node = nodes[i];
+            if (deleted.get(node)) {
+                continue;
+            }
+            best.push(node, similarity(query, node));
+            if (best.size() > k) {
+                best.pop();
+            }
+        }
+        Neighbor[] result = new Neighbor[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            float score = best.peekScore();
+            result[i] = new Neighbor(best.pop(), score / (SCALE * SCALE));
+        }
+        return Arrays.asList(result);
+    }
+
+    private int greedy(byte[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = similarity(query, neighbours[i]);
+                if (score > best) {
+                    best = score;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Поиск по одному уровню. В результат попадают только узлы, прошедшие accept,
+     * но обход идет и через остальные - иначе фильтр рвет граф.
+     *
+     * @return min-куча: на вершине худший из найденных
+     */
+    private NodeHeap searchLayer(byte[] query, int entry, int ef, int level, IntPredicate accept, int maxVisits) {
+        Visited seen = visited.get();
+        seen.reset(size);
+        NodeHeap candidates = new NodeHeap(ef * 2, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+
+        float entryScore = similarity(query, entry);
+        seen.mark(entry);
+        candidates.push(entry, entryScore);
+        if (accept.test(entry)) {
+            results.push(entry, entryScore);
+        }
+        int visits = 1;
+
+        while (candidates.size() > 0) {
+            if (results.size() >= ef && candidates.peekScore() < results.peekScore()) {
+                break;
+            }
+            int current = candidates.pop();
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int next = neighbours[i];
+                if (seen.isMarked(next)) {
+                    continue;
+                }
+                seen.mark(next);
+                if (++visits > maxVisits) {
+                    return results;
+                }
+                float score = similarity(query, next);
+                if (results.size() < ef || score > results.peekScore()) {
+                    candidates.push(next, score);
+                    if (accept.test(next)) {
+                        results.push(next, score);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Эвристика выбора соседей: кандидат берется, если он ближе к базе, чем к уже
+     * выбранным, - так связи расходятся в разные стороны. Недобор дополняется ближайшими.
+     *
+     * @param nodes кандидаты, отсортированные от лучшего к худшему
+     */
+    private int[] selectNeighbors(int[] nodes, float[] scores, int count, int limit) {
+        if (count <= limit) {
+            return Arrays.copyOf(nodes, count);
+        }
+        int[] selected = new int[limit];
+        boolean[] taken = new boolean[count];
+        int chosen = 0;
+        for (int i = 0; i < count && chosen < limit; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < chosen; j++) {
+                if (similarity(nodes[i], selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[chosen++] = nodes[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < count && chosen < limit; i++) {
+            if (!taken[i]) {
+                selected[chosen++] = nodes[i];
+            }
+        }
+        return selected;
+    }
+
+    private void connect(int node, int neighbour, int level) {
+        int[] own = links[node][level];
+        int count = own[0];
+        if (count < own.length - 1) {
+            own[count + 1] = neighbour;
+            own[0] = count + 1;
+            return;
+        }
+        // Список полон: пересобираем его эвристикой вместе с новым соседом
+        int[] nodes = new int[count + 1];
+        float[] scores = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = own[i + 1];
+            scores[i] = similarity(node, own[i + 1]);
+        }
+        nodes[count] = neighbour;
+        scores[count] = similarity(node, neighbour);
+        sortDescending(nodes, scores);
+        int[] selected = selectNeighbors(nodes, scores, nodes.length, count);
+        own[0] = selected.length;
+        System.arraycopy(selected, 0, own, 1, selected.length);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private float similarity(byte[] query, int node) {
+        int offset = node * dimension;
+        int sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+
+    private float similarity(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        int sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return sum;
+    }
+
+    private byte[] quantize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Размерность вектора " + vector.length + ", ожидается " + dimension);
+        }
+        byte[] quantized = new byte[dimension];
+        for (int i = 0; i < dimension; i++) {
+            quantized[i] = (byte) Math.max(-127, Math.min(127, Math.round(vector[i] * SCALE)));
+        }
+        return quantized;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= links.length) {
+            return;
+        }
+        int capacity = Math.max(nodes, links.length + (links.length >> 1));
+        links = Arrays.copyOf(links, capacity);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores) {
+        // Вставками: списки не длиннее 2 * m
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(dimension);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        out.write(vectors, 0, size * dimension);
+        for (int node = 0; node < size; node++) {
+            out.writeBoolean(deleted.get(node));
+            out.writeByte(links[node].length);
+            for (int[] level : links[node]) {
+                out.writeShort(level[0]);
+                for (int i = 1; i <= level[0]; i++) {
+                    out.writeInt(level[i]);
+                }
+            }
+        }
+    }
+
+    static HnswIndex read(DataInput in, long seed) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Неизвестный формат снимка HNSW");
+        }
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt(), seed);
+        int size = in.readInt();
+        index.ensureCapacity(size);
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        in.readFully(index.vectors, 0, size * index.dimension);
+        for (int node = 0; node < size; node++) {
+            if (in.readBoolean()) {
+                index.deleted.set(node);
+                index.deletedCount++;
+            }
+            int levels = in.readUnsignedByte();
+            index.links[node] = new int[levels][];
+            for (int l = 0; l < levels; l++) {
+                int[] level = new int[1 + index.maxConnections(l)];
+                level[0] = in.readUnsignedShort();
+                for (int i = 1; i <= level[0]; i++) {
+                    level[i] = in.readInt();
+                }
+                index.links[node][l] = level;
+            }
+        }
+        index.size = size;
+        return index;
+    }
+
+    @Value
+    static class Neighbor {
+        int node;
+        float score;
+    }
+
+    /**
+     * Двоичная куча пар (узел, близость) на примитивных массивах
+     */
+    private static final class NodeHeap {
+
+        private final boolean max;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        NodeHeap(int capacity, boolean max) {
+            this.max = max;
+            this.nodes = new int[Math.max(capacity, 2)];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * Отметки посещенных узлов с поколениями: не нужно очищать массив между запросами
+     */
+    private static final class Visited {
+
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        void mark(int node) {
+            marks[node] = generation;
+        }
+
+        boolean isMarked(int node) {
+            return marks[node] == generation;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.teamai.teamai_backend.service.ai;
+
+import lombok.Data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Сопоставление сообщения с интентами за один проход (автомат Ахо-Корасик).
+ *
+ * Интент состоит из групп ключевых слов: группа срабатывает, если в сообщении
+ * встречается любое ее слово как подстрока (поэтому "задач" ловит "задача", "задачи"),
+ * интент - если сработали все группы. При нескольких совпадениях побеждает интент,
+ * стоящий раньше в списке правил.
+ *
+ * Регистр и "ё" нормализуются таблицей символов при компиляции, поэтому
+ * {@link #match} не создает объектов: таблица переходов, маски групп в одном long.
+ */
+public final class IntentMatcher {
+
+    /**
+     * Все группы всех интентов кодируются битами одного long
+     */
+    public static final int MAX_GROUPS = Long.SIZE;
+
+    private static final int NO_INTENT = -1;
+
+    private final char[] symbols;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final long[] outputs;
+    private final long[] required;
+    private final boolean[] requiresContext;
+    private final String[] names;
+    private final String[] responses;
+    private final String defaultResponse;
+
+    private IntentMatcher(char[] symbols, int alphabetSize, int[] transitions, long[] outputs, Rules rules,
+                          long[] required) {
+        this.symbols = symbols;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.required = required;
+        int count = rules.getIntents().size();
+        this.requiresContext = new boolean[count];
+        this.names = new String[count];
+        this.responses = new String[count];
+        for (int i = 0; i < count; i++) {
+            Rule rule = rules.getIntents().get(i);
+            requiresContext[i] = rule.isRequiresContext();
+            names[i] = rule.getName();
+            responses[i] = rule.getResponse();
+        }
+        this.defaultResponse = rules.getDefaultResponse();
+    }
+
+    public static IntentMatcher compile(Rules rules) {
+        if (rules.getDefaultResponse() == null || rules.getIntents() == null) {
+            throw new IllegalArgumentException("В правилах интентов нет defaultResponse или intents");
+        }
+
+        // Символы ключевых слов -> плотный алфавит 1..n, 0 - любой другой символ
+        char[] symbols = new char[Character.MAX_VALUE + 1];
+        Map<Character, Character> alphabet = new HashMap<>();
+        List<String> keywords = new ArrayList<>();
+        List<Long> keywordGroups = new ArrayList<>();
+        long[] required = new long[rules.getIntents().size()];
+        int group = 0;
+
+        for (int i = 0; i < rules.getIntents().size(); i++) {
+            Rule rule = rules.getIntents().get(i);
+            if (rule.getName() == null || rule.getResponse() == null || rule.getMatch() == null
+                    || rule.getMatch().isEmpty()) {
+                throw new IllegalArgumentException("Интент #" + i + " должен содержать name, response и match");
+            }
+            for (List<String> words : rule.getMatch()) {
+                if (group == MAX_GROUPS) {
+                    throw new IllegalArgumentException("Слишком много групп ключевых слов, максимум " + MAX_GROUPS);
+                }
+                if (words == null || words.isEmpty()) {
+                    throw new IllegalArgumentException("Пустая группа ключевых слов в интенте " + rule.getName());
+                }
+                long bit = 1L << group++;
+                required[i] |= bit;
+                for (String word : words) {
+                    if (word == null || word.isBlank()) {
+                        throw new IllegalArgumentException("Пустое ключевое слово в интенте " + rule.getName());
+                    }
+                    StringBuilder normalized = new StringBuilder(word.length());
+                    for (int k = 0; k < word.length(); k++) {
+                        char c = fold(word.charAt(k));
+                        alphabet.computeIfAbsent(c, key -> (char) (alphabet.size() + 1));
+                        normalized.append(c);
+                    }
+                    keywords.add(normalized.toString());
+                    keywordGroups.add(bit);
+                }
+            }
+        }
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            Character symbol = alphabet.get(fold((char) c));
+            if (symbol != null) {
+                symbols[c] = symbol;
+            }
+        }
+        int alphabetSize = alphabet.size() + 1;
+
+        // Бор
+        List<int[]> trie = new ArrayList<>();
+        List<Long> trieOutputs = new ArrayList<>();
+        trie.add(new int[alphabetSize]);
+        trieOutputs.add(0L);
+        for (int k = 0; k < keywords.size(); k++) {
+            int state = 0;
+            String keyword = keywords.get(k);
+            for (int p = 0; p < keyword.length(); p++) {
+                int symbol = symbols[keyword.charAt(p)];
+                if (trie.get(state)[symbol] == 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(new int[alphabetSize]);
+                    trieOutputs.add(0L);
+                }
+                state = trie.get(state)[symbol];
+            }
+            trieOutputs.set(state, trieOutputs.get(state) | keywordGroups.get(k));
+        }
+
+        // Суффиксные ссылки в ширину, заодно достраиваем недостающие переходы до полного автомата
+        int states = trie.size();
+        int[] transitions = new int[states * alphabetSize];
+        long[] outputs = new long[states];
+        int[] fail = new int[states];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(trie.get(s), 0, transitions, s * alphabetSize, alphabetSize);
+            outputs[s] = trieOutputs.get(s);
+        }
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 1; symbol < alphabetSize; symbol++) {
+            int next = transitions[symbol];
+            if (next != 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] |= outputs[fail[state]];
+            for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                int next = transitions[state * alphabetSize + symbol];
+                int fallback = transitions[fail[state] * alphabetSize + symbol];
+                if (next != 0) {
+                    fail[next] = fallback;
+                    queue.add(next);
+                } else {
+                    transitions[state * alphabetSize + symbol] = fallback;
+                }
+            }
+        }
+
+        return new IntentMatcher(symbols, alphabetSize, transitions, outputs, rules, required);
+    }
+
+    /**
+     * @param hasContext есть ли у сообщения контекст задачи (часть интентов работает только с ним)
+     * @return индекс интента или -1, если подходит ответ по умолчанию
+     */
+    public int match(CharSequence message, boolean hasContext) {
+        long matched = 0;
+        int state = 0;
+        for (int i = 0, length = message.length(); i < length; i++) {
+            state = transitions[state * alphabetSize + symbols[message.charAt(i)]];
+            matched |= outputs[state];
+        }
+        if (matched == 0) {
+            return NO_INTENT;
+        }
+        for (int intent = 0; intent < required.length; intent++) {
+            if ((matched & required[intent]) == required[intent] && (hasContext || !requiresContext[intent])) {
+                return intent;
+            }
+        }
+        return NO_INTENT;
+    }
+
+    public String response(int intent) {
+        return intent == NO_INTENT ? defaultResponse : responses[intent];
+    }
+
+    public String name(int intent) {
+        return names[intent];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    /**
+     * Файл правил (resources/ai/intents.json)
+     */
+    @Data
+    public static class Rules {
+        private String defaultResponse;
+        private List<Rule> intents = new ArrayList<>();
+    }
+
+    @Data
+    public static class Rule {
+        private String name;
+        private boolean requiresContext;
+        /**
+         * Группы ключевых слов: все группы должны сработать, внутри группы - любое слово
+         */
+        private List<List<String>> match;
+        private String response;
+    }
+}
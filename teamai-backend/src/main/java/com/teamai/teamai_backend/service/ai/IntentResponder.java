@@ -0,0 +1,62 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Ответы чата без LLM: когда OpenAI не настроен или недоступен.
+ *
+ * Правила читаются из {@value #RULES_RESOURCE} при старте и компилируются в
+ * {@link IntentMatcher}; счетчик ai.intent.hits{intent} показывает, какие интенты
+ * реально срабатывают (intent=default - ни один не подошел).
+ */
+@Component
+@Slf4j
+public class IntentResponder {
+
+    static final String RULES_RESOURCE = "ai/intents.json";
+
+    private static final String DEFAULT_INTENT = "default";
+
+    private final IntentMatcher matcher;
+    private final Counter[] hits;
+    private final Counter defaultHits;
+
+    public IntentResponder(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.matcher = IntentMatcher.compile(loadRules(objectMapper));
+        this.hits = new Counter[matcher.size()];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = hitCounter(meterRegistry, matcher.name(i));
+        }
+        this.defaultHits = hitCounter(meterRegistry, DEFAULT_INTENT);
+        log.info("Loaded {} chat intents from {}", matcher.size(), RULES_RESOURCE);
+    }
+
+    public String respond(String message, String context) {
+        int intent = matcher.match(message, context != null && !context.isEmpty());
+        (intent < 0 ? defaultHits : hits[intent]).increment();
+        return matcher.response(intent);
+    }
+
+    static IntentMatcher.Rules loadRules(ObjectMapper objectMapper) {
+        try (InputStream in = new ClassPathResource(RULES_RESOURCE).getInputStream()) {
+            return objectMapper.readValue(in, IntentMatcher.Rules.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось загрузить правила интентов " + RULES_RESOURCE, e);
+        }
+    }
+
+    private static Counter hitCounter(MeterRegistry meterRegistry, String intent) {
+        return Counter.builder("ai.intent.hits")
+                .description("Ответы чата без LLM по интентам")
+                .tag("intent", intent)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,718 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teamai.teamai_backend.config.AiRetrievalConfig;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.projection.IndexedTaskText;
+import com.teamai.teamai_backend.repository.projection.IndexedText;
+import com.teamai.teamai_backend.repository.projection.TaskRow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Векторный индекс задач и проектов для контекста AI чата.
+ *
+ * Все изменения индекса выполняет один поток "ai-index": первичная загрузка
+ * (снимок с диска + догрузка изменившегося из БД, либо полная сборка из БД),
+ * обновления после коммита транзакций TaskService/ProjectService/AIService,
+ * периодическая сверка с БД и периодические снимки. Поиск идет из потоков запросов под read lock и видит
+ * только проекты пользователя: по маленькому набору - точный перебор, иначе HNSW с фильтром.
+ *
+ * Сверка раз в reconcile-interval догружает изменения с прошлой сверки (их могли сделать
+ * другие инстансы или снимок их не застал) и удаляет записи, которых нет в БД.
+ * Удаление в HNSW мягкое, поэтому когда удаленных узлов накапливается много, граф
+ * пересобирается из векторов живых узлов.
+ */
+@Component
+@Slf4j
+public class KnowledgeIndex {
+
+    public enum Kind { TASK, PROJECT }
+
+    private static final int SNAPSHOT_MAGIC = 0x544B4958;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long GRAPH_SEED = 42;
+    private static final LocalDateTime REBUILD_SINCE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    /**
+     * Запас на расхождение часов и транзакции, закоммиченные во время снимка
+     */
+    private static final long CATCH_UP_OVERLAP_MINUTES = 5;
+
+    private final AiRetrievalConfig config;
+    private final Embedder embedder;
+    private final TaskRepository taskRepository;
+    private final ProjectRepository projectRepository;
+    private final Cache<UUID, Set<UUID>> userProjects;
+    private final Timer searchTimer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ai-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile boolean ready;
+    /**
+     * Начало последней догрузки из БД; только поток ai-index
+     */
+    private LocalDateTime caughtUpAt = REBUILD_SINCE;
+
+    // Состояние ниже меняет только поток ai-index под write lock
+    private HnswIndex graph;
+    private Entry[] entries = new Entry[1024];
+    private final Map<UUID, Entry> byId = new HashMap<>();
+    private final Map<UUID, NodeList> projectNodes = new HashMap<>();
+    private volatile int liveEntries;
+
+    public KnowledgeIndex(AiRetrievalConfig config, Embedder embedder, TaskRepository taskRepository,
+                          ProjectRepository projectRepository, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.embedder = embedder;
+        this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+        this.graph = newGraph();
+        this.userProjects = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(config.getMembershipCacheTtl())
+                .build();
+        this.searchTimer = Timer.builder("ai.retrieval.search")
+                .description("Поиск похожих задач и проектов для контекста чата")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("ai.retrieval.entries", this, index -> index.liveEntries)
+                .description("Задач и проектов в векторном индексе")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        worker.execute(this::initialize);
+        long interval = config.getSnapshotInterval().toMillis();
+        worker.scheduleWithFixedDelay(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+        long reconcileInterval = config.getReconcileInterval().toMillis();
+        worker.scheduleWithFixedDelay(this::refresh, reconcileInterval, reconcileInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        worker.execute(this::snapshot);
+        worker.shutdown();
+        worker.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Самые похожие на текст задачи и проекты, доступные пользователю, от лучшего к худшему.
+     * Пока индекс не загружен, возвращает пустой список.
+     */
+    public List<Hit> search(UUID userId, String text) {
+        if (!config.isEnabled() || !ready || userId == null || text == null || text.isBlank()) {
+            return List.of();
+        }
+        Set<UUID> projects = userProjects.get(userId, id -> new HashSet<>(projectRepository.findProjectIdsByUserId(id)));
+        if (projects.isEmpty()) {
+            return List.of();
+        }
+        float[] vector = embedder.embed(text);
+
+        long startedAt = System.nanoTime();
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int scope = 0;
+            for (UUID projectId : projects) {
+                NodeList nodes = projectNodes.get(projectId);
+                scope += nodes != null ? nodes.size : 0;
+            }
+            List<HnswIndex.Neighbor> found;
+            if (scope <= config.getExactSearchThreshold()) {
+                int[] nodes = new int[scope];
+                int count = 0;
+                for (UUID projectId : projects) {
+                    NodeList list = projectNodes.get(projectId);
+                    if (list != null) {
+                        System.arraycopy(list.nodes, 0, nodes, count, list.size);
+                        count += list.size;
+                    }
+                }
+                found = graph.exact(vector, nodes, count, config.getTopK());
+            } else {
+                Entry[] current = entries;
+                found = graph.search(vector, config.getTopK(), config.getEfSearch(),
+                        node -> projects.contains(current[node].projectId), config.getMaxVisits());
+            }
+            for (HnswIndex.Neighbor neighbor : found) {
+                if (neighbor.getScore() >= config.getMinScore()) {
+                    Entry entry = entries[neighbor.getNode()];
+                    hits.add(new Hit(entry.kind, entry.id, entry.projectId, entry.title, entry.snippet,
+                            entry.status, neighbor.getScore()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        searchTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return hits;
+    }
+
+    /**
+     * Индексирует задачу после коммита текущей транзакции (или сразу, если транзакции нет).
+     * Поля читаются сразу - в потоке вызова сущность еще привязана к сессии.
+     */
+    public void indexTask(Task task) {
+        UUID id = task.getId();
+        UUID projectId = task.getProject().getId();
+        String title = task.getTitle();
+        String description = task.getDescription();
+        String status = task.getStatus() != null ? task.getStatus().name() : null;
+        afterCommit(() -> upsert(Kind.TASK, id, projectId, title, description, status));
+    }
+
+    public void indexTask(TaskRow row) {
+        String status = row.getStatus() != null ? row.getStatus().name() : null;
+        afterCommit(() -> upsert(Kind.TASK, row.getId(), row.getProjectId(), row.getTitle(), row.getDescription(), status));
+    }
+
+    public void indexProject(Project project) {
+        UUID id = project.getId();
+        String title = project.getTitle();
+        String description = project.getDescription();
+        afterCommit(() -> {
+            // Новый проект меняет состав проектов его участников
+            userProjects.invalidateAll();
+            upsert(Kind.PROJECT, id, id, title, description, null);
+        });
+    }
+
+    /**
+     * Удаляет проект и все его задачи
+     */
+    public void removeProject(UUID projectId) {
+        afterCommit(() -> {
+            userProjects.invalidateAll();
+            lock.writeLock().lock();
+            try {
+                NodeList nodes = projectNodes.remove(projectId);
+                if (nodes == null) {
+                    return;
+                }
+                for (int i = 0; i < nodes.size; i++) {
+                    int node = nodes.nodes[i];
+                    graph.remove(node);
+                    byId.remove(entries[node].id);
+                    entries[node] = null;
+                }
+                liveEntries = byId.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            dirty.set(true);
+            compactIfNeeded();
+        });
+    }
+    
+    /**
+     * Удаляет задачу после коммита. Перенос задачи в другой проект - обычный indexTask
+     */
+    public void removeTask(UUID taskId) {
+        afterCommit(() -> {
+            remove(List.of(taskId));
+            compactIfNeeded();
+        });
+    }
+
+    private void afterCommit(Runnable update) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(update);
+                }
+            });
+        } else {
+            submit(update);
+        }
+    }
+
+    private void submit(Runnable update) {
+        try {
+            worker.execute(() -> {
+                try {
+                    update.run();
+                } catch (RuntimeException e) {
+                    log.warn("Knowledge index update failed: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Knowledge index is stopped, update skipped");
+        }
+    }
+
+    private void upsert(Kind kind, UUID id, UUID projectId, String title, String description, String status) {
+        String text = title + "\n" + (description != null ? description : "");
+        int textHash = text.hashCode();
+        Entry existing = byId.get(id);
+        if (existing != null && existing.textHash == textHash && existing.projectId.equals(projectId)) {
+            if (!Objects.equals(existing.status, status)) {
+                // Текст тот же - вектор не меняется, обновляем только описание
+                replace(existing.withStatus(status));
+            }
+            return;
+        }
+
+        float[] vector = embedder.embed(text);
+        String snippet = description == null ? ""
+                : description.length() <= config.getSnippetLength() ? description
+                : description.substring(0, config.getSnippetLength()) + "…";
+
+        lock.writeLock().lock();
+        try {
+            if (existing != null) {
+                graph.remove(existing.node);
+                projectNodes.get(existing.projectId).remove(existing.node);
+            }
+            int node = graph.add(vector);
+            if (node >= entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(node + 1, entries.length * 2));
+            }
+            Entry entry = new Entry(kind, id, projectId, title, snippet, status, textHash, node);
+            entries[node] = entry;
+            byId.put(id, entry);
+            projectNodes.computeIfAbsent(projectId, key -> new NodeList()).add(node);
+            liveEntries = byId.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty.set(true);
+    }
+
+    private void remove(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (UUID id : ids) {
+                Entry entry = byId.remove(id);
+                if (entry == null) {
+                    continue;
+                }
+                graph.remove(entry.node);
+                entries[entry.node] = null;
+                NodeList nodes = projectNodes.get(entry.projectId);
+                if (nodes != null) {
+                    nodes.remove(entry.node);
+                    if (nodes.size == 0) {
+                        projectNodes.remove(entry.projectId);
+                    }
+                }
+            }
+            liveEntries = byId.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty.set(true);
+    }
+
+    private void replace(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            entries[entry.node] = entry;
+            byId.put(entry.id, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty.set(true);
+    }
+
+    private void initialize() {
+        long startedAt = System.nanoTime();
+        LocalDateTime since = REBUILD_SINCE;
+        Path snapshot = snapshotPath();
+        if (snapshot != null && Files.exists(snapshot)) {
+            try {
+                LocalDateTime takenAt = load(snapshot);
+                if (takenAt != null) {
+                    since = takenAt.minusMinutes(CATCH_UP_OVERLAP_MINUTES);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Knowledge index snapshot {} is unreadable, rebuilding: {}", snapshot, e.getMessage());
+                reset();
+            }
+        }
+
+        try {
+            catchUp(since);
+            if (since != REBUILD_SINCE) {
+                // Удаленное, пока инстанс не работал, догрузка по updatedAt не видит
+                reconcile();
+            }
+            compactIfNeeded();
+            ready = true;
+            log.info("Knowledge index ready: {} entries in {} ms (changes since {})",
+                    liveEntries, (System.nanoTime() - startedAt) / 1_000_000, since);
+        } catch (RuntimeException e) {
+            log.error("Knowledge index build failed, chat works without retrieval", e);
+        }
+    }
+
+    /**
+     * Периодическая сверка с БД в потоке ai-index
+     */
+    private void refresh() {
+        if (!ready) {
+            return;
+        }
+        try {
+            long startedAt = System.nanoTime();
+            catchUp(caughtUpAt.minusMinutes(CATCH_UP_OVERLAP_MINUTES));
+            int removed = reconcile();
+            compactIfNeeded();
+            log.debug("Knowledge index reconciled in {} ms: {} stale entries removed",
+                    (System.nanoTime() - startedAt) / 1_000_000, removed);
+        } catch (RuntimeException e) {
+            log.warn("Knowledge index reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Догружает проекты и задачи, изменившиеся с since, страницами по id
+     */
+    private void catchUp(LocalDateTime since) {
+        caughtUpAt = LocalDateTime.now();
+        PageRequest page = PageRequest.ofSize(config.getRebuildBatchSize());
+        UUID after = new UUID(0, 0);
+        List<IndexedText> projects;
+        do {
+            projects = projectRepository.findIndexTextAfter(after, since, page);
+            for (IndexedText project : projects) {
+                upsert(Kind.PROJECT, project.getId(), project.getProjectId(), project.getTitle(),
+                        project.getDescription(), null);
+                after = project.getId();
+            }
+        } while (projects.size() == page.getPageSize());
+
+        after = new UUID(0, 0);
+        List<IndexedTaskText> tasks;
+        do {
+            tasks = taskRepository.findIndexTextAfter(after, since, page);
+            for (IndexedTaskText task : tasks) {
+                upsert(Kind.TASK, task.getId(), task.getProjectId(), task.getTitle(), task.getDescription(),
+                        task.getStatus() != null ? task.getStatus().name() : null);
+                after = task.getId();
+            }
+        } while (tasks.size() == page.getPageSize());
+    }
+
+    /**
+     * Удаляет записи, проектов и задач которых нет в БД (удалены на другом инстансе или пока этот не работал)
+     *
+     * @return сколько записей удалено
+     */
+    private int reconcile() {
+        PageRequest page = PageRequest.ofSize(config.getRebuildBatchSize());
+        Set<UUID> live = new HashSet<>(byId.size() * 2);
+        UUID after = new UUID(0, 0);
+        List<UUID> ids;
+        do {
+            ids = projectRepository.findIdsAfter(after, page);
+            live.addAll(ids);
+            after = ids.isEmpty() ? after : ids.get(ids.size() - 1);
+        } while (ids.size() == page.getPageSize());
+        after = new UUID(0, 0);
+        do {
+            ids = taskRepository.findIdsAfter(after, page);
+            live.addAll(ids);
+            after = ids.isEmpty() ? after : ids.get(ids.size() - 1);
+        } while (ids.size() == page.getPageSize());
+
+        // byId меняет только поток ai-index - читаем без блокировки
+        List<UUID> stale = byId.keySet().stream()
+                .filter(id -> !live.contains(id))
+                .toList();
+        if (!stale.isEmpty()) {
+            userProjects.invalidateAll();
+            remove(stale);
+            log.info("Knowledge index dropped {} entries deleted from the database", stale.size());
+        }
+        return stale.size();
+    }
+
+    /**
+     * Пересобирает граф из векторов живых узлов, если удаленных узлов стало много.
+     * Новый граф строится без блокировки (пишет только поток ai-index), поиск идет по старому до замены
+     */
+    private void compactIfNeeded() {
+        int deleted = graph.size() - graph.liveCount();
+        if (deleted < config.getCompactMinDeleted() || deleted < graph.size() * config.getCompactDeletedRatio()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        HnswIndex compacted = newGraph();
+        Entry[] compactedEntries = new Entry[Math.max(liveEntries, 1024)];
+        Map<UUID, Entry> compactedById = new HashMap<>(byId.size() * 2);
+        Map<UUID, NodeList> compactedProjects = new HashMap<>();
+        for (int node = 0; node < graph.size(); node++) {
+            Entry entry = entries[node];
+            if (entry == null || graph.isDeleted(node)) {
+                continue;
+            }
+            int newNode = compacted.add(graph.vector(node));
+            if (newNode >= compactedEntries.length) {
+                compactedEntries = Arrays.copyOf(compactedEntries, compactedEntries.length * 2);
+            }
+            Entry moved = entry.withNode(newNode);
+            compactedEntries[newNode] = moved;
+            compactedById.put(moved.id, moved);
+            compactedProjects.computeIfAbsent(moved.projectId, key -> new NodeList()).add(newNode);
+        }
+
+        lock.writeLock().lock();
+        try {
+            graph = compacted;
+            entries = compactedEntries;
+            byId.clear();
+            byId.putAll(compactedById);
+            projectNodes.clear();
+            projectNodes.putAll(compactedProjects);
+            liveEntries = byId.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty.set(true);
+        log.info("Knowledge index compacted: {} deleted nodes dropped, {} entries in {} ms",
+                deleted, liveEntries, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void snapshot() {
+        Path target = snapshotPath();
+        if (target == null || !ready || !dirty.getAndSet(false)) {
+            return;
+        }
+        // Снимок пишет поток ai-index - тот же, что меняет индекс, поэтому блокировка не нужна
+        LocalDateTime takenAt = LocalDateTime.now();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeUTF(config.getEmbedder());
+                out.writeInt(embedder.dimension());
+                out.writeUTF(takenAt.toString());
+                out.writeInt(graph.size());
+                for (int node = 0; node < graph.size(); node++) {
+                    Entry entry = entries[node];
+                    out.writeBoolean(entry != null);
+                    if (entry != null) {
+                        entry.write(out);
+                    }
+                }
+                graph.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Knowledge index snapshot written: {} entries", liveEntries);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Knowledge index snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return время снимка или null, если снимок от другого embedder и индекс нужно собрать заново
+     */
+    private LocalDateTime load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("неизвестный формат");
+            }
+            if (!config.getEmbedder().equals(in.readUTF()) || in.readInt() != embedder.dimension()) {
+                log.info("Knowledge index snapshot was built by another embedder, rebuilding");
+                return null;
+            }
+            LocalDateTime takenAt = LocalDateTime.parse(in.readUTF());
+            int size = in.readInt();
+            Entry[] loaded = new Entry[Math.max(size, 1024)];
+            for (int node = 0; node < size; node++) {
+                if (in.readBoolean()) {
+                    loaded[node] = Entry.read(in, node);
+                }
+            }
+            HnswIndex loadedGraph = HnswIndex.read(in, GRAPH_SEED);
+
+            lock.writeLock().lock();
+            try {
+                graph = loadedGraph;
+                entries = loaded;
+                byId.clear();
+                projectNodes.clear();
+                for (int node = 0; node < size; node++) {
+                    Entry entry = loaded[node];
+                    if (entry != null && !loadedGraph.isDeleted(node)) {
+                        byId.put(entry.id, entry);
+                        projectNodes.computeIfAbsent(entry.projectId, key -> new NodeList()).add(node);
+                    }
+                }
+                liveEntries = byId.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return takenAt;
+        }
+    }
+
+    private void reset() {
+        lock.writeLock().lock();
+        try {
+            graph = newGraph();
+            entries = new Entry[1024];
+            byId.clear();
+            projectNodes.clear();
+            liveEntries = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private HnswIndex newGraph() {
+        return new HnswIndex(embedder.dimension(), config.getM(), config.getEfConstruction(), GRAPH_SEED);
+    }
+
+    private Path snapshotPath() {
+        String path = config.getSnapshotPath();
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    @Value
+    public static class Hit {
+        Kind kind;
+        UUID id;
+        UUID projectId;
+        String title;
+        String snippet;
+        /**
+         * Статус задачи, null для проекта
+         */
+        String status;
+        float score;
+    }
+
+    @Value
+    private static class Entry {
+        Kind kind;
+        UUID id;
+        UUID projectId;
+        String title;
+        String snippet;
+        String status;
+        int textHash;
+        int node;
+
+        Entry withStatus(String newStatus) {
+            return new Entry(kind, id, projectId, title, snippet, newStatus, textHash, node);
+        }
+
+        Entry withNode(int newNode) {
+            return new Entry(kind, id, projectId, title, snippet, status, textHash, newNode);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(kind.ordinal());
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            out.writeLong(projectId.getMostSignificantBits());
+            out.writeLong(projectId.getLeastSignificantBits());
+            out.writeUTF(title);
+            out.writeUTF(snippet);
+            out.writeUTF(status != null ? status : "");
+            out.writeInt(textHash);
+        }
+
+        static Entry read(DataInputStream in, int node) throws IOException {
+            Kind kind = Kind.values()[in.readByte()];
+            UUID id = new UUID(in.readLong(), in.readLong());
+            UUID projectId = new UUID(in.readLong(), in.readLong());
+            String title = in.readUTF();
+            String snippet = in.readUTF();
+            String status = in.readUTF();
+            return new Entry(kind, id, projectId, title, snippet, status.isEmpty() ? null : status, in.readInt(), node);
+        }
+    }
+
+    /**
+     * Живые узлы одного проекта
+     */
+    private static final class NodeList {
+        private int[] nodes = new int[8];
+        private int size;
+
+        void add(int node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+
+        void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    nodes[i] = nodes[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.teamai.teamai_backend.service.ai;
+
+import java.util.Arrays;
+
+/**
+ * Скользящее окно последних задержек (кольцевой буфер) для перцентилей,
+ * по которым выбирается провайдер и задержка hedge-запроса
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyWindow(int size) {
+        this.samples = new long[Math.max(size, 1)];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * @return перцентиль в наносекундах или -1, если замеров еще нет
+     */
+    long percentile(double quantile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.min(Math.max(index, 0), sorted.length - 1)];
+    }
+
+    synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,438 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.config.OpenAiConfig;
+import com.teamai.teamai_backend.exception.LlmException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * HTTP клиент для OpenAI-совместимого chat completions API.
+ * Один HttpClient на приложение: пул соединений с keep-alive и HTTP/2,
+ * все вызовы асинхронные и не держат поток на время ожидания ответа.
+ *
+ * Все вызовы проходят через bulkhead (лимит параллельных запросов) и circuit breaker
+ * "openai" (resilience4j.* в конфигурации). Пока breaker открыт или лимит исчерпан,
+ * вызов сразу завершается ошибкой и вызывающий код отдает локальный fallback.
+ */
+@Component
+@Slf4j
+public class LlmClient {
+
+    public static final String RESILIENCE_INSTANCE = "openai";
+
+    private final OpenAiConfig config;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final LlmRouter router;
+    private final AiMetrics metrics;
+    private final Counter hedgedOnDelay;
+    private final Counter hedgedOnFailure;
+
+    public LlmClient(OpenAiConfig config, ObjectMapper objectMapper, LlmRouter router,
+                     CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                     MeterRegistry meterRegistry, AiMetrics metrics) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.router = router;
+        this.metrics = metrics;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(config.getConnectTimeout())
+                .build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(RESILIENCE_INSTANCE);
+
+        Counter circuitOpen = rejectedCounter(meterRegistry, "circuit_open");
+        Counter bulkheadFull = rejectedCounter(meterRegistry, "bulkhead_full");
+        circuitBreaker.getEventPublisher()
+                .onCallNotPermitted(event -> circuitOpen.increment())
+                .onStateTransition(event -> log.warn("OpenAI circuit breaker: {}", event.getStateTransition()));
+        bulkhead.getEventPublisher()
+                .onCallRejected(event -> bulkheadFull.increment());
+        this.hedgedOnDelay = hedgedCounter(meterRegistry, "delay");
+        this.hedgedOnFailure = hedgedCounter(meterRegistry, "failure");
+    }
+
+    public boolean isConfigured() {
+        return config.isConfigured();
+    }
+
+    /**
+     * Запрос с параметрами модели из конфигурации
+     */
+    public LlmRequest.LlmRequestBuilder defaultRequest() {
+        return LlmRequest.builder()
+                .model(config.getModel())
+                .temperature(config.getTemperature())
+                .maxTokens(config.getMaxTokens())
+                .timeout(config.getReadTimeout());
+    }
+
+    public CompletableFuture<LlmResponse> chat(LlmRequest request) {
+        Duration timeout = timeoutOf(request);
+        // Таймаут внутри breaker: истекший бюджет учитывается как ошибка upstream
+        Supplier<CompletionStage<LlmResponse>> call = () -> new HedgedChat(request).run()
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        // Bulkhead снаружи: отказ по лимиту параллельных вызовов не считается ошибкой OpenAI
+        return Bulkhead.decorateCompletionStage(bulkhead,
+                        CircuitBreaker.decorateCompletionStage(circuitBreaker, call))
+                .get()
+                .toCompletableFuture();
+    }
+
+    /**
+     * Потоковый вызов: дельты ответа передаются в onDelta по мере генерации.
+     * Если вызов не удался до первой дельты, в onDelta одним куском уходит fallback.
+     */
+    public LlmStream stream(LlmRequest request, Consumer<String> onDelta, Supplier<String> fallback) {
+        return start(request, new LlmStream(objectMapper, onDelta, fallback));
+    }
+
+    /**
+     * Потоковый вызов без fallback и без накопления текста ответа:
+     * дельты только передаются в onDelta, ошибка завершает completion()
+     */
+    public LlmStream streamDeltas(LlmRequest request, Consumer<String> onDelta) {
+        return start(request, new LlmStream(objectMapper, onDelta, null, false));
+    }
+
+    private LlmStream start(LlmRequest request, LlmStream stream) {
+        if (!bulkhead.tryAcquirePermission()) {
+            stream.fail(BulkheadFullException.createBulkheadFullException(bulkhead));
+            return stream;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.onComplete();
+            stream.fail(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            return stream;
+        }
+        long startedAt = System.nanoTime();
+        stream.completion().whenComplete((response, error) -> {
+            bulkhead.onComplete();
+            recordStream(stream, startedAt, response, error);
+        });
+
+        new HedgedStream(request, stream).start();
+
+        Duration timeout = timeoutOf(request);
+        CompletableFuture.runAsync(
+                () -> stream.abort(new TimeoutException("Превышено время ожидания OpenAI")),
+                CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        return stream;
+    }
+
+    HttpRequest buildHttpRequest(LlmProvider provider, LlmRequest request, boolean stream) throws JsonProcessingException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", provider.getModel() != null ? provider.getModel() : request.getModel());
+        body.put("messages", request.getMessages().stream()
+                .map(m -> Map.of("role", m.getRole(), "content", m.getContent()))
+                .toList());
+        body.put("temperature", request.getTemperature());
+        body.put("max_tokens", request.getMaxTokens());
+        if (stream) {
+            body.put("stream", true);
+            body.put("stream_options", Map.of("include_usage", true));
+        }
+
+        return HttpRequest.newBuilder(URI.create(provider.getUrl()))
+                .timeout(timeoutOf(request))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + provider.getKey())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    /**
+     * Первый запрос уходит провайдеру из LlmRouter. Если он не ответил за hedge-задержку
+     * или упал, второй запрос уходит другому провайдеру; побеждает первый хороший ответ,
+     * проигравший запрос отменяется. Больше двух запросов на вызов не бывает.
+     */
+    private abstract class Hedge {
+
+        final LlmRequest request;
+        private final boolean stream;
+        private volatile LlmProvider primary;
+        private int live;
+        private boolean hedged;
+
+        Hedge(LlmRequest request, boolean stream) {
+            this.request = request;
+            this.stream = stream;
+        }
+
+        void start() {
+            LlmProvider selected = router.select(null, stream);
+            synchronized (this) {
+                primary = selected;
+                launch(selected);
+            }
+            if (router.isHedgingEnabled()) {
+                Duration delay = router.hedgeDelay(selected, stream);
+                CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS)
+                        .execute(() -> hedge(hedgedOnDelay));
+            }
+        }
+
+        /**
+         * @return true если запущен второй запрос
+         */
+        private synchronized boolean hedge(Counter reason) {
+            if (hedged || isSettled()) {
+                return false;
+            }
+            LlmProvider second = router.select(primary, stream);
+            if (second == null) {
+                return false;
+            }
+            hedged = true;
+            reason.increment();
+            log.debug("Hedging OpenAI call from {} to {}", primary.getName(), second.getName());
+            launch(second);
+            return true;
+        }
+
+        private void launch(LlmProvider provider) {
+            live++;
+            send(provider, System.nanoTime());
+        }
+
+        /**
+         * Итог запроса к провайдеру: error == null - запрос выиграл
+         */
+        void attemptFinished(LlmProvider provider, long startedAt, Throwable error) {
+            long elapsed = System.nanoTime() - startedAt;
+            metrics.recordUpstream(stream, provider,
+                    provider.getModel() != null ? provider.getModel() : request.getModel(), error, elapsed);
+            if (error == null) {
+                provider.recordSuccess(stream, elapsed);
+                return;
+            }
+            if (!isCancellation(error)) {
+                // проигравший или отмененный запрос ничего не говорит о провайдере
+                provider.recordFailure(elapsed);
+            }
+            boolean exhausted;
+            synchronized (this) {
+                live--;
+                exhausted = live == 0 && !isCancellation(error) && !hedge(hedgedOnFailure);
+            }
+            // вне блокировки: завершение стрима берет его собственную блокировку
+            if (exhausted) {
+                failAll(unwrap(error));
+            }
+        }
+
+        abstract void send(LlmProvider provider, long startedAt);
+
+        abstract boolean isSettled();
+
+        abstract void failAll(Throwable error);
+    }
+
+    private final class HedgedChat extends Hedge {
+
+        private final CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        private final List<CompletableFuture<?>> exchanges = new CopyOnWriteArrayList<>();
+
+        HedgedChat(LlmRequest request) {
+            super(request, false);
+        }
+
+        CompletableFuture<LlmResponse> run() {
+            // Есть ответ, ошибка или истек общий таймаут - остальные запросы не нужны
+            result.whenComplete((response, error) -> exchanges.forEach(exchange -> exchange.cancel(true)));
+            start();
+            return result;
+        }
+
+        @Override
+        void send(LlmProvider provider, long startedAt) {
+            HttpRequest httpRequest;
+            try {
+                httpRequest = buildHttpRequest(provider, request, false);
+            } catch (JsonProcessingException e) {
+                result.completeExceptionally(new LlmException("Ошибка формирования запроса к OpenAI", e));
+                return;
+            }
+
+            CompletableFuture<HttpResponse<byte[]>> exchange =
+                    httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+            exchanges.add(exchange);
+            if (result.isDone()) {
+                exchange.cancel(true);
+            }
+            exchange.thenApply(LlmClient.this::parseResponse)
+                    .whenComplete((response, error) -> {
+                        attemptFinished(provider, startedAt, error);
+                        if (error == null) {
+                            result.complete(response);
+                        }
+                    });
+        }
+
+        @Override
+        boolean isSettled() {
+            return result.isDone();
+        }
+
+        @Override
+        void failAll(Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+
+    private final class HedgedStream extends Hedge {
+
+        private final LlmStream stream;
+
+        HedgedStream(LlmRequest request, LlmStream stream) {
+            super(request, true);
+            this.stream = stream;
+        }
+
+        @Override
+        void send(LlmProvider provider, long startedAt) {
+            LlmStream.Attempt attempt = stream.newAttempt();
+            attempt.outcome().whenComplete((ignored, error) -> attemptFinished(provider, startedAt, error));
+
+            HttpRequest httpRequest;
+            try {
+                httpRequest = buildHttpRequest(provider, request, true);
+            } catch (JsonProcessingException e) {
+                attempt.reject(new LlmException("Ошибка формирования запроса к OpenAI", e));
+                return;
+            }
+
+            CompletableFuture<HttpResponse<Void>> exchange = httpClient.sendAsync(httpRequest, responseInfo -> {
+                if (responseInfo.statusCode() / 100 != 2) {
+                    attempt.reject(new LlmException("OpenAI вернул статус " + responseInfo.statusCode(),
+                            responseInfo.statusCode()));
+                    return HttpResponse.BodySubscribers.discarding();
+                }
+                return HttpResponse.BodySubscribers.fromLineSubscriber(
+                        attempt, s -> null, StandardCharsets.UTF_8, null);
+            });
+            attempt.bind(exchange);
+            exchange.whenComplete((response, error) -> {
+                if (error != null) {
+                    attempt.reject(error);
+                }
+            });
+        }
+
+        @Override
+        boolean isSettled() {
+            return stream.hasWinner() || stream.completion().isDone();
+        }
+
+        @Override
+        void failAll(Throwable error) {
+            stream.fail(error);
+        }
+    }
+
+    private static boolean isCancellation(Throwable error) {
+        return unwrap(error) instanceof CancellationException;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private LlmResponse parseResponse(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new LlmException("OpenAI вернул статус " + response.statusCode(), response.statusCode());
+        }
+
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new LlmException("Некорректный ответ от OpenAI", response.statusCode(), e);
+        }
+
+        String content = root.path("choices").path(0).path("message").path("content").asText("");
+        if (content.isEmpty()) {
+            throw new LlmException("Пустой ответ от OpenAI", response.statusCode());
+        }
+
+        JsonNode usage = root.path("usage");
+        return LlmResponse.builder()
+                .content(content)
+                .model(root.path("model").asText(null))
+                .promptTokens(usage.path("prompt_tokens").asInt(0))
+                .completionTokens(usage.path("completion_tokens").asInt(0))
+                .build();
+    }
+
+    /**
+     * Для стрима в breaker уходит время до первой дельты: длинная генерация
+     * сама по себе не является медленным вызовом
+     */
+    private void recordStream(LlmStream stream, long startedAt, LlmResponse response, Throwable error) {
+        long firstDelta = stream.getFirstDeltaNanos();
+        long duration = (firstDelta != 0 ? firstDelta : System.nanoTime()) - startedAt;
+        if (error instanceof CancellationException) {
+            // отмена клиентом ничего не говорит о состоянии OpenAI
+            circuitBreaker.releasePermission();
+        } else if (error != null) {
+            circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, error);
+        } else if (response.isFallback()) {
+            circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, new LlmException("Стрим OpenAI завершился ошибкой"));
+        } else {
+            circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Counter hedgedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ai.llm.hedged")
+                .description("Вторые запросы к другому провайдеру: по задержке или после ошибки")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ai.llm.rejected")
+                .description("Вызовы OpenAI, отклоненные без запроса к upstream")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private Duration timeoutOf(LlmRequest request) {
+        return request.getTimeout() != null ? request.getTimeout() : config.getReadTimeout();
+    }
+}
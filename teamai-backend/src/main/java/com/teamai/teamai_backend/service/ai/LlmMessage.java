@@ -0,0 +1,21 @@
+package com.teamai.teamai_backend.service.ai;
+
+import lombok.Value;
+
+@Value
+public class LlmMessage {
+    String role;
+    String content;
+
+    public static LlmMessage system(String content) {
+        return new LlmMessage("system", content);
+    }
+
+    public static LlmMessage user(String content) {
+        return new LlmMessage("user", content);
+    }
+
+    public static LlmMessage assistant(String content) {
+        return new LlmMessage("assistant", content);
+    }
+}
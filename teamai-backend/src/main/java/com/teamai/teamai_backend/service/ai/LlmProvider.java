@@ -0,0 +1,111 @@
+package com.teamai.teamai_backend.service.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenAI-совместимый endpoint со статистикой: окна задержек (отдельно для обычных
+ * вызовов и для времени до первой строки стрима), сглаженная доля ошибок и здоровье.
+ *
+ * После maxConsecutiveFailures ошибок подряд провайдер исключается из выбора
+ * на cooldown, затем снова получает запросы; первый успех сбрасывает счетчик.
+ */
+public class LlmProvider {
+
+    private static final double ERROR_RATE_ALPHA = 0.1;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String url;
+    @Getter
+    private final String key;
+    @Getter
+    private final String model;
+    @Getter
+    private final double weight;
+
+    private final int maxConsecutiveFailures;
+    private final long cooldownNanos;
+    private final LatencyWindow chatLatency;
+    private final LatencyWindow streamLatency;
+    private final Timer chatTimer;
+    private final Timer streamTimer;
+    private final Timer failureTimer;
+
+    private volatile double errorRate;
+    private int consecutiveFailures;
+    private volatile long unhealthyUntil;
+
+    LlmProvider(String name, String url, String key, String model, double weight,
+                int latencyWindow, int maxConsecutiveFailures, Duration cooldown, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.url = url;
+        this.key = key;
+        this.model = model;
+        this.weight = weight;
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.cooldownNanos = cooldown.toNanos();
+        this.chatLatency = new LatencyWindow(latencyWindow);
+        this.streamLatency = new LatencyWindow(latencyWindow);
+        this.chatTimer = timer(meterRegistry, "chat", "success");
+        this.streamTimer = timer(meterRegistry, "stream", "success");
+        this.failureTimer = timer(meterRegistry, "any", "error");
+        Gauge.builder("ai.llm.provider.error.rate", this, LlmProvider::getErrorRate)
+                .description("Сглаженная доля ошибок провайдера")
+                .tag("provider", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.llm.provider.healthy", this, p -> p.isHealthy() ? 1 : 0)
+                .tag("provider", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param stream для стрима - время до первой строки ответа
+     */
+    synchronized void recordSuccess(boolean stream, long nanos) {
+        (stream ? streamLatency : chatLatency).record(nanos);
+        (stream ? streamTimer : chatTimer).record(nanos, TimeUnit.NANOSECONDS);
+        errorRate = errorRate * (1 - ERROR_RATE_ALPHA);
+        consecutiveFailures = 0;
+        unhealthyUntil = 0;
+    }
+
+    synchronized void recordFailure(long nanos) {
+        failureTimer.record(nanos, TimeUnit.NANOSECONDS);
+        errorRate = errorRate * (1 - ERROR_RATE_ALPHA) + ERROR_RATE_ALPHA;
+        consecutiveFailures++;
+        if (consecutiveFailures >= maxConsecutiveFailures) {
+            unhealthyUntil = System.nanoTime() + cooldownNanos;
+        }
+    }
+
+    public boolean isHealthy() {
+        long until = unhealthyUntil;
+        return until == 0 || System.nanoTime() - until >= 0;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * @return перцентиль задержки в наносекундах или -1, если замеров еще нет
+     */
+    long latencyPercentile(boolean stream, double quantile) {
+        return (stream ? streamLatency : chatLatency).percentile(quantile);
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String mode, String outcome) {
+        return Timer.builder("ai.llm.provider.latency")
+                .description("Задержка вызовов провайдера LLM (для стрима - до первой строки)")
+                .tags("provider", name, "mode", mode, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.teamai.teamai_backend.service.ai;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.List;
+
+@Value
+@Builder(toBuilder = true)
+public class LlmRequest {
+    String model;
+    @Singular
+    List<LlmMessage> messages;
+    double temperature;
+    int maxTokens;
+    /**
+     * Дедлайн на весь вызов, включая чтение тела ответа
+     */
+    Duration timeout;
+}
@@ -0,0 +1,21 @@
+package com.teamai.teamai_backend.service.ai;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class LlmResponse {
+    String content;
+    String model;
+    int promptTokens;
+    int completionTokens;
+    /**
+     * Ответ сгенерирован локально, а не моделью
+     */
+    boolean fallback;
+    /**
+     * Почему понадобился fallback (тег reason метрики ai.fallback)
+     */
+    String fallbackReason;
+}
@@ -0,0 +1,125 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.config.OpenAiConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выбор провайдера LLM и задержки hedge-запроса.
+ *
+ * Провайдер выбирается случайно с весом weight / (p50 * (1 + штраф * доля ошибок)),
+ * нездоровые провайдеры пропускаются. Hedge-запрос уходит другому провайдеру,
+ * если первый не ответил за перцентиль hedgePercentile своих задержек.
+ */
+@Component
+@Slf4j
+public class LlmRouter {
+
+    private static final double ERROR_PENALTY = 10.0;
+    private static final double UNKNOWN_LATENCY_MILLIS = 1000.0;
+
+    private final OpenAiConfig.Routing routing;
+    private final List<LlmProvider> providers;
+
+    public LlmRouter(OpenAiConfig config, MeterRegistry meterRegistry) {
+        this.routing = config.getRouting();
+        List<LlmProvider> resolved = new ArrayList<>();
+        if (routing.getProviders().isEmpty()) {
+            resolved.add(provider(config, "openai", config.getApi().getUrl(), null, null, 1.0, meterRegistry));
+        } else {
+            for (int i = 0; i < routing.getProviders().size(); i++) {
+                OpenAiConfig.Provider p = routing.getProviders().get(i);
+                resolved.add(provider(config,
+                        p.getName() != null ? p.getName() : "provider-" + i,
+                        p.getUrl() != null ? p.getUrl() : config.getApi().getUrl(),
+                        p.getKey(),
+                        p.getModel(),
+                        p.getWeight() != null ? p.getWeight() : 1.0,
+                        meterRegistry));
+            }
+        }
+        this.providers = List.copyOf(resolved);
+        log.info("LLM providers: {}", providers.stream().map(LlmProvider::getName).toList());
+    }
+
+    public List<LlmProvider> getProviders() {
+        return providers;
+    }
+
+    /**
+     * Провайдер для нового запроса
+     *
+     * @param excluded уже занятый этим вызовом провайдер (для hedge), может быть null
+     * @return null если кроме excluded выбрать некого
+     */
+    public LlmProvider select(LlmProvider excluded, boolean stream) {
+        List<LlmProvider> candidates = new ArrayList<>();
+        for (LlmProvider provider : providers) {
+            if (provider != excluded && provider.isHealthy()) {
+                candidates.add(provider);
+            }
+        }
+        if (candidates.isEmpty()) {
+            if (excluded != null) {
+                return null;
+            }
+            // Все нездоровы: первый запрос все равно нужно куда-то отправить
+            candidates.addAll(providers);
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        double[] scores = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            scores[i] = score(candidates.get(i), stream);
+            total += scores[i];
+        }
+        double point = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < candidates.size(); i++) {
+            point -= scores[i];
+            if (point < 0) {
+                return candidates.get(i);
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    public boolean isHedgingEnabled() {
+        return routing.isHedgingEnabled() && providers.size() > 1;
+    }
+
+    /**
+     * Через сколько после первого запроса отправлять hedge-запрос
+     */
+    public Duration hedgeDelay(LlmProvider provider, boolean stream) {
+        long percentile = provider.latencyPercentile(stream, routing.getHedgePercentile());
+        Duration delay = percentile < 0 ? routing.getInitialHedgeDelay() : Duration.ofNanos(percentile);
+        return delay.compareTo(routing.getMinHedgeDelay()) < 0 ? routing.getMinHedgeDelay() : delay;
+    }
+
+    private static double score(LlmProvider provider, boolean stream) {
+        long median = provider.latencyPercentile(stream, 0.5);
+        double latencyMillis = median < 0 ? UNKNOWN_LATENCY_MILLIS : Math.max(median / 1_000_000.0, 1.0);
+        return provider.getWeight() / (latencyMillis * (1 + ERROR_PENALTY * provider.getErrorRate()));
+    }
+
+    private LlmProvider provider(OpenAiConfig config, String name, String url, String key, String model,
+                                 double weight, MeterRegistry meterRegistry) {
+        return new LlmProvider(name, url,
+                key != null ? key : config.getApi().getKey(),
+                model,
+                weight,
+                routing.getLatencyWindow(),
+                routing.getMaxConsecutiveFailures(),
+                routing.getUnhealthyCooldown(),
+                meterRegistry);
+    }
+}
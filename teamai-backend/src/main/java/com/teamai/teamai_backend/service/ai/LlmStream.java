@@ -0,0 +1,333 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.exception.LlmException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Потоковый ответ OpenAI ({@code stream: true}).
+ *
+ * Строки SSE запрашиваются по одной: следующая строка читается из сокета только
+ * после того, как onDelta обработал предыдущую, поэтому медленный клиент
+ * притормаживает чтение upstream вместо накопления ответа в памяти.
+ * {@link #cancel()} закрывает соединение с OpenAI.
+ *
+ * Ответ может читаться из нескольких параллельных запросов ({@link Attempt}, hedging):
+ * стрим достается запросу, первым приславшему строку, остальные отменяются.
+ */
+@Slf4j
+public class LlmStream {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE_MARKER = "[DONE]";
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> onDelta;
+    private final Supplier<String> fallback;
+    private final CompletableFuture<LlmResponse> completion = new CompletableFuture<>();
+    private final StringBuilder content;
+    private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+
+    private volatile Attempt winner;
+    private volatile boolean cancelled;
+    private long emittedChars;
+    private volatile long firstDeltaNanos;
+    private String model;
+    private int promptTokens;
+    private int completionTokens;
+
+    LlmStream(ObjectMapper objectMapper, Consumer<String> onDelta, Supplier<String> fallback) {
+        this(objectMapper, onDelta, fallback, true);
+    }
+
+    /**
+     * @param retainContent false - текст ответа не накапливается (content в итоговом
+     *                      LlmResponse пустой), когда дельты целиком обрабатывает onDelta
+     */
+    LlmStream(ObjectMapper objectMapper, Consumer<String> onDelta, Supplier<String> fallback, boolean retainContent) {
+        this.objectMapper = objectMapper;
+        this.onDelta = onDelta;
+        this.fallback = fallback;
+        this.content = retainContent ? new StringBuilder() : null;
+    }
+
+    /**
+     * Уже завершенный поток, например когда ответ целиком взят из fallback
+     */
+    public static LlmStream completed(String content) {
+        LlmStream stream = new LlmStream(null, delta -> { }, null);
+        stream.completion.complete(LlmResponse.builder().content(content).build());
+        return stream;
+    }
+
+    public CompletableFuture<LlmResponse> completion() {
+        return completion;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * System.nanoTime() первой дельты или 0, если дельт еще не было
+     */
+    long getFirstDeltaNanos() {
+        return firstDeltaNanos;
+    }
+
+    /**
+     * true если один из запросов уже начал отдавать ответ
+     */
+    boolean hasWinner() {
+        return winner != null;
+    }
+
+    /**
+     * Новый upstream запрос, читающий этот стрим
+     */
+    Attempt newAttempt() {
+        Attempt attempt = new Attempt();
+        attempts.add(attempt);
+        if (completion.isDone() || winner != null) {
+            attempt.cancel();
+        }
+        return attempt;
+    }
+
+    /**
+     * Отмена со стороны клиента: прерывает upstream запрос, fallback не отправляется
+     */
+    public void cancel() {
+        if (completion.isDone()) {
+            return;
+        }
+        cancelled = true;
+        cancelAttempts(null);
+        completion.completeExceptionally(new CancellationException("Стрим отменен клиентом"));
+    }
+
+    /**
+     * Дедлайн истек: закрываем upstream и завершаем как ошибку (с fallback, если еще ничего не отправлено)
+     */
+    void abort(Throwable error) {
+        if (completion.isDone()) {
+            return;
+        }
+        cancelAttempts(null);
+        fail(error);
+    }
+
+    /**
+     * Ошибка до или во время стрима. Если клиенту еще ничего не отправлено,
+     * отдаем fallback одним куском, иначе завершаем с ошибкой.
+     */
+    synchronized void fail(Throwable error) {
+        if (cancelled || completion.isDone()) {
+            return;
+        }
+        if (emittedChars == 0 && fallback != null) {
+            log.warn("OpenAI stream failed before first delta, using fallback: {}", error.getMessage());
+            try {
+                String text = fallback.get();
+                onDelta.accept(text);
+                completion.complete(LlmResponse.builder()
+                        .content(text)
+                        .fallback(true)
+                        .fallbackReason(AiMetrics.fallbackReason(error))
+                        .build());
+            } catch (RuntimeException e) {
+                completion.completeExceptionally(e);
+            }
+            return;
+        }
+        completion.completeExceptionally(error);
+    }
+
+    private void cancelAttempts(Attempt except) {
+        for (Attempt attempt : attempts) {
+            if (attempt != except) {
+                attempt.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return false если стрим закончен и больше строк запрашивать не нужно
+     */
+    private boolean handleLine(String line) {
+        if (line.isEmpty() || !line.startsWith(DATA_PREFIX)) {
+            // пустые строки-разделители событий и комментарии ":"
+            return true;
+        }
+        String data = line.substring(DATA_PREFIX.length()).trim();
+        if (DONE_MARKER.equals(data)) {
+            finish();
+            return false;
+        }
+
+        JsonNode chunk;
+        try {
+            chunk = objectMapper.readTree(data);
+        } catch (Exception e) {
+            throw new LlmException("Некорректный фрагмент стрима OpenAI", e);
+        }
+
+        if (chunk.hasNonNull("model")) {
+            model = chunk.get("model").asText();
+        }
+        JsonNode usage = chunk.path("usage");
+        if (usage.isObject()) {
+            promptTokens = usage.path("prompt_tokens").asInt(0);
+            completionTokens = usage.path("completion_tokens").asInt(0);
+        }
+
+        String delta = chunk.path("choices").path(0).path("delta").path("content").asText("");
+        if (!delta.isEmpty()) {
+            if (emittedChars == 0) {
+                firstDeltaNanos = System.nanoTime();
+            }
+            emittedChars += delta.length();
+            if (content != null) {
+                content.append(delta);
+            }
+            onDelta.accept(delta);
+        }
+        return true;
+    }
+
+    private synchronized void finish() {
+        if (completion.isDone()) {
+            return;
+        }
+        if (emittedChars == 0) {
+            fail(new LlmException("Пустой ответ от OpenAI"));
+            return;
+        }
+        completion.complete(LlmResponse.builder()
+                .content(content != null ? content.toString() : "")
+                .model(model)
+                .promptTokens(promptTokens)
+                .completionTokens(completionTokens)
+                .build());
+    }
+
+    /**
+     * Один upstream запрос стрима. outcome() завершается успешно, когда запрос
+     * первым прислал строку и стрим достался ему, и с ошибкой - если запрос упал
+     * или был отменен раньше. Ошибки после победы завершают сам стрим.
+     */
+    final class Attempt implements Flow.Subscriber<String> {
+
+        private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+        private volatile CompletableFuture<?> exchange;
+        private volatile boolean attemptCancelled;
+
+        CompletableFuture<Void> outcome() {
+            return outcome;
+        }
+
+        /**
+         * HTTP обмен запроса - отменяется вместе с попыткой, даже если тело еще не начало читаться
+         */
+        void bind(CompletableFuture<?> exchange) {
+            this.exchange = exchange;
+            if (attemptCancelled) {
+                exchange.cancel(true);
+            }
+        }
+
+        /**
+         * Ошибка до чтения тела: статус не 2xx, соединение, сериализация запроса
+         */
+        void reject(Throwable error) {
+            onError(error);
+        }
+
+        void cancel() {
+            attemptCancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            CompletableFuture<?> currentExchange = exchange;
+            if (currentExchange != null) {
+                currentExchange.cancel(true);
+            }
+            outcome.completeExceptionally(new CancellationException("Запрос к OpenAI отменен"));
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            Attempt current = winner;
+            if (attemptCancelled || (current != null && current != this)) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            boolean more;
+            try {
+                synchronized (LlmStream.this) {
+                    if (completion.isDone() || !claim()) {
+                        subscription.cancel();
+                        return;
+                    }
+                    more = handleLine(line.trim());
+                }
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                fail(e);
+                return;
+            }
+            if (more && !cancelled) {
+                subscription.request(1);
+            } else {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (winner == this) {
+                fail(throwable);
+            } else {
+                outcome.completeExceptionally(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (winner == this) {
+                finish();
+            } else {
+                outcome.completeExceptionally(new LlmException("Пустой ответ от OpenAI"));
+            }
+        }
+
+        /**
+         * Вызывается под блокировкой стрима: первая строка закрепляет стрим за этим запросом
+         */
+        private boolean claim() {
+            if (winner == null) {
+                winner = this;
+                outcome.complete(null);
+                cancelAttempts(this);
+            }
+            return winner == this;
+        }
+    }
+}
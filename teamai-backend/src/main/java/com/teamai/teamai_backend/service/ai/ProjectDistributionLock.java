@@ -0,0 +1,135 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.config.AiDistributionConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Межузловая блокировка распределения задач по проекту на Postgres advisory lock.
+ *
+ * Блокировка сессионная: соединение удерживается, пока идет распределение
+ * (вызов OpenAI и запись задач), и возвращается в пул после pg_advisory_unlock.
+ * Соединения берутся из отдельного небольшого пула (ai.distribution.lock-pool-size),
+ * чтобы долгие вызовы OpenAI не занимали основной пул, нужный для записи задач.
+ * Если узел упал, Postgres снимает блокировку вместе с сессией.
+ */
+@Component
+@Slf4j
+public class ProjectDistributionLock {
+
+    private final AiDistributionConfig config;
+    private final HikariDataSource lockDataSource;
+
+    public ProjectDistributionLock(AiDistributionConfig config, DataSourceProperties dataSourceProperties) {
+        this.config = config;
+        this.lockDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        lockDataSource.setPoolName("distribution-lock");
+        lockDataSource.setMaximumPoolSize(config.getLockPoolSize());
+        lockDataSource.setMinimumIdle(0);
+        lockDataSource.setConnectionTimeout(config.getLockConnectionTimeout().toMillis());
+    }
+
+    @PreDestroy
+    public void close() {
+        lockDataSource.close();
+    }
+
+    /**
+     * @return lease, который нужно закрыть по окончании распределения,
+     *         или empty если распределение по проекту уже идет на другом узле
+     */
+    public Optional<Lease> tryAcquire(UUID projectId) {
+        if (!config.isClusterLock()) {
+            return Optional.of(() -> { });
+        }
+
+        long key = lockKey(projectId);
+        Connection connection = null;
+        try {
+            connection = lockDataSource.getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, key);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        return Optional.of(new AdvisoryLease(connection, key));
+                    }
+                }
+            }
+            connection.close();
+            return Optional.empty();
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new DataAccessResourceFailureException("Не удалось получить блокировку проекта", e);
+        }
+    }
+
+    /**
+     * 64-битный ключ из всех бит UUID: у hashCode() коллизии давали 409 на чужие проекты
+     */
+    static long lockKey(UUID projectId) {
+        return projectId.getMostSignificantBits() ^ projectId.getLeastSignificantBits();
+    }
+
+    @FunctionalInterface
+    public interface Lease extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class AdvisoryLease implements Lease {
+
+        private final Connection connection;
+        private final long key;
+        private boolean released;
+
+        private AdvisoryLease(Connection connection, long key) {
+            this.connection = connection;
+            this.key = key;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setLong(1, key);
+                statement.execute();
+                connection.close();
+            } catch (SQLException e) {
+                // Соединение с висящей блокировкой нельзя возвращать в пул - закрываем физически
+                log.error("Failed to release advisory lock {}: {}", key, e.getMessage());
+                try {
+                    connection.abort(Runnable::run);
+                } catch (SQLException ignored) {
+                    closeQuietly(connection);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // соединение уже недоступно
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.entity.UserSkill;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Компактный индекс навыков команды: названия навыков интернируются в int id,
+ * у каждого участника - битсет навыков и уровень владения (1-5) по id.
+ * Строится один раз на распределение, дальше сравнения идут без строк.
+ */
+public class SkillIndex {
+
+    public static final int MAX_PROFICIENCY = 5;
+
+    private final Map<String, Integer> skillIds = new HashMap<>();
+    private final BitSet[] memberSkills;
+    private final byte[][] proficiency;
+
+    public SkillIndex(List<User> members) {
+        memberSkills = new BitSet[members.size()];
+        for (int m = 0; m < members.size(); m++) {
+            memberSkills[m] = new BitSet();
+            for (UserSkill skill : members.get(m).getSkills()) {
+                memberSkills[m].set(intern(skill.getSkillName()));
+            }
+        }
+
+        int skillCount = skillIds.size();
+        proficiency = new byte[members.size()][skillCount];
+        for (int m = 0; m < members.size(); m++) {
+            for (UserSkill skill : members.get(m).getSkills()) {
+                int level = skill.getProficiencyLevel() != null ? skill.getProficiencyLevel() : 1;
+                int id = skillIds.get(normalize(skill.getSkillName()));
+                proficiency[m][id] = (byte) Math.max(proficiency[m][id], Math.min(level, MAX_PROFICIENCY));
+            }
+        }
+    }
+
+    /**
+     * Битсет требуемых навыков задачи; навыки, которых нет ни у кого в команде,
+     * получают id за пределами индекса и просто не совпадут ни с кем
+     */
+    public BitSet encode(Collection<String> skillNames) {
+        BitSet bits = new BitSet();
+        int unknown = skillIds.size();
+        for (String name : skillNames) {
+            Integer id = skillIds.get(normalize(name));
+            bits.set(id != null ? id : unknown++);
+        }
+        return bits;
+    }
+
+    /**
+     * Насколько участник закрывает требования задачи: 0 - не закрывает,
+     * 1 - владеет всеми навыками на максимальном уровне
+     */
+    public double fit(int member, BitSet required) {
+        int requiredCount = required.cardinality();
+        if (requiredCount == 0) {
+            return 1.0;
+        }
+        BitSet owned = memberSkills[member];
+        int score = 0;
+        for (int id = required.nextSetBit(0); id >= 0 && id < proficiency[member].length; id = required.nextSetBit(id + 1)) {
+            if (owned.get(id)) {
+                score += proficiency[member][id];
+            }
+        }
+        return (double) score / (requiredCount * MAX_PROFICIENCY);
+    }
+
+    public int size() {
+        return skillIds.size();
+    }
+
+    private int intern(String skillName) {
+        return skillIds.computeIfAbsent(normalize(skillName), key -> skillIds.size());
+    }
+
+    private static String normalize(String skillName) {
+        return skillName == null ? "" : skillName.trim().toLowerCase(Locale.ROOT);
+    }
+}
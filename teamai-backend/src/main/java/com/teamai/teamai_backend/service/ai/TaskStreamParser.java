@@ -0,0 +1,181 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Инкрементальный разбор JSON массива задач из потока дельт модели.
+ *
+ * Текст до массива (пояснения, {@code ```json}) пропускается: разбор начинается
+ * с первой {@code [}, за которой идет {@code {}. Дальше куски подаются
+ * в неблокирующий Jackson парсер, и каждый объект задачи передается в onTask,
+ * как только закрыта его скобка. Все после закрытия массива игнорируется.
+ *
+ * В памяти держится только текущий объект, а не весь ответ.
+ * Не потокобезопасен: куски должны подаваться последовательно.
+ */
+@Slf4j
+public class TaskStreamParser {
+
+    private enum State { SEEKING, BRACKET, PARSING, DONE, FAILED }
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<JsonNode> onTask;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private State state = State.SEEKING;
+    private int depth;
+    private TokenBuffer current;
+    private int emitted;
+
+    public TaskStreamParser(ObjectMapper objectMapper, Consumer<JsonNode> onTask) {
+        this.objectMapper = objectMapper;
+        this.onTask = onTask;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось создать JSON парсер", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Очередная дельта ответа модели
+     */
+    public void feed(String chunk) {
+        int from = 0;
+        while (from < chunk.length() && (state == State.SEEKING || state == State.BRACKET)) {
+            char c = chunk.charAt(from);
+            if (state == State.SEEKING) {
+                if (c == '[') {
+                    state = State.BRACKET;
+                }
+                from++;
+            } else if (Character.isWhitespace(c)) {
+                from++;
+            } else if (c == '{') {
+                state = State.PARSING;
+                feedBytes("[");
+            } else if (c == ']') {
+                // пустой массив - задач нет
+                state = State.DONE;
+            } else {
+                // "[" оказалась частью текста, ищем дальше с этого символа
+                state = State.SEEKING;
+            }
+        }
+        if (state == State.PARSING && from < chunk.length()) {
+            feedBytes(chunk.substring(from));
+        }
+    }
+
+    /**
+     * Конец ответа: незакрытый последний объект отбрасывается
+     */
+    public void finish() {
+        if (state == State.PARSING) {
+            feeder.endOfInput();
+            drain();
+        }
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // буфер в памяти, закрывать нечего
+        }
+    }
+
+    /**
+     * Сколько задач передано в onTask
+     */
+    public int getEmitted() {
+        return emitted;
+    }
+
+    /**
+     * true если закрывающая скобка массива получена
+     */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /**
+     * true если разбор остановлен на некорректном JSON
+     */
+    public boolean isFailed() {
+        return state == State.FAILED;
+    }
+
+    private void feedBytes(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        drain();
+    }
+
+    private void drain() {
+        try {
+            JsonToken token;
+            while (state == State.PARSING
+                    && (token = parser.nextToken()) != null
+                    && token != JsonToken.NOT_AVAILABLE) {
+                handle(token);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        if (depth == 0) {
+            // открывающая скобка массива
+            depth = 1;
+            return;
+        }
+        if (depth == 1 && token == JsonToken.END_ARRAY) {
+            state = State.DONE;
+            return;
+        }
+        if (depth == 1 && token == JsonToken.START_OBJECT) {
+            current = new TokenBuffer(parser);
+        }
+        if (current != null) {
+            current.copyCurrentEvent(parser);
+        }
+        if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd()) {
+            depth--;
+        }
+        if (depth == 1 && current != null) {
+            emit();
+        }
+    }
+
+    private void emit() throws IOException {
+        TokenBuffer buffer = current;
+        current = null;
+        JsonNode node = objectMapper.readTree(buffer.asParser(objectMapper));
+        emitted++;
+        onTask.accept(node);
+    }
+
+    private void fail(IOException e) {
+        log.warn("Malformed task JSON from model after {} tasks: {}", emitted, e.getMessage());
+        state = State.FAILED;
+        current = null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.teamai.teamai_backend.util;
+
+import com.teamai.teamai_backend.exception.BadRequestException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Курсор keyset пагинации: ключ сортировки и id последней строки страницы.
+ * Для клиента это непрозрачная строка (base64url), ее формат может меняться.
+ */
+@Value
+public class PageCursor {
+    LocalDateTime position;
+    UUID id;
+    
+    public String encode() {
+        String raw = position + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Некорректный cursor");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+-- Доводит схему до текущих сущностей. Выполняется и на новых базах после V1-V2, и на базах,
+-- созданных раньше через ddl-auto: update (для них Flyway ставит baseline на версию 2,
+-- spring.flyway.baseline-version). Схема такой базы зависит от версии приложения, которая ее
+-- создала, поэтому все изменения идемпотентны.
+
+-- Project.progress - Double
+ALTER TABLE projects ALTER COLUMN progress TYPE DOUBLE PRECISION;
+
+-- Счетчики задач (ProjectRepository.adjustTaskCounters) и отпечаток AI-сводки.
+-- У существующих проектов счетчики заполнит первая сверка ProjectCountersReconciler
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS total_tasks INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS completed_tasks INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS ai_summary_fingerprint VARCHAR(32);
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS ai_summary_updated_at TIMESTAMP;
+
+-- Фоновые задачи распределения (AiJob)
+CREATE TABLE IF NOT EXISTS ai_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    project_id UUID NOT NULL,
+    requested_by UUID,
+    idempotency_key VARCHAR(255) UNIQUE,
+    status VARCHAR(50) NOT NULL DEFAULT 'QUEUED',
+    message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS ai_job_tasks (
+    job_id UUID NOT NULL REFERENCES ai_jobs(id) ON DELETE CASCADE,
+    task_id UUID NOT NULL
+);
+
+-- Одноколоночные индексы V1-V2, которые покрывает уникальное ограничение или составные индексы V4.
+-- idx_project_members_user в базах ddl-auto уже составной - V4 создаст его заново
+DROP INDEX IF EXISTS idx_users_email;
+DROP INDEX IF EXISTS idx_projects_owner;
+DROP INDEX IF EXISTS idx_project_members_project;
+DROP INDEX IF EXISTS idx_project_members_user;
+DROP INDEX IF EXISTS idx_tasks_project;
+DROP INDEX IF EXISTS idx_tasks_assigned_to;
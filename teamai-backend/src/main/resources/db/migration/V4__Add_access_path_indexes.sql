@@ -0,0 +1,24 @@
+-- Составные индексы под реальные запросы. CONCURRENTLY - без блокировки записи на больших таблицах,
+-- поэтому Flyway выполняет миграцию вне транзакции. IF NOT EXISTS - часть индексов уже есть
+-- в базах, созданных ddl-auto, и в схеме V1-V2.
+-- Нужен spring.flyway.postgresql.transactional-lock: false: иначе advisory lock Flyway держится
+-- в открытой транзакции, CONCURRENTLY ждет ее завершения и migrate зависает.
+
+-- Задачи пользователя: списки, "сегодня" (deadline >= :start AND deadline < :end) и keyset страницы по (deadline, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_assignee_deadline ON tasks(assigned_to_id, deadline, id);
+
+-- Задачи проекта и пересчет счетчиков (COUNT ... FILTER (WHERE status = 'COMPLETED'))
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_project_status ON tasks(project_id, status);
+
+-- Навыки задач (TaskRepository.findSkillNames) и пользователей
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_task_skills_task ON task_skills(task_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_skills_user_id ON user_skills(user_id);
+
+-- Видимые пользователю проекты: свои по (created_at, id) и те, где он участник.
+-- Уникальный индекс project_members начинается с project_id и для поиска по user_id не подходит
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_projects_owner_created ON projects(owner_id, created_at, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_project_members_user ON project_members(user_id, project_id);
+
+-- Незавершенная задача распределения проекта и созданные ею задачи
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ai_jobs_project_created ON ai_jobs(project_id, created_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ai_job_tasks_job ON ai_job_tasks(job_id);
@@ -0,0 +1,3 @@
+-- Триграммы для поиска пользователей по подстроке (LIKE '%...%'). pg_trgm - доверенное расширение,
+-- владельцу базы суперпользователь не нужен
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,10 @@
+-- Индексы UserSearchService. CONCURRENTLY - вне транзакции, как и V4
+-- (нужен spring.flyway.postgresql.transactional-lock: false, см. V4).
+
+-- Префиксный поиск (LIKE 'ivan%'): text_pattern_ops работает с LIKE независимо от collation базы
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_prefix ON users(lower(email) text_pattern_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_name_prefix ON users(lower(name) text_pattern_ops);
+
+-- Поиск по подстроке (LIKE '%ivan%') от 3 символов
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_trgm ON users USING gin(lower(email) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_name_trgm ON users USING gin(lower(name) gin_trgm_ops);
@@ -0,0 +1,4 @@
+-- Ночной пересчет повесток (TodayAgendaPrecomputer): исполнители задач на день по диапазону deadline
+-- без условия на исполнителя. В схеме V2 индекс уже есть, в базах ddl-auto - нет.
+-- CONCURRENTLY - нужен spring.flyway.postgresql.transactional-lock: false, см. V4
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_deadline ON tasks(deadline);
@@ -0,0 +1,21 @@
+-- Idempotency-Key уникален в пределах пользователя (AiJobService): одинаковый ключ
+-- другого пользователя не должен возвращать чужую задачу.
+-- Имя старого ограничения зависит от того, кто создал таблицу (V3 или ddl-auto), - ищем по колонке
+DO $$
+DECLARE
+    old_constraint TEXT;
+BEGIN
+    FOR old_constraint IN
+        SELECT c.conname FROM pg_constraint c
+        JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+        WHERE c.conrelid = 'ai_jobs'::regclass AND c.contype = 'u'
+          AND array_length(c.conkey, 1) = 1 AND a.attname = 'idempotency_key'
+    LOOP
+        EXECUTE format('ALTER TABLE ai_jobs DROP CONSTRAINT %I', old_constraint);
+    END LOOP;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_ai_jobs_requested_by_idempotency_key') THEN
+        ALTER TABLE ai_jobs ADD CONSTRAINT uk_ai_jobs_requested_by_idempotency_key
+            UNIQUE (requested_by, idempotency_key);
+    END IF;
+END $$;
@@ -0,0 +1,7 @@
+-- Владелец фоновой задачи AI и аренда (AiJobService): инстанс продлевает heartbeat_at своих задач,
+-- задачи с истекшей арендой подбирает или завершает другой инстанс
+ALTER TABLE ai_jobs ADD COLUMN IF NOT EXISTS owner_instance VARCHAR(255);
+ALTER TABLE ai_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
+
+-- Поиск незавершенных задач с истекшей арендой
+CREATE INDEX IF NOT EXISTS idx_ai_jobs_status_heartbeat ON ai_jobs(status, heartbeat_at);
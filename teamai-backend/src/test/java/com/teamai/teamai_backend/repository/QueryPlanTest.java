@@ -0,0 +1,112 @@
+package com.teamai.teamai_backend.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Схема из миграций Flyway (ddl-auto: validate сверяет ее с сущностями) и планы основных запросов:
+ * EXPLAIN должен идти по индексам V4, а не полным сканированием. Нужен Docker, без него тест пропускается
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.flyway.postgresql.transactional-lock=false",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    private static final int USERS = 5000;
+    private static final int PROJECTS = 100;
+    private static final int TASKS_PER_USER = 10;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID userId;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (name, email, password_hash, role) " +
+                "SELECT 'User ' || i, 'plan-' || i || '@teamai.local', '-', 'developer' " +
+                "FROM generate_series(1, ?) i", USERS);
+        jdbcTemplate.update("INSERT INTO user_skills (user_id, skill_name) " +
+                "SELECT u.id, s FROM users u CROSS JOIN (VALUES ('Java'), ('SQL'), ('React')) skills(s)");
+        jdbcTemplate.update("INSERT INTO projects (title, owner_id, start_date, deadline) " +
+                "SELECT 'Project ' || i, (SELECT id FROM users ORDER BY email OFFSET i LIMIT 1), " +
+                "CURRENT_DATE, CURRENT_DATE + 90 FROM generate_series(1, ?) i", PROJECTS);
+        jdbcTemplate.update("INSERT INTO project_members (project_id, user_id) " +
+                "SELECT p.id, u.id FROM (SELECT id, row_number() OVER () AS n FROM users) u " +
+                "JOIN (SELECT id, row_number() OVER () AS n FROM projects) p ON p.n = u.n % ? + 1", PROJECTS);
+        // Дедлайны размазаны на год вокруг сегодняшнего дня
+        jdbcTemplate.update("INSERT INTO tasks (project_id, title, assigned_to_id, deadline) " +
+                "SELECT m.project_id, 'Task ' || i, m.user_id, " +
+                "LOCALTIMESTAMP - INTERVAL '180 days' + (i * 37 % 365) * INTERVAL '1 day' + (i % 24) * INTERVAL '1 hour' " +
+                "FROM project_members m CROSS JOIN generate_series(1, ?) i", TASKS_PER_USER);
+        jdbcTemplate.execute("ANALYZE");
+
+        userId = jdbcTemplate.queryForObject("SELECT user_id FROM project_members LIMIT 1", UUID.class);
+    }
+
+    @Test
+    void todayTasksUseAssigneeDeadlineIndex() {
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        String plan = explain("SELECT t.id, p.title FROM tasks t JOIN projects p ON p.id = t.project_id " +
+                        "WHERE t.assigned_to_id = ? AND t.deadline >= ? AND t.deadline < ?",
+                userId, Timestamp.valueOf(start), Timestamp.valueOf(start.plusDays(1)));
+
+        assertTrue(plan.contains("idx_tasks_assignee_deadline"), plan);
+        assertFalse(plan.contains("Seq Scan on tasks"), plan);
+    }
+
+    @Test
+    void taskPageIsReadInIndexOrderWithoutSort() {
+        String plan = explain("SELECT t.id FROM tasks t WHERE t.assigned_to_id = ? " +
+                        "AND (t.deadline, t.id) > (?, ?) ORDER BY t.deadline, t.id LIMIT 51",
+                userId, Timestamp.valueOf(LocalDateTime.now()), new UUID(0, 0));
+
+        assertTrue(plan.contains("idx_tasks_assignee_deadline"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+    }
+
+    @Test
+    void projectCountersUseProjectStatusIndex() {
+        UUID projectId = jdbcTemplate.queryForObject("SELECT id FROM projects LIMIT 1", UUID.class);
+        String plan = explain("SELECT COUNT(*), COUNT(*) FILTER (WHERE status = 'COMPLETED') " +
+                "FROM tasks WHERE project_id = ?", projectId);
+
+        assertTrue(plan.contains("idx_tasks_project_status"), plan);
+    }
+
+    @Test
+    void membershipAndSkillsLookupsByUserUseIndexes() {
+        assertTrue(explain("SELECT project_id FROM project_members WHERE user_id = ?", userId)
+                .contains("idx_project_members_user"));
+        assertTrue(explain("SELECT skill_name FROM user_skills WHERE user_id = ?", userId)
+                .contains("idx_user_skills_user_id"));
+    }
+
+    private String explain(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+}
@@ -0,0 +1,133 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.ProjectMember;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import com.teamai.teamai_backend.service.ai.OpenAiStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Параллельные distributeTasks по одному проекту должны дать один вызов OpenAI
+ * и один набор задач
+ */
+@SpringBootTest
+class AIServiceConcurrencyTest {
+
+    private static final int CALLERS = 8;
+
+    private static final String TASKS_JSON = "[{\"title\": \"Первая задача\", \"description\": \"Описание\", " +
+            "\"assignTo\": \"Concurrency User\", \"priority\": \"HIGH\", \"daysFromStart\": 3}, " +
+            "{\"title\": \"Вторая задача\", \"description\": \"Описание\", " +
+            "\"assignTo\": \"Concurrency User\", \"priority\": \"LOW\", \"daysFromStart\": 7}]";
+
+    private static final OpenAiStubServer STUB = startStub();
+
+    @DynamicPropertySource
+    static void openAiProperties(DynamicPropertyRegistry registry) {
+        registry.add("openai.api.url", STUB::getUrl);
+        registry.add("openai.api.key", () -> "test-key");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Concurrency User")
+                .email("concurrency-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+        Project newProject = Project.builder()
+                .title("Concurrency test")
+                .description("Проект для теста параллельного распределения")
+                .owner(user)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build();
+        newProject.getMembers().add(ProjectMember.builder().project(newProject).user(user).build());
+        project = projectRepository.save(newProject);
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void concurrentCallsShareOneUpstreamCall() throws Exception {
+        int requestsBefore = STUB.getRequestCount();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(callers.submit(() -> {
+                start.await();
+                return aiService.distributeTasks(project.getId(), user.getId()).get(30, TimeUnit.SECONDS);
+            }));
+        }
+        start.countDown();
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Future<Map<String, Object>> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        assertEquals(1, STUB.getRequestCount() - requestsBefore);
+        Object taskIds = results.get(0).get("taskIds");
+        assertEquals(2, ((List<?>) taskIds).size());
+        for (Map<String, Object> result : results) {
+            assertEquals(taskIds, result.get("taskIds"));
+        }
+    }
+
+    private static OpenAiStubServer startStub() {
+        try {
+            return new OpenAiStubServer(0, 500).withContent(TASKS_JSON).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
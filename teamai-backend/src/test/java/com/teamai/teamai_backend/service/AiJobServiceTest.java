@@ -0,0 +1,254 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.config.AiJobConfig;
+import com.teamai.teamai_backend.exception.ResourceNotFoundException;
+import com.teamai.teamai_backend.model.dto.response.AiJobResponse;
+import com.teamai.teamai_backend.model.entity.AiJob;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.ProjectMember;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.enums.AiJobStatus;
+import com.teamai.teamai_backend.repository.AiJobRepository;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import com.teamai.teamai_backend.security.JwtTokenProvider;
+import com.teamai.teamai_backend.service.ai.OpenAiStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Фоновые задачи распределения: повтор по Idempotency-Key, доступ к чужим задачам,
+ * восстановление после рестарта, аренда задач и завершение SSE потока статусов
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AiJobServiceTest {
+
+    private static final String TASKS_JSON = "[{\"title\": \"Фоновая задача\", \"description\": \"Описание\", " +
+            "\"assignTo\": \"Job Owner\", \"priority\": \"HIGH\", \"daysFromStart\": 3}]";
+
+    private static final OpenAiStubServer STUB = startStub();
+
+    @DynamicPropertySource
+    static void openAiProperties(DynamicPropertyRegistry registry) {
+        registry.add("openai.api.url", STUB::getUrl);
+        registry.add("openai.api.key", () -> "test-key");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Autowired
+    private AiJobService aiJobService;
+
+    @Autowired
+    private AiJobRepository aiJobRepository;
+
+    @Autowired
+    private AiJobConfig aiJobConfig;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private User owner;
+    private User stranger;
+    private final List<Project> projects = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = saveUser("Job Owner");
+        stranger = saveUser("Job Stranger");
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<UUID> projectIds = projects.stream().map(Project::getId).toList();
+        aiJobRepository.findAll().stream()
+                .filter(job -> projectIds.contains(job.getProjectId()))
+                .forEach(job -> awaitFinished(job.getId()));
+        aiJobRepository.deleteAll(aiJobRepository.findAll().stream()
+                .filter(job -> projectIds.contains(job.getProjectId()))
+                .toList());
+        projectIds.forEach(projectRepository::deleteById);
+        userRepository.deleteById(owner.getId());
+        userRepository.deleteById(stranger.getId());
+    }
+
+    @Test
+    void repeatedKeyReturnsSameJobOnlyForSameUser() {
+        Project ownerProject = saveProject(owner);
+        Project strangerProject = saveProject(stranger);
+
+        AiJobResponse first = aiJobService.submitDistribution(ownerProject.getId(), owner.getId(), "same-key");
+        AiJobResponse repeated = aiJobService.submitDistribution(ownerProject.getId(), owner.getId(), "same-key");
+        AiJobResponse foreign = aiJobService.submitDistribution(strangerProject.getId(), stranger.getId(), "same-key");
+
+        assertEquals(first.getId(), repeated.getId());
+        assertNotEquals(first.getId(), foreign.getId());
+        assertEquals(strangerProject.getId(), foreign.getProjectId());
+    }
+
+    @Test
+    void jobIsHiddenFromUsersOutsideProject() {
+        Project project = saveProject(owner);
+        AiJobResponse job = aiJobService.submitDistribution(project.getId(), owner.getId(), null);
+
+        assertEquals(job.getId(), aiJobService.getJob(job.getId(), owner.getId()).getId());
+        assertThrows(ResourceNotFoundException.class, () -> aiJobService.getJob(job.getId(), stranger.getId()));
+        assertThrows(ResourceNotFoundException.class, () -> aiJobService.subscribe(job.getId(), stranger.getId()));
+        // Активная задача проекта не отдается тому, кто проекта не видит
+        assertThrows(ResourceNotFoundException.class,
+                () -> aiJobService.submitDistribution(project.getId(), stranger.getId(), null));
+    }
+
+    @Test
+    void restartFailsRunningJobsAndRequeuesQueuedOnes() {
+        Project running = saveProject(owner);
+        Project queued = saveProject(owner);
+        LocalDateTime now = LocalDateTime.now();
+        AiJob interrupted = aiJobRepository.save(job(running, AiJobStatus.RUNNING, aiJobService.getInstanceId(), now));
+        AiJob waiting = aiJobRepository.save(job(queued, AiJobStatus.QUEUED, aiJobService.getInstanceId(), now));
+
+        aiJobService.recoverJobs();
+
+        assertEquals(AiJobStatus.FAILED, aiJobRepository.findById(interrupted.getId()).orElseThrow().getStatus());
+        AiJob finished = awaitFinished(waiting.getId());
+        assertEquals(AiJobStatus.DONE, finished.getStatus());
+        assertEquals(1, finished.getCreatedTaskIds().size());
+    }
+
+    @Test
+    void onlyExpiredLeasesOfOtherInstancesAreRecovered() {
+        Project alive = saveProject(owner);
+        Project crashed = saveProject(owner);
+        Project orphaned = saveProject(owner);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = now.minus(aiJobConfig.getLeaseTimeout()).minusMinutes(1);
+        AiJob running = aiJobRepository.save(job(alive, AiJobStatus.RUNNING, "other-node", now));
+        AiJob abandoned = aiJobRepository.save(job(crashed, AiJobStatus.RUNNING, "other-node", expired));
+        AiJob waiting = aiJobRepository.save(job(orphaned, AiJobStatus.QUEUED, "other-node", expired));
+
+        aiJobService.recoverJobs();
+
+        assertEquals(AiJobStatus.RUNNING, aiJobRepository.findById(running.getId()).orElseThrow().getStatus());
+        assertEquals(AiJobStatus.FAILED, aiJobRepository.findById(abandoned.getId()).orElseThrow().getStatus());
+        AiJob adopted = awaitFinished(waiting.getId());
+        assertEquals(AiJobStatus.DONE, adopted.getStatus());
+        assertEquals(aiJobService.getInstanceId(), adopted.getOwnerInstance());
+
+        // Задачу "живого" инстанса тест завершает сам, иначе tearDown будет ждать ее
+        running = aiJobRepository.findById(running.getId()).orElseThrow();
+        running.setStatus(AiJobStatus.FAILED);
+        aiJobRepository.save(running);
+    }
+
+    @Test
+    void eventStreamCompletesWithFinalStatus() throws Exception {
+        Project project = saveProject(owner);
+        AiJobResponse job = aiJobService.submitDistribution(project.getId(), owner.getId(), null);
+        String token = jwtTokenProvider.generateToken(owner.getId(), owner.getEmail(), owner.getRole());
+
+        MvcResult result = mockMvc.perform(get("/ai/jobs/{id}/events", job.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Результат async выставляется, когда сервис завершает emitter
+        result.getAsyncResult(30_000);
+
+        String events = result.getResponse().getContentAsString();
+        assertTrue(events.contains("\"status\":\"DONE\""), events);
+    }
+
+    private AiJob job(Project project, AiJobStatus status, String ownerInstance, LocalDateTime heartbeatAt) {
+        return AiJob.builder()
+                .projectId(project.getId())
+                .requestedBy(owner.getId())
+                .status(status)
+                .ownerInstance(ownerInstance)
+                .heartbeatAt(heartbeatAt)
+                .build();
+    }
+
+    private AiJob awaitFinished(UUID jobId) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            AiJob job = aiJobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() == AiJobStatus.DONE || job.getStatus() == AiJobStatus.FAILED
+                    || System.currentTimeMillis() > deadline) {
+                return job;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return job;
+            }
+        }
+    }
+
+    private User saveUser(String name) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email("job-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+    }
+
+    private Project saveProject(User member) {
+        Project newProject = Project.builder()
+                .title("AI job test")
+                .description("Проект для теста фоновых задач")
+                .owner(member)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build();
+        newProject.getMembers().add(ProjectMember.builder().project(newProject).user(member).build());
+        Project saved = projectRepository.save(newProject);
+        projects.add(saved);
+        return saved;
+    }
+
+    private static OpenAiStubServer startStub() {
+        try {
+            return new OpenAiStubServer(0, 500).withContent(TASKS_JSON).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.exception.BadRequestException;
+import com.teamai.teamai_backend.exception.ResourceNotFoundException;
+import com.teamai.teamai_backend.model.dto.response.DistributionPlanResponse;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.ProjectMember;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import com.teamai.teamai_backend.service.ai.DistributionPlanStore;
+import com.teamai.teamai_backend.service.ai.OpenAiStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Preview и commit плана распределения: план виден только автору, записывается один раз,
+ * возвращается в хранилище после неудачной записи и не записывается после истечения
+ */
+@SpringBootTest
+class DistributionPlanCommitTest {
+
+    private static final String TASKS_JSON = "[{\"title\": \"Первая задача\", \"description\": \"Описание\", " +
+            "\"assignTo\": \"Plan Owner\", \"priority\": \"HIGH\", \"daysFromStart\": 3}, " +
+            "{\"title\": \"Вторая задача\", \"description\": \"Описание\", " +
+            "\"assignTo\": \"Plan Owner\", \"priority\": \"LOW\", \"daysFromStart\": 7}]";
+
+    private static final OpenAiStubServer STUB = startStub();
+
+    @DynamicPropertySource
+    static void openAiProperties(DynamicPropertyRegistry registry) {
+        registry.add("openai.api.url", STUB::getUrl);
+        registry.add("openai.api.key", () -> "test-key");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Autowired
+    private AIService aiService;
+
+    @Autowired
+    private DistributionPlanStore distributionPlanStore;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+    private User stranger;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        owner = saveUser("Plan Owner");
+        stranger = saveUser("Plan Stranger");
+        Project newProject = Project.builder()
+                .title("Plan commit test")
+                .description("Проект для теста preview и commit")
+                .owner(owner)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build();
+        newProject.getMembers().add(ProjectMember.builder().project(newProject).user(owner).build());
+        project = projectRepository.save(newProject);
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(owner.getId());
+        userRepository.deleteById(stranger.getId());
+    }
+
+    @Test
+    void planIsVisibleAndCommittableOnlyByOwner() throws Exception {
+        DistributionPlanResponse plan = preview();
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> aiService.getDistributionPlan(plan.getPlanId(), stranger.getId()));
+        assertThrows(ResourceNotFoundException.class,
+                () -> aiService.commitDistributionPlan(plan.getPlanId(), stranger.getId(), null));
+
+        Map<String, Object> result = aiService.commitDistributionPlan(plan.getPlanId(), owner.getId(), null);
+        assertEquals(plan.getTasks().size(), result.get("createdTasks"));
+    }
+
+    @Test
+    void secondCommitIsRejected() throws Exception {
+        DistributionPlanResponse plan = preview();
+
+        aiService.commitDistributionPlan(plan.getPlanId(), owner.getId(), null);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> aiService.commitDistributionPlan(plan.getPlanId(), owner.getId(), null));
+        assertEquals(plan.getTasks().size(), taskRepository.findByProjectId(project.getId()).size());
+    }
+
+    @Test
+    void failedCommitRestoresPlan() throws Exception {
+        DistributionPlanResponse plan = preview();
+
+        // Не участник проекта - запись откатывается внутри транзакции
+        assertThrows(BadRequestException.class,
+                () -> aiService.commitDistributionPlan(plan.getPlanId(), owner.getId(), Map.of(0, stranger.getId())));
+        assertEquals(0, taskRepository.findByProjectId(project.getId()).size());
+
+        assertEquals(plan.getPlanId(), aiService.getDistributionPlan(plan.getPlanId(), owner.getId()).getPlanId());
+        Map<String, Object> result = aiService.commitDistributionPlan(plan.getPlanId(), owner.getId(), null);
+        assertEquals(plan.getTasks().size(), result.get("createdTasks"));
+    }
+
+    @Test
+    void expiredPlanIsNotCommitted() throws Exception {
+        DistributionPlanResponse plan = preview();
+        plan.setPlanId(UUID.randomUUID());
+        plan.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        distributionPlanStore.save(owner.getId(), plan);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> aiService.commitDistributionPlan(plan.getPlanId(), owner.getId(), null));
+        assertEquals(0, taskRepository.findByProjectId(project.getId()).size());
+    }
+
+    private DistributionPlanResponse preview() throws Exception {
+        DistributionPlanResponse plan = aiService.previewDistribution(project.getId(), owner.getId())
+                .get(30, TimeUnit.SECONDS);
+        assertEquals(2, plan.getTasks().size());
+        return plan;
+    }
+
+    private User saveUser(String name) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email("plan-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+    }
+
+    private static OpenAiStubServer startStub() {
+        try {
+            return new OpenAiStubServer(0, 0).withContent(TASKS_JSON).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.exception.ResourceNotFoundException;
+import com.teamai.teamai_backend.model.dto.request.BatchUpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.dto.request.CreateTaskRequest;
+import com.teamai.teamai_backend.model.dto.request.UpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.dto.response.TaskResponse;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.enums.TaskPriority;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Счетчики задач проекта меняются вместе с задачами (по одной и пакетом) и восстанавливаются сверкой
+ */
+@SpringBootTest
+class ProjectCountersTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ProjectCountersReconciler reconciler;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Counters User")
+                .email("counters-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+        project = projectRepository.save(Project.builder()
+                .title("Counters test")
+                .owner(user)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void statusTransitionsUpdateCountersAndProgress() {
+        List<TaskResponse> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(createTask("Task " + i));
+        }
+        complete(tasks.get(0));
+        complete(tasks.get(1));
+        // Повторное завершение не должно считаться дважды
+        complete(tasks.get(1));
+        setStatus(tasks.get(0), TaskStatus.IN_PROGRESS);
+
+        assertCounters(4, 1, 25.0);
+    }
+
+    @Test
+    void batchUpdateAppliesAllStatusesOrNone() {
+        TaskResponse first = createTask("Task 1");
+        TaskResponse second = createTask("Task 2");
+        createTask("Task 3");
+
+        List<TaskResponse> updated = taskService.updateTaskStatuses(List.of(
+                item(first.getId(), TaskStatus.COMPLETED),
+                item(second.getId(), TaskStatus.COMPLETED)));
+
+        assertEquals(2, updated.size());
+        assertTrue(updated.stream().allMatch(task -> task.getCompletedAt() != null));
+        assertCounters(3, 2, 200.0 / 3);
+
+        assertThrows(ResourceNotFoundException.class, () -> taskService.updateTaskStatuses(List.of(
+                item(first.getId(), TaskStatus.TODO),
+                item(UUID.randomUUID(), TaskStatus.COMPLETED))));
+        assertCounters(3, 2, 200.0 / 3);
+    }
+
+    @Test
+    void reconcilerRepairsDrift() {
+        complete(createTask("Task 1"));
+        createTask("Task 2");
+        jdbcTemplate.update("UPDATE projects SET total_tasks = 10, completed_tasks = 0, progress = 0 WHERE id = ?",
+                project.getId());
+
+        reconciler.reconcile();
+
+        assertCounters(2, 1, 50.0);
+    }
+
+    private TaskResponse createTask(String title) {
+        CreateTaskRequest request = new CreateTaskRequest();
+        request.setProjectId(project.getId());
+        request.setTitle(title);
+        request.setAssignedToId(user.getId());
+        request.setDeadline(LocalDateTime.now().plusDays(3));
+        request.setPriority(TaskPriority.MEDIUM);
+        return taskService.createTask(request);
+    }
+
+    private static BatchUpdateTaskStatusRequest.Item item(UUID taskId, TaskStatus status) {
+        BatchUpdateTaskStatusRequest.Item item = new BatchUpdateTaskStatusRequest.Item();
+        item.setTaskId(taskId);
+        item.setStatus(status);
+        return item;
+    }
+
+    private void complete(TaskResponse task) {
+        setStatus(task, TaskStatus.COMPLETED);
+    }
+
+    private void setStatus(TaskResponse task, TaskStatus status) {
+        UpdateTaskStatusRequest request = new UpdateTaskStatusRequest();
+        request.setStatus(status);
+        taskService.updateTaskStatus(task.getId(), request);
+    }
+
+    private void assertCounters(int total, int completed, double progress) {
+        Project stored = projectRepository.findById(project.getId()).orElseThrow();
+        assertEquals(total, stored.getTotalTasks());
+        assertEquals(completed, stored.getCompletedTasks());
+        assertEquals(progress, stored.getProgress(), 0.001);
+    }
+}
@@ -0,0 +1,116 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.TaskSkill;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.enums.TaskPriority;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Стоимость записи сгенерированных AI задач: по одному save на задачу
+ * против одного saveAll с JDBC батчингом. Запуск: ./gradlew benchmark
+ */
+@SpringBootTest
+@Tag("benchmark")
+class TaskBatchInsertBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Benchmark User")
+                .email("bench-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+        project = projectRepository.save(Project.builder()
+                .title("Batch insert benchmark")
+                .owner(user)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @ParameterizedTest(name = "{0} tasks")
+    @ValueSource(ints = {5, 50, 500})
+    void insertGeneratedTasks(int taskCount) {
+        // прогрев пула соединений и кэшей Hibernate
+        taskRepository.saveAll(generateTasks(taskCount));
+
+        long perRowNanos = 0;
+        long batchedNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Task> perRow = generateTasks(taskCount);
+            long start = System.nanoTime();
+            for (Task task : perRow) {
+                taskRepository.save(task);
+            }
+            perRowNanos += System.nanoTime() - start;
+
+            List<Task> batched = generateTasks(taskCount);
+            start = System.nanoTime();
+            taskRepository.saveAll(batched);
+            batchedNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("%4d tasks: save() per task %8.2f ms, saveAll() batched %8.2f ms%n",
+                taskCount, perRowNanos / ROUNDS / 1e6, batchedNanos / ROUNDS / 1e6);
+    }
+
+    private List<Task> generateTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = Task.builder()
+                    .project(project)
+                    .title("Generated task " + i)
+                    .description("Benchmark task")
+                    .assignedTo(user)
+                    .assignedToName(user.getName())
+                    .deadline(LocalDateTime.now().plusDays(i % 30))
+                    .status(TaskStatus.TODO)
+                    .priority(TaskPriority.MEDIUM)
+                    .build();
+            task.setRequiredSkills(new ArrayList<>(List.of(
+                    TaskSkill.builder().task(task).skillName("Java").build(),
+                    TaskSkill.builder().task(task).skillName("SQL").build())));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
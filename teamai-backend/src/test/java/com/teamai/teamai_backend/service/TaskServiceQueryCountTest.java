@@ -0,0 +1,131 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.model.dto.response.TaskResponse;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.TaskSkill;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.enums.TaskPriority;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Число SQL запросов списков задач не должно зависеть от числа задач (нет N+1)
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TaskServiceQueryCountTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Query Count User")
+                .email("query-count-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+        project = projectRepository.save(Project.builder()
+                .title("Query count test")
+                .owner(user)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void getAllTasksUsesConstantNumberOfStatements() {
+        assertConstantStatements(() -> taskService.getAllTasks(user.getId()));
+    }
+
+    @Test
+    void getTodayTasksUsesConstantNumberOfStatements() {
+        assertConstantStatements(() -> taskService.getTodayTasks(user.getId()));
+    }
+
+    private void assertConstantStatements(Supplier<List<TaskResponse>> endpoint) {
+        createTasks(1);
+        long single = countStatements(endpoint, 1);
+
+        createTasks(24);
+        long many = countStatements(endpoint, 25);
+
+        assertEquals(single, many, "statements for 1 task vs 25 tasks");
+        assertTrue(many <= 2, "statements = " + many);
+    }
+
+    private long countStatements(Supplier<List<TaskResponse>> endpoint, int expectedTasks) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<TaskResponse> tasks = endpoint.get();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(expectedTasks, tasks.size());
+        assertTrue(tasks.stream().allMatch(task -> task.getRequiredSkills().size() == 2));
+        assertTrue(tasks.stream().allMatch(task -> project.getTitle().equals(task.getProjectTitle())));
+        return statements;
+    }
+
+    private void createTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = Task.builder()
+                    .project(project)
+                    .title("Task " + i)
+                    .assignedTo(user)
+                    .assignedToName(user.getName())
+                    // Дедлайн сегодня, чтобы задачи попали и в getTodayTasks
+                    .deadline(LocalDateTime.now().withHour(23).withMinute(0))
+                    .status(TaskStatus.TODO)
+                    .priority(TaskPriority.MEDIUM)
+                    .build();
+            task.setRequiredSkills(new ArrayList<>(List.of(
+                    TaskSkill.builder().task(task).skillName("Java").build(),
+                    TaskSkill.builder().task(task).skillName("SQL").build())));
+            tasks.add(task);
+        }
+        taskRepository.saveAll(tasks);
+    }
+}
@@ -0,0 +1,142 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.model.dto.request.BatchUpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.dto.request.UpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.enums.TaskPriority;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Смена статусов N задач: N вызовов PUT /tasks/{id}/status против одного
+ * PUT /tasks/status:batch. Запуск: ./gradlew benchmark
+ */
+@SpringBootTest
+@Tag("benchmark")
+class TaskStatusBatchBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Benchmark User")
+                .email("bench-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+        project = projectRepository.save(Project.builder()
+                .title("Status batch benchmark")
+                .owner(user)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @ParameterizedTest(name = "{0} tasks")
+    @ValueSource(ints = {10, 50, 200})
+    void updateStatuses(int taskCount) {
+        List<UUID> taskIds = createTasks(taskCount);
+        // прогрев пула соединений и кэшей Hibernate
+        taskService.updateTaskStatuses(batch(taskIds, TaskStatus.IN_PROGRESS));
+
+        long singleNanos = 0;
+        long batchNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            TaskStatus status = round % 2 == 0 ? TaskStatus.COMPLETED : TaskStatus.IN_PROGRESS;
+            long start = System.nanoTime();
+            for (UUID taskId : taskIds) {
+                UpdateTaskStatusRequest request = new UpdateTaskStatusRequest();
+                request.setStatus(status);
+                taskService.updateTaskStatus(taskId, request);
+            }
+            singleNanos += System.nanoTime() - start;
+
+            TaskStatus next = status == TaskStatus.COMPLETED ? TaskStatus.IN_PROGRESS : TaskStatus.COMPLETED;
+            start = System.nanoTime();
+            taskService.updateTaskStatuses(batch(taskIds, next));
+            batchNanos += System.nanoTime() - start;
+        }
+
+        Project stored = projectRepository.findById(project.getId()).orElseThrow();
+        assertEquals(taskCount, stored.getTotalTasks());
+
+        System.out.printf("%4d tasks: single calls %8.2f ms, status:batch %8.2f ms%n",
+                taskCount, singleNanos / ROUNDS / 1e6, batchNanos / ROUNDS / 1e6);
+    }
+
+    private List<BatchUpdateTaskStatusRequest.Item> batch(List<UUID> taskIds, TaskStatus status) {
+        List<BatchUpdateTaskStatusRequest.Item> items = new ArrayList<>(taskIds.size());
+        for (UUID taskId : taskIds) {
+            BatchUpdateTaskStatusRequest.Item item = new BatchUpdateTaskStatusRequest.Item();
+            item.setTaskId(taskId);
+            item.setStatus(status);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private List<UUID> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(Task.builder()
+                    .project(project)
+                    .title("Kanban task " + i)
+                    .assignedTo(user)
+                    .assignedToName(user.getName())
+                    .deadline(LocalDateTime.now().plusDays(i % 14))
+                    .status(TaskStatus.TODO)
+                    .priority(TaskPriority.MEDIUM)
+                    .build());
+        }
+        List<UUID> ids = taskRepository.saveAll(tasks).stream().map(Task::getId).toList();
+        // Задачи записаны мимо TaskService - счетчики проекта выставляем как после createTask
+        transactionTemplate.executeWithoutResult(status ->
+                projectRepository.adjustTaskCounters(project.getId(), count, 0));
+        return ids;
+    }
+}
@@ -0,0 +1,149 @@
+package com.teamai.teamai_backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.model.dto.request.BatchUpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.dto.request.CreateTaskRequest;
+import com.teamai.teamai_backend.model.dto.request.UpdateTaskStatusRequest;
+import com.teamai.teamai_backend.model.dto.response.TaskResponse;
+import com.teamai.teamai_backend.model.entity.Project;
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.enums.TaskPriority;
+import com.teamai.teamai_backend.model.enums.TaskStatus;
+import com.teamai.teamai_backend.repository.ProjectRepository;
+import com.teamai.teamai_backend.repository.TaskRepository;
+import com.teamai.teamai_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Повестка на сегодня патчится изменениями задач через сервис и перестраивается ночным пересчетом
+ */
+@SpringBootTest(properties = "agenda.redis-enabled=false")
+class TodayAgendaTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TodayAgendaStore todayAgendaStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Agenda User")
+                .email("agenda-" + UUID.randomUUID() + "@teamai.local")
+                .passwordHash("-")
+                .role("developer")
+                .build());
+        project = projectRepository.save(Project.builder()
+                .title("Agenda test")
+                .owner(user)
+                .startDate(LocalDate.now())
+                .deadline(LocalDate.now().plusDays(30))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        projectRepository.deleteById(project.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void agendaIsPatchedByTaskChangesAndRebuiltByPrecompute() {
+        TaskResponse first = createTask("First", LocalDate.now().atTime(23, 0));
+        assertEquals(List.of(first.getId()), List.copyOf(agenda().keySet()));
+
+        TaskResponse second = createTask("Second", LocalDate.now().atTime(23, 30));
+        createTask("Tomorrow", LocalDate.now().plusDays(1).atTime(10, 0));
+        UpdateTaskStatusRequest complete = new UpdateTaskStatusRequest();
+        complete.setStatus(TaskStatus.COMPLETED);
+        taskService.updateTaskStatus(first.getId(), complete);
+        BatchUpdateTaskStatusRequest.Item start = new BatchUpdateTaskStatusRequest.Item();
+        start.setTaskId(second.getId());
+        start.setStatus(TaskStatus.IN_PROGRESS);
+        taskService.updateTaskStatuses(List.of(start));
+
+        Map<UUID, TaskResponse> patched = agenda();
+        assertEquals(2, patched.size());
+        assertEquals(TaskStatus.COMPLETED, patched.get(first.getId()).getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, patched.get(second.getId()).getStatus());
+
+        // Задача записана мимо сервиса: повестка читается из хранилища и ее не видит до пересчета
+        taskRepository.save(Task.builder()
+                .project(project)
+                .title("Imported")
+                .assignedTo(user)
+                .assignedToName(user.getName())
+                .deadline(LocalDate.now().atTime(22, 0))
+                .status(TaskStatus.TODO)
+                .priority(TaskPriority.LOW)
+                .build());
+        assertEquals(2, agenda().size());
+
+        taskService.materializeTodayAgendas(100);
+        assertEquals(3, agenda().size());
+    }
+
+    @Test
+    void fillReadBeforeConcurrentChangeIsNotInstalled() {
+        LocalDate today = todayAgendaStore.today();
+        long generation = todayAgendaStore.generation(user.getId());
+        List<TaskResponse> stale = taskService.getTodayTasks(user.getId());
+
+        // Задача закоммичена между чтением из БД и записью повестки
+        TaskResponse created = createTask("Concurrent", today.atTime(23, 0));
+        todayAgendaStore.save(user.getId(), today, stale, generation);
+
+        assertEquals(List.of(created.getId()), List.copyOf(agenda().keySet()));
+    }
+
+    private Map<UUID, TaskResponse> agenda() {
+        try {
+            List<TaskResponse> tasks = objectMapper.readValue(taskService.getTodayAgenda(user.getId()),
+                    new TypeReference<List<TaskResponse>>() { });
+            return tasks.stream().collect(Collectors.toMap(TaskResponse::getId, task -> task));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TaskResponse createTask(String title, LocalDateTime deadline) {
+        CreateTaskRequest request = new CreateTaskRequest();
+        request.setProjectId(project.getId());
+        request.setTitle(title);
+        request.setAssignedToId(user.getId());
+        request.setDeadline(deadline);
+        request.setPriority(TaskPriority.MEDIUM);
+        return taskService.createTask(request);
+    }
+}
@@ -0,0 +1,73 @@
+package com.teamai.teamai_backend.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Задержка GET /users/search на синтетических пользователях без кэша ответов.
+ * Запуск: ./gradlew benchmark -Duser-search.size=1000000 (по умолчанию 1M)
+ */
+@SpringBootTest(properties = "user-search.cache-enabled=false")
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSearchBenchmark {
+
+    private static final String DOMAIN = "@search-bench.local";
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        int size = Integer.getInteger("user-search.size", 1_000_000);
+        long start = System.nanoTime();
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password_hash, role, created_at) " +
+                "SELECT gen_random_uuid(), f || ' ' || l, lower(f) || '.' || lower(l) || i || '" + DOMAIN + "', " +
+                "'-', 'developer', LOCALTIMESTAMP FROM generate_series(1, ?) i, " +
+                "LATERAL (SELECT (ARRAY['Ivan','Maria','Petr','Anna','Sergey','Olga','Dmitry','Elena','Alexey','Natalia'])[i % 10 + 1] AS f, " +
+                "(ARRAY['Ivanov','Petrova','Sidorov','Smirnova','Kuznetsov','Popova','Sokolov','Lebedeva'])[i / 10 % 8 + 1] AS l) names",
+                size);
+        jdbcTemplate.execute("ANALYZE users");
+        System.out.printf("seeded %d users in %.1f s%n", size, (System.nanoTime() - start) / 1e9);
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", "%" + DOMAIN);
+    }
+
+    // короткий префикс, префикс имени, начало фамилии, редкая подстрока, широкая подстрока, нет совпадений
+    @ParameterizedTest(name = "\"{0}\"")
+    @ValueSource(strings = {"ma", "ivan", "lebed", "ov12345", "bench", "qzqzq"})
+    void search(String query) {
+        userSearchService.search(query, 10);
+
+        long[] nanos = new long[ROUNDS];
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            found = userSearchService.search(query, 10).size();
+            nanos[round] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        assertTrue(found <= 10);
+        System.out.printf("%-10s %2d users: p50 %7.2f ms, p95 %7.2f ms, p99 %7.2f ms%n", "\"" + query + "\"", found,
+                nanos[ROUNDS / 2] / 1e6, nanos[ROUNDS * 95 / 100] / 1e6, nanos[ROUNDS * 99 / 100] / 1e6);
+    }
+}
@@ -0,0 +1,38 @@
+package com.teamai.teamai_backend.service;
+
+import com.teamai.teamai_backend.model.dto.response.UserResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserSearchServiceTest {
+
+    @Test
+    void prefixMatchesComeBeforeWordAndSubstringMatches() {
+        List<UserResponse> users = List.of(
+                user("Maria Petrova", "maria@gmail.com"),
+                user("Oleg Ivanov", "oleg@gmail.com"),
+                user("Ivan Sidorov", "sidorov@gmail.com"),
+                user("Anna Smirnova", "ivanna@gmail.com"),
+                user("Petr Petrov", "p.divanov@gmail.com"));
+
+        List<String> names = users.stream()
+                .filter(user -> UserSearchService.rank(user, "ivan") < 3)
+                .sorted(UserSearchService.ranking("ivan"))
+                .map(UserResponse::getName)
+                .toList();
+
+        assertEquals(List.of("Anna Smirnova", "Ivan Sidorov", "Oleg Ivanov", "Petr Petrov"), names);
+    }
+
+    @Test
+    void escapesLikeWildcards() {
+        assertEquals("a\\_b\\%c\\\\", UserSearchService.escapeLike("a_b%c\\"));
+    }
+
+    private static UserResponse user(String name, String email) {
+        return UserResponse.builder().name(name).email(email).build();
+    }
+}
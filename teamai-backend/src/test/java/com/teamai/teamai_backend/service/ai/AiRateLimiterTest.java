@@ -0,0 +1,81 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.config.AiRateLimitConfig;
+import com.teamai.teamai_backend.exception.RateLimitException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiRateLimiterTest {
+
+    private final AiRateLimiter limiter = new AiRateLimiter(config(), null, new SimpleMeterRegistry());
+
+    @Test
+    void allowsBurstThenRejectsWithRetryAfter() {
+        UUID user = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(user, AiRateLimiter.Operation.CHAT);
+        }
+
+        RateLimitException e = assertThrows(RateLimitException.class,
+                () -> limiter.acquire(user, AiRateLimiter.Operation.CHAT));
+        // 60 запросов в минуту - следующий через секунду
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofMillis(900)) > 0, e.getRetryAfter().toString());
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofSeconds(1)) <= 0, e.getRetryAfter().toString());
+    }
+
+    @Test
+    void budgetsAreSeparatePerUserAndOperation() {
+        UUID user = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(user, AiRateLimiter.Operation.CHAT);
+        }
+
+        assertDoesNotThrow(() -> limiter.acquire(user, AiRateLimiter.Operation.DISTRIBUTION));
+        assertDoesNotThrow(() -> limiter.acquire(UUID.randomUUID(), AiRateLimiter.Operation.CHAT));
+    }
+
+    @Test
+    void concurrentCallersGetExactlyCapacity() throws Exception {
+        UUID user = UUID.randomUUID();
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int i = 0; i < 200; i++) {
+            callers.execute(() -> {
+                try {
+                    start.await();
+                    limiter.acquire(user, AiRateLimiter.Operation.DISTRIBUTION);
+                    allowed.incrementAndGet();
+                } catch (RateLimitException | InterruptedException ignored) {
+                    // ожидаемый отказ
+                }
+            });
+        }
+        start.countDown();
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(2, allowed.get());
+    }
+
+    private static AiRateLimitConfig config() {
+        AiRateLimitConfig config = new AiRateLimitConfig();
+        config.setChat(new AiRateLimitConfig.Budget(5, 60, Duration.ofMinutes(1)));
+        config.setDistribution(new AiRateLimitConfig.Budget(2, 1, Duration.ofHours(1)));
+        return config;
+    }
+}
@@ -0,0 +1,91 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.model.entity.Task;
+import com.teamai.teamai_backend.model.entity.TaskSkill;
+import com.teamai.teamai_backend.model.entity.User;
+import com.teamai.teamai_backend.model.entity.UserSkill;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssignmentEngineTest {
+
+    private final AssignmentEngine engine = new AssignmentEngine();
+
+    @Test
+    void assignsBySkill() {
+        User backend = member("Анна", Map.of("Java", 5));
+        User mobile = member("Борис", Map.of("Flutter", 5));
+
+        List<User> result = engine.assign(List.of(backend, mobile), Map.of(),
+                List.of(task("Flutter"), task("Java")), null);
+
+        assertEquals(List.of(mobile, backend), result);
+    }
+
+    @Test
+    void balancesLoadWhenSkillsAreEqual() {
+        User first = member("Анна", Map.of("Java", 3));
+        User second = member("Борис", Map.of("Java", 3));
+        Map<UUID, Long> openHours = Map.of(first.getId(), 40L);
+
+        List<User> result = engine.assign(List.of(first, second), openHours,
+                List.of(task("Java"), task("Java"), task("Java")), null);
+
+        long toFirst = result.stream().filter(u -> u == first).count();
+        assertTrue(toFirst < result.size() - toFirst, "загруженный участник должен получить меньше задач");
+    }
+
+    @Test
+    void prefersSkilledMemberWithModerateLoad() {
+        User skilled = member("Анна", Map.of("Java", 5));
+        User idle = member("Борис", Map.of("Flutter", 5));
+        // Три недели открытых задач: в сырых часах это перевесило бы несоответствие навыкам
+        Map<UUID, Long> openHours = Map.of(skilled.getId(), 120L);
+
+        List<User> result = engine.assign(List.of(skilled, idle), openHours, List.of(task("Java")), null);
+
+        assertEquals(List.of(skilled), result);
+    }
+
+    @Test
+    void isDeterministicForLargeTeam() {
+        List<User> team = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            team.add(member("Участник " + i, Map.of(i % 2 == 0 ? "Java" : "React", 1 + i % 5)));
+        }
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            tasks.add(task(i % 2 == 0 ? "Java" : "React"));
+        }
+
+        List<User> first = engine.assign(team, Map.of(), tasks, null);
+        List<User> reversed = new ArrayList<>(team);
+        Collections.reverse(reversed);
+
+        assertEquals(first, engine.assign(reversed, Map.of(), tasks, null));
+        assertEquals(tasks.size(), first.stream().map(User::getId).distinct().count());
+    }
+
+    private static User member(String name, Map<String, Integer> skills) {
+        User user = User.builder().id(UUID.randomUUID()).name(name).build();
+        skills.forEach((skill, level) -> user.getSkills().add(UserSkill.builder()
+                .skillName(skill)
+                .proficiencyLevel(level)
+                .build()));
+        return user;
+    }
+
+    private static Task task(String skill) {
+        Task task = Task.builder().title("Задача " + skill).build();
+        task.getRequiredSkills().add(TaskSkill.builder().task(task).skillName(skill).build());
+        return task;
+    }
+}
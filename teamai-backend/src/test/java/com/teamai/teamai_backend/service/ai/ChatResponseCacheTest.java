@@ -0,0 +1,67 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.teamai.teamai_backend.config.ChatCacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ключ кэша ответов чата: вопрос и контекст ответа, а не весь промпт; запросы с историей не кэшируются
+ */
+class ChatResponseCacheTest {
+
+    private static final String CONTEXT = "\u0000- Задача \"Настроить CI\" (TODO)\n";
+
+    private final ChatResponseCache cache = cache();
+
+    @Test
+    void sameQuestionAndContextHitDespiteFormatting() {
+        cache.put(request("Контекст задач\n\nВопрос: Как начать?"), "Как начать?", CONTEXT, "ответ");
+
+        assertEquals("ответ", cache.get(request("Вопрос: как  начать"), "как  начать", CONTEXT).orElseThrow());
+    }
+
+    @Test
+    void differentContextMisses() {
+        cache.put(request("Как начать?"), "Как начать?", CONTEXT, "ответ");
+
+        assertTrue(cache.get(request("Как начать?"), "Как начать?", "\u0000").isEmpty());
+        assertNotEquals(cache.keyOf(request("Как начать?"), "Как начать?", CONTEXT),
+                cache.keyOf(request("Как начать?"), "Как начать?", "другой контекст"));
+    }
+
+    @Test
+    void requestsWithHistoryAreNotCached() {
+        LlmRequest withHistory = LlmRequest.builder()
+                .model("gpt-test")
+                .temperature(0.7)
+                .message(LlmMessage.system("system"))
+                .message(LlmMessage.user("Привет"))
+                .message(LlmMessage.assistant("Здравствуйте"))
+                .message(LlmMessage.user("Как начать?"))
+                .build();
+
+        cache.put(withHistory, "Как начать?", CONTEXT, "ответ");
+
+        assertTrue(cache.get(withHistory, "Как начать?", CONTEXT).isEmpty());
+        assertTrue(cache.get(request("Как начать?"), "Как начать?", CONTEXT).isEmpty());
+    }
+
+    private static LlmRequest request(String userPrompt) {
+        return LlmRequest.builder()
+                .model("gpt-test")
+                .temperature(0.7)
+                .message(LlmMessage.system("system"))
+                .message(LlmMessage.user(userPrompt))
+                .build();
+    }
+
+    private static ChatResponseCache cache() {
+        ChatCacheConfig config = new ChatCacheConfig();
+        config.setRedisEnabled(false);
+        return new ChatResponseCache(config, null, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,51 @@
+package com.teamai.teamai_backend.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSessionTest {
+
+    private static final int MAX_TURNS = 4;
+    private static final int TOKEN_BUDGET = 300;
+    private static final int SUMMARY_TOKENS = 60;
+    private static final int TURN_TOKENS = 100;
+
+    @Test
+    void keepsRecentTurnsAndFoldsOlderIntoSummary() {
+        ChatSession session = new ChatSession();
+        for (int i = 1; i <= 6; i++) {
+            append(session, "Вопрос " + i, "Ответ на вопрос номер " + i + ". Подробности.");
+        }
+
+        assertEquals(MAX_TURNS, session.getTurns().size());
+        assertEquals("Вопрос 3", session.getTurns().peekFirst().getUser());
+        assertTrue(session.getSummary().contains("Вопрос 2 → Ответ на вопрос номер 2."), session.getSummary());
+
+        List<LlmMessage> messages = session.toMessages();
+        assertEquals(1 + 2 * MAX_TURNS, messages.size());
+        assertEquals("system", messages.get(0).getRole());
+        assertEquals("Вопрос 6", messages.get(messages.size() - 2).getContent());
+    }
+
+    @Test
+    void historyStaysWithinBudgetForLongConversations() {
+        ChatSession session = new ChatSession();
+        String longReply = "Очень подробный ответ. ".repeat(100);
+        for (int i = 0; i < 200; i++) {
+            append(session, "Как сделать шаг " + i + "?", longReply);
+
+            assertTrue(session.historyTokens() <= TOKEN_BUDGET, "tokens = " + session.historyTokens());
+            assertTrue(ChatSession.estimateTokens(session.getSummary()) <= SUMMARY_TOKENS);
+            assertTrue(session.getTurns().size() <= MAX_TURNS);
+        }
+        assertTrue(session.getTurns().peekLast().getTokens() <= TURN_TOKENS);
+    }
+
+    private static void append(ChatSession session, String user, String reply) {
+        session.append(user, reply, MAX_TURNS, TOKEN_BUDGET, SUMMARY_TOKENS, TURN_TOKENS);
+    }
+}
@@ -0,0 +1,40 @@
+package com.teamai.teamai_backend.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashingEmbedderTest {
+
+    private final HashingEmbedder embedder = new HashingEmbedder(256);
+
+    @Test
+    void vectorsAreDeterministicUnitLength() {
+        float[] vector = embedder.embed("Настроить CI для backend");
+
+        assertArrayEquals(vector, embedder.embed("настроить ci для BACKEND"));
+        assertEquals(1.0, dot(vector, vector), 1e-4);
+        assertEquals(0.0, dot(embedder.embed("!!! ..."), vector));
+    }
+
+    @Test
+    void wordFormsAreCloserThanUnrelatedText() {
+        float[] query = embedder.embed("настройка ci пайплайна");
+
+        double related = dot(query, embedder.embed("Настроить CI пайплайн для backend"));
+        double unrelated = dot(query, embedder.embed("Нарисовать логотип и макеты экранов"));
+
+        assertTrue(related > 0.3, "related = " + related);
+        assertTrue(related > unrelated + 0.3, "related = " + related + ", unrelated = " + unrelated);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+package com.teamai.teamai_backend.service.ai;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск контекста для чата: HNSW против точного перебора на синтетических задачах.
+ * Запуск: ./gradlew benchmark, для 1M задач: ./gradlew benchmark -Dhnsw.size=1000000
+ * (сборка 1M узлов в setUp занимает несколько минут).
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class HnswIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "настроить", "реализовать", "исправить", "добавить", "протестировать", "дизайн", "экран",
+            "авторизация", "backend", "frontend", "api", "база", "данных", "миграция", "отчет", "оплата",
+            "уведомления", "профиль", "поиск", "фильтр", "ci", "деплой", "документация", "ревью", "кэш",
+            "мобильное", "приложение", "интеграция", "аналитика", "логирование", "метрики", "рефакторинг"
+    };
+
+    @Param({"100000"})
+    public int size;
+
+    private final HashingEmbedder embedder = new HashingEmbedder(256);
+    private HnswIndex index;
+    private int[] allNodes;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        index = new HnswIndex(embedder.dimension(), 16, 100, 42);
+        for (int i = 0; i < size; i++) {
+            index.add(embedder.embed(randomText(random, 8)));
+        }
+        allNodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            allNodes[i] = i;
+        }
+        queries = new float[256][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = embedder.embed(randomText(random, 4));
+        }
+    }
+
+    @Benchmark
+    public Object hnsw() {
+        return index.search(nextQuery(), 5, 64, node -> true, 50_000);
+    }
+
+    @Benchmark
+    public Object exact() {
+        return index.exact(nextQuery(), allNodes, size, 5);
+    }
+
+    private float[] nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    @Test
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(HnswIndexBenchmark.class.getSimpleName())
+                .param("size", System.getProperty("hnsw.size", "100000"))
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.teamai.teamai_backend.service.ai;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 64;
+    private static final int SIZE = 5000;
+    private static final int K = 10;
+
+    private static float[][] vectors;
+    private static HnswIndex index;
+    private static int[] allNodes;
+
+    @BeforeAll
+    static void build() {
+        Random random = new Random(7);
+        vectors = new float[SIZE][];
+        index = new HnswIndex(DIMENSION, 16, 100, 42);
+        for (int i = 0; i < SIZE; i++) {
+            vectors[i] = randomUnitVector(random);
+            assertEquals(i, index.add(vectors[i]));
+        }
+        allNodes = IntStream.range(0, SIZE).toArray();
+    }
+
+    @Test
+    void recallAgainstExactSearch() {
+        Random random = new Random(11);
+        int found = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            Set<Integer> approximate = nodes(index.search(query, K, 64, node -> true, Integer.MAX_VALUE));
+            for (HnswIndex.Neighbor exact : index.exact(query, allNodes, SIZE, K)) {
+                if (approximate.contains(exact.getNode())) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (queries * K);
+        assertTrue(recall >= 0.9, "recall@10 = " + recall);
+    }
+
+    @Test
+    void resultsAreSortedAndFiltered() {
+        List<HnswIndex.Neighbor> result = index.search(vectors[3], K, 64, node -> node % 10 == 0, Integer.MAX_VALUE);
+
+        assertEquals(K, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(0, result.get(i).getNode() % 10);
+            if (i > 0) {
+                assertTrue(result.get(i - 1).getScore() >= result.get(i).getScore());
+            }
+        }
+    }
+
+    @Test
+    void deletedNodesAreSkipped() {
+        HnswIndex small = new HnswIndex(DIMENSION, 8, 50, 1);
+        for (int i = 0; i < 200; i++) {
+            small.add(vectors[i]);
+        }
+        assertEquals(5, small.search(vectors[5], 1, 32, node -> true, Integer.MAX_VALUE).get(0).getNode());
+
+        small.remove(5);
+
+        assertFalse(nodes(small.search(vectors[5], K, 32, node -> true, Integer.MAX_VALUE)).contains(5));
+        assertFalse(nodes(small.exact(vectors[5], allNodes, 200, K)).contains(5));
+        assertEquals(199, small.liveCount());
+    }
+
+    @Test
+    void rebuiltFromStoredVectorsWithoutDeletedNodes() {
+        HnswIndex small = new HnswIndex(DIMENSION, 8, 50, 1);
+        for (int i = 0; i < 200; i++) {
+            small.add(vectors[i]);
+        }
+        for (int i = 0; i < 200; i += 2) {
+            small.remove(i);
+        }
+
+        // Так KnowledgeIndex пересобирает граф, когда удаленных узлов много
+        HnswIndex compacted = new HnswIndex(DIMENSION, 8, 50, 1);
+        for (int i = 1; i < 200; i += 2) {
+            compacted.add(small.vector(i));
+        }
+
+        assertEquals(100, compacted.size());
+        assertEquals(100, compacted.liveCount());
+        assertEquals(small.exact(vectors[7], allNodes, 200, 1).get(0).getScore(),
+                compacted.exact(vectors[7], allNodes, 100, 1).get(0).getScore());
+        assertEquals(3, compacted.search(vectors[7], 1, 32, node -> true, Integer.MAX_VALUE).get(0).getNode());
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+
+        HnswIndex restored = HnswIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 42);
+
+        assertEquals(index.size(), restored.size());
+        for (int q = 0; q < 20; q++) {
+            float[] query = vectors[q * 37];
+            assertEquals(index.search(query, K, 64, node -> true, Integer.MAX_VALUE),
+                    restored.search(query, K, 64, node -> true, Integer.MAX_VALUE));
+        }
+    }
+
+    private static Set<Integer> nodes(List<HnswIndex.Neighbor> neighbors) {
+        return neighbors.stream().map(HnswIndex.Neighbor::getNode).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        HashingEmbedder.normalize(vector);
+        return vector;
+    }
+}
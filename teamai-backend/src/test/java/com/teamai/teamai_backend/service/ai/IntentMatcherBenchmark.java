@@ -0,0 +1,68 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ чата без LLM: автомат IntentMatcher против прежней цепочки
+ * toLowerCase + contains. Запуск: ./gradlew benchmark
+ * (для профиля аллокаций добавьте -prof gc в options)
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntentMatcherBenchmark {
+
+    @Param({
+            "Привет!",
+            "Как начать эту задачу?",
+            "Спасибо большое",
+            "Подскажи, пожалуйста, как лучше организовать ревью кода в команде из пяти человек"
+    })
+    public String message;
+
+    private IntentMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        matcher = IntentMatcher.compile(IntentResponder.loadRules(new ObjectMapper()));
+    }
+
+    @Benchmark
+    public String automaton() {
+        return matcher.response(matcher.match(message, true));
+    }
+
+    @Benchmark
+    public String ifChain() {
+        return LegacySmartResponse.generate(message, "context");
+    }
+
+    @Test
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(IntentMatcherBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IntentMatcherTest {
+
+    static final List<String> MESSAGES = List.of(
+            "Как начать эту задачу?",
+            "С чего НАЧАТЬ, как думаешь",
+            "Какой срок у задачи?",
+            "Успею к дедлайну?",
+            "Помоги, пожалуйста",
+            "Нужна помощь с проектом",
+            "Какой приоритет выставить?",
+            "Расскажи про проекты команды",
+            "Сколько задач осталось",
+            "Привет!",
+            "Здравствуйте",
+            "Спасибо большое",
+            "Благодарю за ответ",
+            "как дела",
+            "начать",
+            "Что посоветуешь?",
+            "",
+            "ПРИОРИТЕТ проекта и срок задачи");
+
+    private final IntentMatcher matcher =
+            IntentMatcher.compile(IntentResponder.loadRules(new ObjectMapper()));
+
+    static List<Object[]> messages() {
+        List<Object[]> cases = new ArrayList<>();
+        for (String message : MESSAGES) {
+            cases.add(new Object[]{message, null});
+            cases.add(new Object[]{message, "Задача: API авторизации"});
+        }
+        return cases;
+    }
+
+    @ParameterizedTest(name = "\"{0}\" / {1}")
+    @MethodSource("messages")
+    void answersLikeLegacyChain(String message, String context) {
+        int intent = matcher.match(message, context != null && !context.isEmpty());
+
+        assertEquals(LegacySmartResponse.generate(message, context), matcher.response(intent));
+    }
+
+    @Test
+    void foldsCaseAndYo() {
+        IntentMatcher.Rule rule = rule("yo", List.of(List.of("ещё")));
+        IntentMatcher yo = IntentMatcher.compile(rules(List.of(rule)));
+
+        assertEquals(0, yo.match("ЕЩЕ РАЗ", false));
+        assertEquals(0, yo.match("Ещё раз", false));
+        assertEquals(-1, yo.match("раз", false));
+    }
+
+    @Test
+    void rejectsTooManyGroups() {
+        List<List<String>> groups = new ArrayList<>();
+        for (int i = 0; i <= IntentMatcher.MAX_GROUPS; i++) {
+            groups.add(List.of("слово" + i));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> IntentMatcher.compile(rules(List.of(rule("many", groups)))));
+    }
+
+    private static IntentMatcher.Rule rule(String name, List<List<String>> match) {
+        IntentMatcher.Rule rule = new IntentMatcher.Rule();
+        rule.setName(name);
+        rule.setMatch(match);
+        rule.setResponse(name);
+        return rule;
+    }
+
+    private static IntentMatcher.Rules rules(List<IntentMatcher.Rule> intents) {
+        IntentMatcher.Rules rules = new IntentMatcher.Rules();
+        rules.setDefaultResponse("default");
+        rules.setIntents(intents);
+        return rules;
+    }
+}
@@ -0,0 +1,70 @@
+package com.teamai.teamai_backend.service.ai;
+
+/**
+ * Прежняя цепочка if/contains из AIService - эталон для проверки
+ * IntentMatcher и базовая линия бенчмарка
+ */
+final class LegacySmartResponse {
+
+    private LegacySmartResponse() {
+    }
+
+    static String generate(String message, String context) {
+        String lowerMessage = message.toLowerCase();
+        
+        // Анализ контекста задачи
+        if (context != null && !context.isEmpty()) {
+            if (lowerMessage.contains("как") && lowerMessage.contains("начать")) {
+                return "Рекомендую начать с анализа требований и планирования архитектуры. " +
+                       "Изучите описание задачи и определите основные этапы работы.";
+            }
+            if (lowerMessage.contains("дедлайн") || lowerMessage.contains("срок")) {
+                return "Проверьте дедлайн в деталях задачи. Распределите время так, чтобы " +
+                       "оставить 20% на тестирование и исправление ошибок.";
+            }
+            if (lowerMessage.contains("помощь") || lowerMessage.contains("помоги")) {
+                return "Я готов помочь! Вы можете:\n" +
+                       "- Уточнить требования к задаче\n" +
+                       "- Спланировать этапы выполнения\n" +
+                       "- Обсудить технические решения\n" +
+                       "Что именно вас интересует?";
+            }
+            if (lowerMessage.contains("приоритет")) {
+                return "Сосредоточьтесь на задачах с высоким приоритетом. " +
+                       "Они критически важны для успеха проекта.";
+            }
+        }
+        
+        // Общие вопросы о проектах
+        if (lowerMessage.contains("проект")) {
+            return "Для эффективного управления проектом:\n" +
+                   "1. Четко определите цели\n" +
+                   "2. Распределите задачи по навыкам\n" +
+                   "3. Отслеживайте прогресс регулярно\n" +
+                   "4. Общайтесь с командой";
+        }
+        
+        if (lowerMessage.contains("задач")) {
+            return "Создавайте конкретные, измеримые задачи. " +
+                   "Используйте AI распределение для оптимального назначения участников.";
+        }
+        
+        // Приветствия
+        if (lowerMessage.contains("привет") || lowerMessage.contains("здравствуй")) {
+            return "Привет! Я ваш AI помощник в управлении проектами. " +
+                   "Задайте мне любой вопрос о задачах, дедлайнах или планировании.";
+        }
+        
+        // Благодарности
+        if (lowerMessage.contains("спасибо") || lowerMessage.contains("благодар")) {
+            return "Рад помочь! Обращайтесь, если возникнут другие вопросы.";
+        }
+        
+        // Дефолтный ответ
+        return "Понял ваш вопрос. Могу предложить:\n" +
+               "- Проанализировать текущее состояние задачи\n" +
+               "- Дать рекомендации по планированию\n" +
+               "- Помочь с приоритизацией\n\n" +
+               "Уточните, что именно вас интересует?";
+    }
+}
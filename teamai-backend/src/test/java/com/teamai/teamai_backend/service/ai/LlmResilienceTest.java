@@ -0,0 +1,134 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.config.OpenAiConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Открытый circuit breaker и заполненный bulkhead отдают fallback без запроса к заглушке,
+ * отмена стрима клиентом возвращает разрешение bulkhead
+ */
+class LlmResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+            .maxConcurrentCalls(1)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+    private OpenAiStubServer stub;
+    private LlmClient client;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new OpenAiStubServer(0, 1000).withContent("stub answer").start();
+        client = client();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void openCircuitGoesStraightToFallback() throws Exception {
+        circuitBreaker().transitionToOpenState();
+
+        StringBuilder received = new StringBuilder();
+        LlmResponse response = client.stream(request(), received::append, () -> "fallback")
+                .completion()
+                .get(1, TimeUnit.SECONDS);
+
+        assertTrue(response.isFallback());
+        assertEquals("circuit_open", response.getFallbackReason());
+        assertEquals("fallback", received.toString());
+        ExecutionException chatError = assertThrows(ExecutionException.class,
+                () -> client.chat(request()).get(1, TimeUnit.SECONDS));
+        assertInstanceOf(CallNotPermittedException.class, chatError.getCause());
+
+        assertEquals(0, stub.getRequestCount());
+        // Отказ breaker-а не держит разрешение bulkhead
+        assertEquals(1, bulkhead().getMetrics().getAvailableConcurrentCalls());
+    }
+
+    @Test
+    void fullBulkheadGoesStraightToFallback() throws Exception {
+        LlmStream running = client.stream(request(), delta -> { }, () -> "fallback");
+
+        long start = System.nanoTime();
+        LlmResponse response = client.stream(request(), delta -> { }, () -> "fallback")
+                .completion()
+                .get(1, TimeUnit.SECONDS);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(response.isFallback());
+        assertEquals("bulkhead_full", response.getFallbackReason());
+        assertTrue(elapsedMillis < 500, "fallback за " + elapsedMillis + " мс");
+
+        assertEquals("stub answer", running.completion().get(5, TimeUnit.SECONDS).getContent());
+        assertEquals(1, stub.getRequestCount());
+    }
+
+    @Test
+    void cancelledStreamReleasesPermit() throws Exception {
+        LlmStream cancelled = client.stream(request(), delta -> { }, () -> "fallback");
+        assertEquals(0, bulkhead().getMetrics().getAvailableConcurrentCalls());
+
+        cancelled.cancel();
+
+        assertEquals(1, bulkhead().getMetrics().getAvailableConcurrentCalls());
+        // Отмена клиентом не считается ошибкой OpenAI
+        assertEquals(0, circuitBreaker().getMetrics().getNumberOfFailedCalls());
+        LlmResponse next = client.stream(request(), delta -> { }, () -> "fallback")
+                .completion()
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("stub answer", next.getContent());
+    }
+
+    private CircuitBreaker circuitBreaker() {
+        return circuitBreakerRegistry.circuitBreaker(LlmClient.RESILIENCE_INSTANCE);
+    }
+
+    private Bulkhead bulkhead() {
+        return bulkheadRegistry.bulkhead(LlmClient.RESILIENCE_INSTANCE);
+    }
+
+    private LlmClient client() {
+        OpenAiConfig config = new OpenAiConfig();
+        config.getApi().setKey("test-key");
+        OpenAiConfig.Provider provider = new OpenAiConfig.Provider();
+        provider.setName("stub");
+        provider.setUrl(stub.getUrl());
+        config.getRouting().setProviders(List.of(provider));
+        config.getRouting().setHedgingEnabled(false);
+
+        return new LlmClient(config, new ObjectMapper(), new LlmRouter(config, meterRegistry),
+                circuitBreakerRegistry, bulkheadRegistry, meterRegistry, new AiMetrics(meterRegistry));
+    }
+
+    private LlmRequest request() {
+        return client.defaultRequest()
+                .message(LlmMessage.user("ping"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+}
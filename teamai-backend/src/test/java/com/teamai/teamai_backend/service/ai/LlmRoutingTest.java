@@ -0,0 +1,132 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamai.teamai_backend.config.OpenAiConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Маршрутизация между двумя локальными заглушками с разной задержкой
+ */
+class LlmRoutingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OpenAiStubServer slow;
+    private OpenAiStubServer fast;
+
+    @AfterEach
+    void stopStubs() {
+        slow.close();
+        fast.close();
+    }
+
+    @Test
+    void hedgedRequestCutsTailLatency() throws Exception {
+        slow = new OpenAiStubServer(0, 3000).withContent("slow").start();
+        fast = new OpenAiStubServer(0, 50).withContent("fast").start();
+        LlmClient client = client(true);
+
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            LlmResponse response = client.chat(request(client)).get(5, TimeUnit.SECONDS);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals("fast", response.getContent());
+            assertTrue(elapsedMillis < 1500, "ответ за " + elapsedMillis + " мс");
+        }
+    }
+
+    @Test
+    void hedgedStreamTakesFirstProviderToRespond() throws Exception {
+        slow = new OpenAiStubServer(0, 3000).withContent("slow answer").start();
+        fast = new OpenAiStubServer(0, 50).withContent("fast answer").start();
+        LlmClient client = client(true);
+
+        StringBuilder received = new StringBuilder();
+        long start = System.nanoTime();
+        LlmResponse response = client.stream(request(client), received::append, () -> "fallback")
+                .completion()
+                .get(5, TimeUnit.SECONDS);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("fast answer", response.getContent());
+        assertEquals("fast answer", received.toString());
+        assertTrue(elapsedMillis < 1500, "ответ за " + elapsedMillis + " мс");
+    }
+
+    @Test
+    void selectionPrefersFasterProvider() throws Exception {
+        slow = new OpenAiStubServer(0, 300).withContent("slow").start();
+        fast = new OpenAiStubServer(0, 20).withContent("fast").start();
+        LlmClient client = client(false);
+
+        for (int i = 0; i < 60; i++) {
+            client.chat(request(client)).get(5, TimeUnit.SECONDS);
+        }
+
+        assertTrue(fast.getRequestCount() > 2 * slow.getRequestCount(),
+                "fast=" + fast.getRequestCount() + ", slow=" + slow.getRequestCount());
+    }
+
+    @Test
+    void failsOverToHealthyProvider() throws Exception {
+        slow = new OpenAiStubServer(0, 0).withStatus(500).start();
+        fast = new OpenAiStubServer(0, 20).withContent("fast").start();
+        // Выбор провайдера случаен: вес делает slow почти всегда первым, но проверка ниже от этого не зависит
+        LlmClient client = client(false, 1000.0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fast", client.chat(request(client)).get(5, TimeUnit.SECONDS).getContent());
+        }
+
+        // Таймер slow появляется только после первого запроса к нему
+        if (slow.getRequestCount() > 0) {
+            assertEquals(slow.getRequestCount(),
+                    meterRegistry.get("ai.llm.upstream").tags("provider", "slow", "status", "500").timer().count());
+        }
+        assertEquals(10, meterRegistry.get("ai.llm.upstream").tags("provider", "fast", "status", "200").timer().count());
+    }
+
+    private LlmClient client(boolean hedging) {
+        return client(hedging, 1.0);
+    }
+
+    private LlmClient client(boolean hedging, double slowWeight) {
+        OpenAiConfig config = new OpenAiConfig();
+        config.getApi().setKey("test-key");
+        OpenAiConfig.Provider slowProvider = provider("slow", slow);
+        slowProvider.setWeight(slowWeight);
+        config.getRouting().setProviders(List.of(slowProvider, provider("fast", fast)));
+        config.getRouting().setHedgingEnabled(hedging);
+        config.getRouting().setMinHedgeDelay(Duration.ofMillis(100));
+        config.getRouting().setInitialHedgeDelay(Duration.ofMillis(200));
+
+        return new LlmClient(config, new ObjectMapper(), new LlmRouter(config, meterRegistry),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), meterRegistry,
+                new AiMetrics(meterRegistry));
+    }
+
+    private static OpenAiConfig.Provider provider(String name, OpenAiStubServer stub) {
+        OpenAiConfig.Provider provider = new OpenAiConfig.Provider();
+        provider.setName(name);
+        provider.setUrl(stub.getUrl());
+        return provider;
+    }
+
+    private static LlmRequest request(LlmClient client) {
+        return client.defaultRequest()
+                .message(LlmMessage.user("ping"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+}
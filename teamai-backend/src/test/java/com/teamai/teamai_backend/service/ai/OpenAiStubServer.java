@@ -0,0 +1,135 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальная заглушка OpenAI chat completions API для нагрузочных тестов.
+ *
+ * Запуск: main из IDE с аргументами {@code <port> <latencyMs>}, затем указать
+ * {@code openai.api.url: http://localhost:8089/v1/chat/completions} в application.yml.
+ * В тестах используется напрямую через конструктор и {@link #getUrl()}.
+ */
+public class OpenAiStubServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile String content = "Ответ заглушки OpenAI";
+    private volatile int statusCode = 200;
+
+    public OpenAiStubServer(int port, long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/v1/chat/completions", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public OpenAiStubServer start() {
+        server.start();
+        return this;
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public OpenAiStubServer withContent(String content) {
+        this.content = content;
+        return this;
+    }
+
+    public OpenAiStubServer withStatus(int statusCode) {
+        this.statusCode = statusCode;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (statusCode == 200 && request.contains("\"stream\":true")) {
+            handleStream(exchange);
+            return;
+        }
+
+        byte[] body = statusCode == 200
+                ? MAPPER.writeValueAsBytes(completion(content))
+                : "{\"error\":{\"message\":\"stub error\"}}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Ответ в формате stream: true - по одному SSE событию на слово
+     */
+    private void handleStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String word : content.split("(?<= )")) {
+                Map<String, Object> chunk = Map.of(
+                        "model", "stub",
+                        "choices", List.of(Map.of("index", 0, "delta", Map.of("content", word))));
+                out.write(("data: " + MAPPER.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(20);
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, Object> completion(String content) {
+        return Map.of(
+                "id", "chatcmpl-stub",
+                "object", "chat.completion",
+                "model", "stub",
+                "choices", List.of(Map.of(
+                        "index", 0,
+                        "message", Map.of("role", "assistant", "content", content),
+                        "finish_reason", "stop")),
+                "usage", Map.of(
+                        "prompt_tokens", 50,
+                        "completion_tokens", content.length() / 4,
+                        "total_tokens", 50 + content.length() / 4));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        OpenAiStubServer stub = new OpenAiStubServer(port, latency).start();
+        System.out.println("OpenAI stub listening on " + stub.getUrl() + " with latency " + latency + "ms");
+        Thread.currentThread().join();
+    }
+}
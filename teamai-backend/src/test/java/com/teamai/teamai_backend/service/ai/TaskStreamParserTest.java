@@ -0,0 +1,65 @@
+package com.teamai.teamai_backend.service.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskStreamParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest(name = "chunk size {0}")
+    @ValueSource(ints = {1, 3, 7, 10_000})
+    void skipsProseAndFences(int chunkSize) {
+        String response = "Вот задачи [по приоритету]:\n```json\n" +
+                "[{\"title\": \"Анализ\", \"requiredSkills\": [\"Java\"]},\n" +
+                " {\"title\": \"Деплой\", \"meta\": {\"tags\": [1, {}]}}]\n```\nГотово.";
+        List<JsonNode> tasks = new ArrayList<>();
+        TaskStreamParser parser = new TaskStreamParser(objectMapper, tasks::add);
+
+        for (int i = 0; i < response.length(); i += chunkSize) {
+            parser.feed(response.substring(i, Math.min(response.length(), i + chunkSize)));
+        }
+        parser.finish();
+
+        assertTrue(parser.isComplete());
+        assertEquals(2, tasks.size());
+        assertEquals("Анализ", tasks.get(0).get("title").asText());
+        assertEquals("Java", tasks.get(0).get("requiredSkills").get(0).asText());
+        assertEquals("Деплой", tasks.get(1).get("title").asText());
+    }
+
+    @Test
+    void emitsTasksBeforeArrayIsClosed() {
+        List<JsonNode> tasks = new ArrayList<>();
+        TaskStreamParser parser = new TaskStreamParser(objectMapper, tasks::add);
+
+        parser.feed("[{\"title\": \"Первая\"}, {\"title\": \"Вто");
+        assertEquals(1, tasks.size());
+
+        parser.finish();
+        assertFalse(parser.isComplete());
+        assertEquals(1, parser.getEmitted());
+    }
+
+    @Test
+    void keepsTasksParsedBeforeMalformedInput() {
+        List<JsonNode> tasks = new ArrayList<>();
+        TaskStreamParser parser = new TaskStreamParser(objectMapper, tasks::add);
+
+        parser.feed("[{\"title\": \"Первая\"}, {title: oops}, {\"title\": \"Третья\"}]");
+        parser.finish();
+
+        assertEquals(1, tasks.size());
+        assertFalse(parser.isComplete());
+    }
+}
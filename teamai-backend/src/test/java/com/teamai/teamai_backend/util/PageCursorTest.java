@@ -0,0 +1,26 @@
+package com.teamai.teamai_backend.util;
+
+import com.teamai.teamai_backend.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripsPositionAndId() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2025, 3, 14, 23, 59, 0, 123_456_000), UUID.randomUUID());
+
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void rejectsTamperedCursor() {
+        assertThrows(BadRequestException.class, () -> PageCursor.decode("not-a-cursor"));
+        assertThrows(BadRequestException.class, () -> PageCursor.decode("%%%"));
+    }
+}